@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.helper;
+
+/**
+ * <p>Stores an object for the context of a thread, e.g. the URL of the workload the
+ * thread works for. A thread that is started inherits the object of the thread that
+ * started it. Setting the object afterwards only changes it for the current thread
+ * and the threads it starts from then on.</p>
+ *
+ * <p>In contrast to the {@link ThreadGroupLocal}, the object is kept in the thread
+ * itself, so the lookup doesn't need a lock and doesn't depend on the thread group.
+ * This also works for threads of a pool, which share one thread group.</p>
+ *
+ * @param <T> Type to store in the context
+ */
+public class ContextLocal<T> extends InheritableThreadLocal<T> {
+
+	/**
+	 * Returns the current object for the current thread if it exists. If not, the
+	 * given object is set. In both cases, it is also returned.
+	 *
+	 * @param object object to set in case there is none yet
+	 * @return the object for the thread
+	 */
+	public T getAndSetIfNull(T object) {
+		T current = get();
+		if (current != null) {
+			return current;
+		}
+		set(object);
+		return object;
+	}
+
+	/**
+	 * Sets the given object for the current thread if there is none yet
+	 *
+	 * @param object object to set
+	 */
+	public void setIfNull(T object) {
+		if (get() == null) {
+			set(object);
+		}
+	}
+}
@@ -11,21 +11,18 @@
 package com.ibm.dbwkl.helper;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- *
+ * Generates random strings of digits and lower case letters. The strings are
+ * filled directly into a char array, so no intermediate strings are created.
  */
 public class RandomStringGenerator {
 
 	/**
 	 * The alphabet which is used as to generate the string
 	 */
-	private static String alphabet = "0123456789abcdefghijklmnopqrstuvwxyz";
-	
-	/**
-	 * Randomizer as static to increase the quality of the randomized strings
-	 */
-	private static Random random = new Random(System.currentTimeMillis());
+	private static final char[] alphabet = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
 	
 	/**
 	 * Generates a new randomized string of the specified length
@@ -33,20 +30,24 @@ public class RandomStringGenerator {
 	 * @param length length of the string to generate
 	 * @return the generated string
 	 */
-	public static synchronized String get(int length) {
-		
-		try {
-			Thread.sleep(1);
-		} catch (InterruptedException e) {
-			//
-		}
-		
-		String result = "";
-		for (int i = 0; i < length; i++) {
-			char c = alphabet.charAt(random.nextInt(alphabet.length()));
-			result += c;
+	public static String get(int length) {
+		char[] chars = new char[length];
+		fill(ThreadLocalRandom.current(), chars, 0, length);
+		return new String(chars);
+	}
+	
+	/**
+	 * Fills a part of the buffer with random characters
+	 * 
+	 * @param random the random number generator of the current thread
+	 * @param buffer the buffer to fill
+	 * @param offset the first position to fill
+	 * @param length the number of characters to fill
+	 */
+	public static void fill(Random random, char[] buffer, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			buffer[i] = alphabet[random.nextInt(alphabet.length)];
 		}
-		
-		return result;
 	}
 }
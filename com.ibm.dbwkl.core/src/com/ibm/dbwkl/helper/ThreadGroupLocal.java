@@ -15,13 +15,16 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  *
  * @param <T> Type to store in this localized thread group
+ * @deprecated The object depends on the thread group, which is shared by all threads
+ * 			of a pool. Use the {@link ContextLocal} instead.
  */
+@Deprecated
 public class ThreadGroupLocal <T> {
 
 	/**
 	 * Map that stores the object for the thread group
 	 */
-	private ConcurrentHashMap<ThreadGroup, T> map = new ConcurrentHashMap<ThreadGroup, T>();
+	private final ConcurrentHashMap<ThreadGroup, T> map = new ConcurrentHashMap<ThreadGroup, T>();
 	
 	/**
 	 * Returns the object for this thread group
@@ -29,9 +32,7 @@ public class ThreadGroupLocal <T> {
 	 * @return object for the thread group
 	 */
 	public T get() {
-		synchronized (this.map) {
-			return this.map.get(Thread.currentThread().getThreadGroup());
-		}
+		return this.map.get(Thread.currentThread().getThreadGroup());
 	}
 	
 	/**
@@ -43,13 +44,8 @@ public class ThreadGroupLocal <T> {
 	 * @return the object for the thread group
 	 */
 	public T getAndSetIfNull(T object) {
-		synchronized (this.map) {
-			if (this.map.containsKey(Thread.currentThread().getThreadGroup())) {
-				return this.map.get(Thread.currentThread().getThreadGroup());
-			}
-			this.map.put(Thread.currentThread().getThreadGroup(), object);
-			return object;
-		}
+		T current = this.map.putIfAbsent(Thread.currentThread().getThreadGroup(), object);
+		return current != null ? current : object;
 	}
 	
 	/**
@@ -58,9 +54,7 @@ public class ThreadGroupLocal <T> {
 	 * @param object object to set
 	 */
 	public void set(T object) {
-		synchronized (this.map) {
-			this.map.put(Thread.currentThread().getThreadGroup(), object);
-		}
+		this.map.put(Thread.currentThread().getThreadGroup(), object);
 	}
 	
 	/**
@@ -69,17 +63,13 @@ public class ThreadGroupLocal <T> {
 	 * @param object object to set
 	 */
 	public void setIfNull(T object) {
-		synchronized (this.map) {
-			this.map.putIfAbsent(Thread.currentThread().getThreadGroup(), object);
-		}
+		this.map.putIfAbsent(Thread.currentThread().getThreadGroup(), object);
 	}
 	
 	/**
 	 * Removes the object for the current thread group and the thread group itself from the map
 	 */
 	public void remove() {
-		synchronized (this.map) {
-			this.map.remove(Thread.currentThread().getThreadGroup());
-		}
+		this.map.remove(Thread.currentThread().getThreadGroup());
 	}
 }
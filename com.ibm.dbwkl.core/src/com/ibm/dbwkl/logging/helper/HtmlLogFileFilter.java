@@ -25,7 +25,7 @@ public class HtmlLogFileFilter implements FilenameFilter {
 	 */
 	@Override
 	public boolean accept(File directory, String filename) {
-        return (filename.startsWith("log") && (filename.endsWith(".html") || filename.endsWith(".htm")));
+        return (filename.startsWith("log") && (filename.endsWith(".html") || filename.endsWith(".htm") || filename.endsWith(".html.gz")));
 	}
 
 }
@@ -25,7 +25,7 @@ public class TextLogFileFilter implements FilenameFilter {
 	
 	@Override
 	public boolean accept(File directory, String filename) {
-        return (filename.startsWith("log") && filename.endsWith(".txt"));
+        return (filename.startsWith("log") && (filename.endsWith(".txt") || filename.endsWith(".txt.gz")));
     }
 
 }
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.report;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.NumberFormat;
+
+/**
+ * A histogram of latencies in microseconds with a log-linear bucket layout (like
+ * an HDR histogram). Values below {@link #SUB_BUCKETS} are counted exactly, larger
+ * values are counted in buckets of 1/{@link #HALF_SUB_BUCKETS} of their power of two,
+ * so the relative error of a percentile is below about 3%.
+ *
+ * Histograms can be merged by adding the counts, which makes them suitable to be
+ * summed up over threads, reports and requests.
+ *
+ * It implements {@link java.io.Serializable} interface so that it can be passed as part
+ * of a {@link Report} in RMI. Only the buckets that are not empty are serialized.
+ */
+public class LatencyHistogram implements Serializable {
+
+	/**
+	 * generated
+	 */
+	private static final long serialVersionUID = 5520963817746353409L;
+
+	/**
+	 * Number of linear sub buckets for the smallest values
+	 */
+	public static final int SUB_BUCKETS = 64;
+
+	/**
+	 * Number of sub buckets for each further power of two
+	 */
+	public static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	/**
+	 * Highest shift of a value, which limits the trackable values to about 50 days
+	 */
+	private static final int MAX_SHIFT = 37;
+
+	/**
+	 * Number of buckets
+	 */
+	public static final int LENGTH = SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS;
+
+	/**
+	 * Highest value that can be tracked, larger values are counted as this value
+	 */
+	public static final long MAX_VALUE = ((long) SUB_BUCKETS << MAX_SHIFT) - 1;
+
+	/**
+	 * The counts of the buckets
+	 */
+	private transient long[] counts = new long[LENGTH];
+
+	/**
+	 * Number of values in the histogram
+	 */
+	private long totalCount = 0;
+
+	/**
+	 * Sum of all values in the histogram
+	 */
+	private long totalSum = 0;
+
+	/**
+	 * Highest value in the histogram
+	 */
+	private long maxValue = 0;
+
+	/**
+	 * Returns the bucket index for the given value
+	 *
+	 * @param value value in microseconds
+	 * @return the index of the bucket that counts the value
+	 */
+	public static int getIndex(long value) {
+		if (value < 0) {
+			value = 0;
+		} else if (value > MAX_VALUE) {
+			value = MAX_VALUE;
+		}
+
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		// the shift makes the value fall into [HALF_SUB_BUCKETS, SUB_BUCKETS)
+		int shift = 63 - Long.numberOfLeadingZeros(value) - Integer.numberOfTrailingZeros(HALF_SUB_BUCKETS);
+		int subBucket = (int) (value >>> shift);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (subBucket - HALF_SUB_BUCKETS);
+	}
+
+	/**
+	 * Returns the highest value that is counted in the given bucket
+	 *
+	 * @param index the index of the bucket
+	 * @return the highest value in microseconds of the bucket
+	 */
+	public static long getHighestEquivalentValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Records a value. This method is not thread safe.
+	 *
+	 * @param value value in microseconds
+	 */
+	public void recordValue(long value) {
+		addCount(getIndex(value), 1);
+		this.totalSum += value;
+		if (value > this.maxValue) {
+			this.maxValue = value;
+		}
+	}
+
+	/**
+	 * Adds a count to a bucket without changing the sum and the maximum. This method
+	 * is not thread safe.
+	 *
+	 * @param index the index of the bucket
+	 * @param count the count to add
+	 */
+	public void addCount(int index, long count) {
+		this.counts[index] += count;
+		this.totalCount += count;
+	}
+
+	/**
+	 * Adds the given histogram to this histogram
+	 *
+	 * @param histogram the histogram to add
+	 */
+	public void add(LatencyHistogram histogram) {
+		if (histogram == null) {
+			return;
+		}
+
+		for (int i = 0; i < LENGTH; i++) {
+			this.counts[i] += histogram.counts[i];
+		}
+		this.totalCount += histogram.totalCount;
+		this.totalSum += histogram.totalSum;
+		this.maxValue = Math.max(this.maxValue, histogram.maxValue);
+	}
+
+	/**
+	 * Returns the value at the given percentile. The value is the highest value of
+	 * the bucket that contains the percentile, but never higher than the maximum.
+	 *
+	 * @param percentile the percentile between 0 and 100
+	 * @return the value in microseconds
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (this.totalCount == 0) {
+			return 0;
+		}
+
+		long countAtPercentile = (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * this.totalCount);
+		countAtPercentile = Math.max(countAtPercentile, 1);
+
+		long count = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			count += this.counts[i];
+			if (count >= countAtPercentile) {
+				long value = getHighestEquivalentValue(i);
+				return this.maxValue > 0 ? Math.min(value, this.maxValue) : value;
+			}
+		}
+		return this.maxValue;
+	}
+
+	/**
+	 * Returns the number of values that are lower than or equal to the given value.
+	 * Values in the bucket that contains the given value are only counted if the
+	 * highest value of the bucket is not higher than the given value.
+	 *
+	 * @param value the value in microseconds
+	 * @return the number of values
+	 */
+	public long getCountAtOrBelow(long value) {
+		long count = 0;
+		for (int i = 0; i < LENGTH && getHighestEquivalentValue(i) <= value; i++) {
+			count += this.counts[i];
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of values in the histogram
+	 */
+	public long getTotalCount() {
+		return this.totalCount;
+	}
+
+	/**
+	 * @return the sum of all values in microseconds
+	 */
+	public long getTotalSum() {
+		return this.totalSum;
+	}
+
+	/**
+	 * @param totalSum the sum of all values in microseconds
+	 */
+	public void setTotalSum(long totalSum) {
+		this.totalSum = totalSum;
+	}
+
+	/**
+	 * @return the mean value in microseconds
+	 */
+	public double getMean() {
+		return this.totalCount == 0 ? 0 : (double) this.totalSum / this.totalCount;
+	}
+
+	/**
+	 * @return the highest value in microseconds
+	 */
+	public long getMaxValue() {
+		return this.maxValue;
+	}
+
+	/**
+	 * @param maxValue the highest value in microseconds
+	 */
+	public void setMaxValue(long maxValue) {
+		this.maxValue = maxValue;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		NumberFormat numberFormat = NumberFormat.getNumberInstance();
+		numberFormat.setMaximumFractionDigits(3);
+
+		return "count = " + this.totalCount +
+				", p50 = " + numberFormat.format(getValueAtPercentile(50) / 1000.0) +
+				", p90 = " + numberFormat.format(getValueAtPercentile(90) / 1000.0) +
+				", p99 = " + numberFormat.format(getValueAtPercentile(99) / 1000.0) +
+				", p99.9 = " + numberFormat.format(getValueAtPercentile(99.9) / 1000.0) +
+				", max = " + numberFormat.format(getMaxValue() / 1000.0);
+	}
+
+	/**
+	 * Writes the non-empty buckets only
+	 *
+	 * @param out the stream
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+
+		int buckets = 0;
+		for (int i = 0; i < LENGTH; i++) {
+			if (this.counts[i] != 0) {
+				buckets++;
+			}
+		}
+
+		out.writeInt(buckets);
+		for (int i = 0; i < LENGTH; i++) {
+			if (this.counts[i] != 0) {
+				out.writeShort(i);
+				out.writeLong(this.counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the non-empty buckets
+	 *
+	 * @param in the stream
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		this.counts = new long[LENGTH];
+		int buckets = in.readInt();
+		for (int i = 0; i < buckets; i++) {
+			int index = in.readShort();
+			this.counts[index] = in.readLong();
+		}
+	}
+}
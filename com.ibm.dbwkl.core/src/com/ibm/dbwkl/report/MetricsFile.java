@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.report;
+
+/**
+ * <p>The format of the metrics file that the reporter writes for the option OUTFILE.
+ * The file contains one fixed-width record for each report of each request:</p>
+ *
+ * <pre>
+ * header:  magic (long) | version (int) | header size (int) | record size (int) |
+ *          number of columns (int) | column names (short length + UTF-8 bytes each)
+ * record:  timestamp in ms (long) | one double per column
+ * </pre>
+ *
+ * <p>The file grows in chunks, so there can be zeroed records after the last one. A
+ * record with the timestamp 0 marks the end of the data.</p>
+ */
+public final class MetricsFile {
+
+	/**
+	 * Magic number at the beginning of the file, "DBWKLTS1"
+	 */
+	public static final long MAGIC = 0x4442574B4C545331L;
+
+	/**
+	 * Version of the format
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The columns of a record after the timestamp
+	 */
+	public static final String[] COLUMNS = {
+		"request_id",
+		"interval",
+		"threads",
+		"db2_connections",
+		"statements",
+		"sockets",
+		"consumed_memory",
+		"target_rate",
+		"achieved_rate",
+		"backlog",
+		"pooled_connections",
+		"idle_connections",
+		"pool_wait_time",
+		"pool_timeouts",
+		"log_queued",
+		"log_dropped",
+		"stmt_cache_hits",
+		"stmt_cache_misses",
+		"stmt_cache_evictions",
+		"executions",
+		"failed_executions",
+		"commits",
+		"rollbacks",
+		"executed_statements",
+		"rows_fetched",
+		"rows_affected",
+		"sql_errors"
+	};
+
+	/**
+	 * Columns that count events in the interval of the report. They are summed up when
+	 * the records are downsampled, all other columns are averaged.
+	 */
+	private static final String[] COUNTERS = {
+		"interval",
+		"executions",
+		"failed_executions",
+		"commits",
+		"rollbacks",
+		"executed_statements",
+		"rows_fetched",
+		"rows_affected",
+		"sql_errors"
+	};
+
+	/**
+	 * No instances
+	 */
+	private MetricsFile() {
+		// only constants and helpers
+	}
+
+	/**
+	 * @param column the name of the column
+	 * @return true if the column counts events and is summed up when downsampling
+	 */
+	public static boolean isCounter(String column) {
+		for (String counter : COUNTERS) {
+			if (counter.equals(column)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param columns the number of columns
+	 * @return the size of a record in bytes
+	 */
+	public static int getRecordSize(int columns) {
+		return 8 + 8 * columns;
+	}
+
+	/**
+	 * Returns the values of a report in the order of {@link #COLUMNS}
+	 *
+	 * @param requestId the id of the request of the report
+	 * @param report the report
+	 * @return the values
+	 */
+	public static double[] getValues(long requestId, Report report) {
+		return new double[] {
+			requestId,
+			report.getInterval(),
+			report.getNumber_of_threads(),
+			report.getNumber_of_db2Connection(),
+			report.getNumber_of_statements(),
+			report.getNumber_of_sockets(),
+			report.getConsumed_memory(),
+			report.getTarget_rate(),
+			report.getAchieved_rate(),
+			report.getBacklog(),
+			report.getNumber_of_pooled_connections(),
+			report.getNumber_of_idle_connections(),
+			report.getPool_wait_time(),
+			report.getPool_timeouts(),
+			report.getLog_queued(),
+			report.getLog_dropped(),
+			report.getStmt_cache_hits(),
+			report.getStmt_cache_misses(),
+			report.getStmt_cache_evictions(),
+			report.getExecutions(),
+			report.getFailed_executions(),
+			report.getCommits(),
+			report.getRollbacks(),
+			report.getExecuted_statements(),
+			report.getRows_fetched(),
+			report.getRows_affected(),
+			report.getSql_error_count()
+		};
+	}
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.report;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Reads a {@link MetricsFile} record by record. The records can be exported as CSV,
+ * optionally downsampled to one row per request and time step: the counters of the
+ * records within a step are summed up, the other values are averaged.</p>
+ */
+public class MetricsFileReader implements Closeable {
+
+	/**
+	 * The input stream of the file
+	 */
+	private final DataInputStream input;
+
+	/**
+	 * The names of the columns after the timestamp
+	 */
+	private final String[] columns;
+
+	/**
+	 * The timestamp of the current record
+	 */
+	private long timestamp;
+
+	/**
+	 * The values of the current record
+	 */
+	private final double[] values;
+
+	/**
+	 * Opens the file and reads the header
+	 *
+	 * @param file the file
+	 * @throws IOException the file can't be read or is no metrics file
+	 */
+	public MetricsFileReader(File file) throws IOException {
+		this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		try {
+			if (this.input.readLong() != MetricsFile.MAGIC) {
+				throw new IOException(file.getAbsolutePath() + " is no metrics file");
+			}
+			int version = this.input.readInt();
+			if (version != MetricsFile.VERSION) {
+				throw new IOException("Version " + version + " of the metrics file is not supported");
+			}
+			int headerSize = this.input.readInt();
+			int recordSize = this.input.readInt();
+			int columnCount = this.input.readInt();
+			if (recordSize != MetricsFile.getRecordSize(columnCount)) {
+				throw new IOException("The record size of the metrics file doesn't match its columns");
+			}
+
+			int read = 8 + 4 * 4;
+			this.columns = new String[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				byte[] name = new byte[this.input.readUnsignedShort()];
+				this.input.readFully(name);
+				this.columns[i] = new String(name, StandardCharsets.UTF_8);
+				read += 2 + name.length;
+			}
+			if (read != headerSize) {
+				throw new IOException("The header of the metrics file is corrupt");
+			}
+			this.values = new double[columnCount];
+		} catch (IOException e) {
+			this.input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the names of the columns after the timestamp
+	 */
+	public String[] getColumns() {
+		return this.columns.clone();
+	}
+
+	/**
+	 * Reads the next record
+	 *
+	 * @return false if there are no more records
+	 * @throws IOException the file can't be read
+	 */
+	public boolean next() throws IOException {
+		try {
+			this.timestamp = this.input.readLong();
+			if (this.timestamp == 0) {
+				return false;
+			}
+			for (int i = 0; i < this.values.length; i++) {
+				this.values[i] = this.input.readDouble();
+			}
+			return true;
+		} catch (EOFException e) {
+			// the last record is incomplete
+			this.timestamp = 0;
+			return false;
+		}
+	}
+
+	/**
+	 * @return the timestamp of the current record in ms
+	 */
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	/**
+	 * @param column the index of the column
+	 * @return the value of the column in the current record
+	 */
+	public double getValue(int column) {
+		return this.values[column];
+	}
+
+	/**
+	 * Writes all remaining records as CSV with a header line
+	 *
+	 * @param output where to write the CSV to
+	 * @param step the time step in ms to downsample the records to, 0 to write each record
+	 * @return the number of written rows
+	 * @throws IOException the file can't be read or the CSV can't be written
+	 */
+	public long exportCSV(Writer output, long step) throws IOException {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		DecimalFormat numberFormat = new DecimalFormat("0.###", DecimalFormatSymbols.getInstance(Locale.ROOT));
+
+		boolean[] counters = new boolean[this.columns.length];
+		output.write("timestamp");
+		for (int i = 0; i < this.columns.length; i++) {
+			counters[i] = MetricsFile.isCounter(this.columns[i]);
+			output.write(',');
+			output.write(this.columns[i]);
+		}
+		output.write('\n');
+
+		// the records of several requests are interleaved, so there is an open step per request
+		int requestColumn = indexOf("request_id");
+		Map<Double, Step> steps = new LinkedHashMap<Double, Step>();
+		long rows = 0;
+
+		while (next()) {
+			Double request = Double.valueOf(requestColumn >= 0 ? this.values[requestColumn] : 0);
+			long start = step > 0 ? this.timestamp - this.timestamp % step : this.timestamp;
+
+			Step current = steps.get(request);
+			if (current != null && (step <= 0 || current.start != start)) {
+				current.write(output, counters, dateFormat, numberFormat);
+				rows++;
+				current = null;
+			}
+			if (current == null) {
+				current = new Step(start, this.values.length);
+				steps.put(request, current);
+			}
+			current.add(this.values);
+		}
+
+		for (Step open : steps.values()) {
+			open.write(output, counters, dateFormat, numberFormat);
+			rows++;
+		}
+		output.flush();
+		return rows;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.input.close();
+	}
+
+	/**
+	 * @param column the name of the column
+	 * @return the index of the column or -1
+	 */
+	private int indexOf(String column) {
+		for (int i = 0; i < this.columns.length; i++) {
+			if (this.columns[i].equals(column)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The records of one request within one time step
+	 */
+	private static final class Step {
+
+		/**
+		 * Start of the step in ms
+		 */
+		final long start;
+
+		/**
+		 * Sums of the values
+		 */
+		final double[] sums;
+
+		/**
+		 * Number of records
+		 */
+		int count;
+
+		/**
+		 * @param start start of the step in ms
+		 * @param columns number of columns
+		 */
+		Step(long start, int columns) {
+			this.start = start;
+			this.sums = new double[columns];
+		}
+
+		/**
+		 * @param values the values of a record to add
+		 */
+		void add(double[] values) {
+			for (int i = 0; i < values.length; i++) {
+				this.sums[i] += values[i];
+			}
+			this.count++;
+		}
+
+		/**
+		 * Writes the step as CSV line
+		 *
+		 * @param output where to write to
+		 * @param counters which columns are summed up instead of averaged
+		 * @param dateFormat format of the timestamp
+		 * @param numberFormat format of the values
+		 * @throws IOException the line can't be written
+		 */
+		void write(Writer output, boolean[] counters, SimpleDateFormat dateFormat, DecimalFormat numberFormat) throws IOException {
+			output.write(dateFormat.format(new Date(this.start)));
+			for (int i = 0; i < this.sums.length; i++) {
+				output.write(',');
+				output.write(numberFormat.format(counters[i] ? this.sums[i] : this.sums[i] / this.count));
+			}
+			output.write('\n');
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.report;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Appends the reports to a {@link MetricsFile}. The file is mapped into memory in
+ * chunks of {@link #RECORDS_PER_CHUNK} records, so writing a record only copies it into
+ * the mapped chunk. {@link #flush()} forces the written records to the disk.</p>
+ *
+ * <p>The writer is not thread safe.</p>
+ */
+public class MetricsFileWriter implements Closeable {
+
+	/**
+	 * Number of records that are mapped at once
+	 */
+	private static final int RECORDS_PER_CHUNK = 4096;
+
+	/**
+	 * The file
+	 */
+	private final File file;
+
+	/**
+	 * The opened file
+	 */
+	private final RandomAccessFile randomAccessFile;
+
+	/**
+	 * Channel to the file
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Number of columns after the timestamp
+	 */
+	private final int columns;
+
+	/**
+	 * Size of a record in bytes
+	 */
+	private final int recordSize;
+
+	/**
+	 * The currently mapped chunk, null if no chunk is mapped yet
+	 */
+	private MappedByteBuffer chunk;
+
+	/**
+	 * Position of the next record in the file
+	 */
+	private long position;
+
+	/**
+	 * Creates the file with the columns of {@link MetricsFile#COLUMNS}. An existing file is overwritten.
+	 *
+	 * @param file the file
+	 * @throws IOException the file can't be created
+	 */
+	public MetricsFileWriter(File file) throws IOException {
+		this(file, MetricsFile.COLUMNS);
+	}
+
+	/**
+	 * Creates the file. An existing file is overwritten.
+	 *
+	 * @param file the file
+	 * @param columnNames the names of the columns after the timestamp
+	 * @throws IOException the file can't be created
+	 */
+	public MetricsFileWriter(File file, String[] columnNames) throws IOException {
+		this.file = file;
+		this.columns = columnNames.length;
+		this.recordSize = MetricsFile.getRecordSize(this.columns);
+
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = this.randomAccessFile.getChannel();
+		try {
+			this.channel.truncate(0);
+			writeHeader(columnNames);
+		} catch (IOException e) {
+			this.randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Appends a record
+	 *
+	 * @param timestamp the time of the values in ms, not 0
+	 * @param values the values of the columns
+	 * @throws IOException the next chunk can't be mapped
+	 */
+	public void write(long timestamp, double[] values) throws IOException {
+		if (values.length != this.columns) {
+			throw new IllegalArgumentException("The record has " + values.length + " instead of " + this.columns + " values");
+		}
+
+		if (this.chunk == null || !this.chunk.hasRemaining()) {
+			if (this.chunk != null) {
+				this.chunk.force();
+			}
+			this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, this.position, (long) this.recordSize * RECORDS_PER_CHUNK);
+		}
+
+		this.chunk.putLong(timestamp);
+		for (double value : values) {
+			this.chunk.putDouble(value);
+		}
+		this.position += this.recordSize;
+	}
+
+	/**
+	 * Forces the written records to the disk
+	 */
+	public void flush() {
+		if (this.chunk != null) {
+			this.chunk.force();
+		}
+	}
+
+	/**
+	 * Forces the written records to the disk, cuts the unused rest of the last chunk off and closes the file
+	 *
+	 * @throws IOException the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		this.chunk = null;
+		try {
+			// fails on some platforms while the chunk is still mapped, the reader stops at the zeroed records anyway
+			this.channel.truncate(this.position);
+		} catch (IOException e) {
+			// keep the zeroed records
+		}
+		this.randomAccessFile.close();
+	}
+
+	/**
+	 * Writes the header and sets the position behind it
+	 *
+	 * @param columnNames the names of the columns
+	 * @throws IOException the header can't be written
+	 */
+	private void writeHeader(String[] columnNames) throws IOException {
+		byte[][] names = new byte[columnNames.length][];
+		int headerSize = 8 + 4 * 4;
+		for (int i = 0; i < columnNames.length; i++) {
+			names[i] = columnNames[i].getBytes(StandardCharsets.UTF_8);
+			headerSize += 2 + names[i].length;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putLong(MetricsFile.MAGIC);
+		header.putInt(MetricsFile.VERSION);
+		header.putInt(headerSize);
+		header.putInt(this.recordSize);
+		header.putInt(this.columns);
+		for (byte[] name : names) {
+			header.putShort((short) name.length);
+			header.put(name);
+		}
+		header.flip();
+
+		while (header.hasRemaining()) {
+			this.channel.write(header, header.position());
+		}
+		this.position = headerSize;
+	}
+}
@@ -13,6 +13,8 @@ package com.ibm.dbwkl.report;
 import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Vector;
 
 /**
@@ -67,6 +69,121 @@ public class Report implements Serializable {
 	 */
 	private double consumed_memory = 0;
 	
+	/**
+	 * Target rate (executions per second) of the request in the rate controlled mode
+	 */
+	private double target_rate = 0;
+	
+	/**
+	 * Achieved rate (executions per second) of the request in the rate controlled mode
+	 */
+	private double achieved_rate = 0;
+	
+	/**
+	 * Number of executions that are due but not started yet in the rate controlled mode
+	 */
+	private double backlog = 0;
+	
+	/**
+	 * Number of physical connections in the connection pools of the request
+	 */
+	private double number_of_pooled_connections = 0;
+	
+	/**
+	 * Number of idle connections in the connection pools of the request
+	 */
+	private double number_of_idle_connections = 0;
+	
+	/**
+	 * Average time (ms) waited for a connection from the connection pools
+	 */
+	private double pool_wait_time = 0;
+	
+	/**
+	 * Number of requests for a connection that timed out waiting for the connection pools
+	 */
+	private double pool_timeouts = 0;
+	
+	/**
+	 * Number of log entries that are buffered in the request and not sent yet
+	 */
+	private double log_queued = 0;
+	
+	/**
+	 * Number of log entries that were dropped because the log buffer of the request was full
+	 */
+	private double log_dropped = 0;
+	
+	/**
+	 * Number of prepared and callable statements that were found in the statement caches
+	 */
+	private double stmt_cache_hits = 0;
+	
+	/**
+	 * Number of prepared and callable statements that were not found in the statement caches
+	 */
+	private double stmt_cache_misses = 0;
+	
+	/**
+	 * Number of statements that were closed to make space in the statement caches
+	 */
+	private double stmt_cache_evictions = 0;
+	
+	/**
+	 * Length of the interval (seconds) in which the counters were counted
+	 */
+	private double interval = 0;
+	
+	/**
+	 * Number of executions of the workloads in the interval
+	 */
+	private double executions = 0;
+	
+	/**
+	 * Number of executions of the workloads in the interval that failed
+	 */
+	private double failed_executions = 0;
+	
+	/**
+	 * Number of commits in the interval
+	 */
+	private double commits = 0;
+	
+	/**
+	 * Number of rollbacks in the interval
+	 */
+	private double rollbacks = 0;
+	
+	/**
+	 * Number of executed SQL statements in the interval
+	 */
+	private double executed_statements = 0;
+	
+	/**
+	 * Number of rows fetched from result sets in the interval
+	 */
+	private double rows_fetched = 0;
+	
+	/**
+	 * Number of rows inserted, updated or deleted in the interval
+	 */
+	private double rows_affected = 0;
+	
+	/**
+	 * Number of failed SQL statements in the interval by SQLCODE
+	 */
+	private TreeMap<Integer, Double> sql_errors = new TreeMap<Integer, Double>();
+	
+	/**
+	 * Number of executions in the interval by transaction of a transaction mix
+	 */
+	private TreeMap<String, Double> transactions = new TreeMap<String, Double>();
+	
+	/**
+	 * Latency histograms of the request by operation name
+	 */
+	private TreeMap<String, LatencyHistogram> latencies = new TreeMap<String, LatencyHistogram>();
+	
 	/**
 	 * 
 	 */
@@ -147,6 +264,375 @@ public class Report implements Serializable {
 		return this.consumed_memory;
 	}
 	
+	/**
+	 * @param target_rate the target_rate to set
+	 */
+	public void setTarget_rate(double target_rate) {
+		this.target_rate = target_rate;
+	}
+
+	/**
+	 * @return the target_rate
+	 */
+	public double getTarget_rate() {
+		return this.target_rate;
+	}
+
+	/**
+	 * @param achieved_rate the achieved_rate to set
+	 */
+	public void setAchieved_rate(double achieved_rate) {
+		this.achieved_rate = achieved_rate;
+	}
+
+	/**
+	 * @return the achieved_rate
+	 */
+	public double getAchieved_rate() {
+		return this.achieved_rate;
+	}
+
+	/**
+	 * @param backlog the backlog to set
+	 */
+	public void setBacklog(double backlog) {
+		this.backlog = backlog;
+	}
+
+	/**
+	 * @return the backlog
+	 */
+	public double getBacklog() {
+		return this.backlog;
+	}
+	
+	/**
+	 * @param number_of_pooled_connections the number_of_pooled_connections to set
+	 */
+	public void setNumber_of_pooled_connections(double number_of_pooled_connections) {
+		this.number_of_pooled_connections = number_of_pooled_connections;
+	}
+
+	/**
+	 * @return the number_of_pooled_connections
+	 */
+	public double getNumber_of_pooled_connections() {
+		return this.number_of_pooled_connections;
+	}
+
+	/**
+	 * @param number_of_idle_connections the number_of_idle_connections to set
+	 */
+	public void setNumber_of_idle_connections(double number_of_idle_connections) {
+		this.number_of_idle_connections = number_of_idle_connections;
+	}
+
+	/**
+	 * @return the number_of_idle_connections
+	 */
+	public double getNumber_of_idle_connections() {
+		return this.number_of_idle_connections;
+	}
+
+	/**
+	 * @param pool_wait_time the pool_wait_time to set
+	 */
+	public void setPool_wait_time(double pool_wait_time) {
+		this.pool_wait_time = pool_wait_time;
+	}
+
+	/**
+	 * @return the pool_wait_time
+	 */
+	public double getPool_wait_time() {
+		return this.pool_wait_time;
+	}
+
+	/**
+	 * @param pool_timeouts the pool_timeouts to set
+	 */
+	public void setPool_timeouts(double pool_timeouts) {
+		this.pool_timeouts = pool_timeouts;
+	}
+
+	/**
+	 * @return the pool_timeouts
+	 */
+	public double getPool_timeouts() {
+		return this.pool_timeouts;
+	}
+	
+	/**
+	 * @param log_queued the log_queued to set
+	 */
+	public void setLog_queued(double log_queued) {
+		this.log_queued = log_queued;
+	}
+
+	/**
+	 * @return the log_queued
+	 */
+	public double getLog_queued() {
+		return this.log_queued;
+	}
+
+	/**
+	 * @param log_dropped the log_dropped to set
+	 */
+	public void setLog_dropped(double log_dropped) {
+		this.log_dropped = log_dropped;
+	}
+
+	/**
+	 * @return the log_dropped
+	 */
+	public double getLog_dropped() {
+		return this.log_dropped;
+	}
+	
+	/**
+	 * @param stmt_cache_hits the stmt_cache_hits to set
+	 */
+	public void setStmt_cache_hits(double stmt_cache_hits) {
+		this.stmt_cache_hits = stmt_cache_hits;
+	}
+
+	/**
+	 * @return the stmt_cache_hits
+	 */
+	public double getStmt_cache_hits() {
+		return this.stmt_cache_hits;
+	}
+
+	/**
+	 * @param stmt_cache_misses the stmt_cache_misses to set
+	 */
+	public void setStmt_cache_misses(double stmt_cache_misses) {
+		this.stmt_cache_misses = stmt_cache_misses;
+	}
+
+	/**
+	 * @return the stmt_cache_misses
+	 */
+	public double getStmt_cache_misses() {
+		return this.stmt_cache_misses;
+	}
+
+	/**
+	 * @param stmt_cache_evictions the stmt_cache_evictions to set
+	 */
+	public void setStmt_cache_evictions(double stmt_cache_evictions) {
+		this.stmt_cache_evictions = stmt_cache_evictions;
+	}
+
+	/**
+	 * @return the stmt_cache_evictions
+	 */
+	public double getStmt_cache_evictions() {
+		return this.stmt_cache_evictions;
+	}
+	
+	/**
+	 * @param interval the interval to set
+	 */
+	public void setInterval(double interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * @return the interval
+	 */
+	public double getInterval() {
+		return this.interval;
+	}
+	
+	/**
+	 * @param executions the executions to set
+	 */
+	public void setExecutions(double executions) {
+		this.executions = executions;
+	}
+
+	/**
+	 * @return the executions
+	 */
+	public double getExecutions() {
+		return this.executions;
+	}
+	
+	/**
+	 * @param failed_executions the failed_executions to set
+	 */
+	public void setFailed_executions(double failed_executions) {
+		this.failed_executions = failed_executions;
+	}
+
+	/**
+	 * @return the failed_executions
+	 */
+	public double getFailed_executions() {
+		return this.failed_executions;
+	}
+	
+	/**
+	 * @param commits the commits to set
+	 */
+	public void setCommits(double commits) {
+		this.commits = commits;
+	}
+
+	/**
+	 * @return the commits
+	 */
+	public double getCommits() {
+		return this.commits;
+	}
+	
+	/**
+	 * @param rollbacks the rollbacks to set
+	 */
+	public void setRollbacks(double rollbacks) {
+		this.rollbacks = rollbacks;
+	}
+
+	/**
+	 * @return the rollbacks
+	 */
+	public double getRollbacks() {
+		return this.rollbacks;
+	}
+	
+	/**
+	 * @param executed_statements the executed_statements to set
+	 */
+	public void setExecuted_statements(double executed_statements) {
+		this.executed_statements = executed_statements;
+	}
+
+	/**
+	 * @return the executed_statements
+	 */
+	public double getExecuted_statements() {
+		return this.executed_statements;
+	}
+	
+	/**
+	 * @param rows_fetched the rows_fetched to set
+	 */
+	public void setRows_fetched(double rows_fetched) {
+		this.rows_fetched = rows_fetched;
+	}
+
+	/**
+	 * @return the rows_fetched
+	 */
+	public double getRows_fetched() {
+		return this.rows_fetched;
+	}
+	
+	/**
+	 * @param rows_affected the rows_affected to set
+	 */
+	public void setRows_affected(double rows_affected) {
+		this.rows_affected = rows_affected;
+	}
+
+	/**
+	 * @return the rows_affected
+	 */
+	public double getRows_affected() {
+		return this.rows_affected;
+	}
+	
+	/**
+	 * @param sql_errors the number of failed SQL statements by SQLCODE to set
+	 */
+	public void setSql_errors(Map<Integer, Double> sql_errors) {
+		this.sql_errors = new TreeMap<Integer, Double>(sql_errors);
+	}
+
+	/**
+	 * @return the number of failed SQL statements by SQLCODE
+	 */
+	public Map<Integer, Double> getSql_errors() {
+		return this.sql_errors;
+	}
+	
+	/**
+	 * @param transactions the number of executions by transaction to set
+	 */
+	public void setTransactions(Map<String, Double> transactions) {
+		this.transactions = new TreeMap<String, Double>(transactions);
+	}
+
+	/**
+	 * @return the number of executions by transaction
+	 */
+	public Map<String, Double> getTransactions() {
+		return this.transactions;
+	}
+	
+	/**
+	 * @return the number of all failed SQL statements
+	 */
+	public double getSql_error_count() {
+		double count = 0;
+		for (Double errors : this.sql_errors.values()) {
+			count += errors.doubleValue();
+		}
+		return count;
+	}
+	
+	/**
+	 * @return the executions of the workloads per second
+	 */
+	public double getExecution_rate() {
+		return getRate(this.executions);
+	}
+	
+	/**
+	 * @return the commits per second
+	 */
+	public double getCommit_rate() {
+		return getRate(this.commits);
+	}
+	
+	/**
+	 * @return the executed SQL statements per second
+	 */
+	public double getStatement_rate() {
+		return getRate(this.executed_statements);
+	}
+	
+	/**
+	 * @return the failed SQL statements per second
+	 */
+	public double getSql_error_rate() {
+		return getRate(getSql_error_count());
+	}
+	
+	/**
+	 * @param count number counted in the interval
+	 * @return the number per second of the interval
+	 */
+	private double getRate(double count) {
+		return this.interval > 0 ? count / this.interval : 0;
+	}
+	
+	/**
+	 * @param latencies the latency histograms by operation name to set
+	 */
+	public void setLatencies(Map<String, LatencyHistogram> latencies) {
+		this.latencies = new TreeMap<String, LatencyHistogram>(latencies);
+	}
+
+	/**
+	 * @return the latency histograms by operation name
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return this.latencies;
+	}
+	
 	/**
 	 * @return time stamp of the create time of the report
 	 */
@@ -160,7 +646,9 @@ public class Report implements Serializable {
 			Report report = (Report) o;
 			if(report.getConsumed_memory() == this.getConsumed_memory() && report.getNumber_of_db2Connection() == this.getNumber_of_db2Connection()
 				&&report.getNumber_of_sockets() == this.getNumber_of_sockets() && report.getNumber_of_statements() == report.getNumber_of_statements()
-				&& report.getNumber_of_threads() == this.getNumber_of_threads()){
+				&& report.getNumber_of_threads() == this.getNumber_of_threads()
+				&& report.getTarget_rate() == this.getTarget_rate() && report.getAchieved_rate() == this.getAchieved_rate()
+				&& report.getBacklog() == this.getBacklog()){
 				return true;
 			} else {
 				return false;
@@ -176,7 +664,67 @@ public class Report implements Serializable {
 		       "Number of DB2 Connections = " + this.numberFormat.format(getNumber_of_db2Connection()) + "; " +
 		       "Number of Statements = " + this.numberFormat.format(getNumber_of_statements()) + "; " +
 		       "Number of Sockets = " + this.numberFormat.format(getNumber_of_sockets()) + "; " +
-		       "Consumed Memory(MB) = " + this.numberFormat.format(getConsumed_memory()/1024/1024) + "; ";
+		       "Consumed Memory(MB) = " + this.numberFormat.format(getConsumed_memory()/1024/1024) + "; " +
+		       (getTarget_rate() > 0 ? 
+		    		   "Target Rate = " + this.numberFormat.format(getTarget_rate()) + "; " +
+		    		   "Achieved Rate = " + this.numberFormat.format(getAchieved_rate()) + "; " +
+		    		   "Backlog = " + this.numberFormat.format(getBacklog()) + "; " : "") +
+		       (getNumber_of_pooled_connections() > 0 ?
+		    		   "Pooled Connections = " + this.numberFormat.format(getNumber_of_pooled_connections()) + "; " +
+		    		   "Idle Connections = " + this.numberFormat.format(getNumber_of_idle_connections()) + "; " +
+		    		   "Pool Wait Time(ms) = " + this.numberFormat.format(getPool_wait_time()) + "; " +
+		    		   "Pool Timeouts = " + this.numberFormat.format(getPool_timeouts()) + "; " : "") +
+		       (getLog_queued() > 0 || getLog_dropped() > 0 ?
+		    		   "Queued Log Entries = " + this.numberFormat.format(getLog_queued()) + "; " +
+		    		   "Dropped Log Entries = " + this.numberFormat.format(getLog_dropped()) + "; " : "") +
+		       (getStmt_cache_hits() > 0 || getStmt_cache_misses() > 0 ?
+		    		   "Statement Cache Hits = " + this.numberFormat.format(getStmt_cache_hits()) + "; " +
+		    		   "Statement Cache Misses = " + this.numberFormat.format(getStmt_cache_misses()) + "; " +
+		    		   "Statement Cache Evictions = " + this.numberFormat.format(getStmt_cache_evictions()) + "; " : "") +
+		       (getInterval() > 0 ?
+		    		   "Executions = " + this.numberFormat.format(getExecutions()) + "(" + this.numberFormat.format(getExecution_rate()) + "/s); " +
+		    		   "Failed Executions = " + this.numberFormat.format(getFailed_executions()) + "; " +
+		    		   "Commits = " + this.numberFormat.format(getCommits()) + "(" + this.numberFormat.format(getCommit_rate()) + "/s); " +
+		    		   "Rollbacks = " + this.numberFormat.format(getRollbacks()) + "; " +
+		    		   "Statements = " + this.numberFormat.format(getExecuted_statements()) + "(" + this.numberFormat.format(getStatement_rate()) + "/s); " +
+		    		   "Rows Fetched = " + this.numberFormat.format(getRows_fetched()) + "; " +
+		    		   "Rows Affected = " + this.numberFormat.format(getRows_affected()) + "; " : "") +
+		       sqlErrorsToString() +
+		       transactionsToString() +
+		       latenciesToString();
+	}
+	
+	/**
+	 * @return the number of failed SQL statements by SQLCODE
+	 */
+	private String sqlErrorsToString() {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<Integer, Double> entry : this.sql_errors.entrySet()) {
+			builder.append("SQLCODE " + entry.getKey() + " = " + this.numberFormat.format(entry.getValue()) + "(" + this.numberFormat.format(getRate(entry.getValue().doubleValue())) + "/s); ");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * @return the number of executions by transaction
+	 */
+	private String transactionsToString() {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, Double> entry : this.transactions.entrySet()) {
+			builder.append("Transaction " + entry.getKey() + " = " + this.numberFormat.format(entry.getValue()) + "(" + this.numberFormat.format(getRate(entry.getValue().doubleValue())) + "/s); ");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * @return the percentiles of all latency histograms
+	 */
+	private String latenciesToString() {
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, LatencyHistogram> entry : this.latencies.entrySet()) {
+			builder.append("Latency " + entry.getKey() + "(ms): " + entry.getValue().toString() + "; ");
+		}
+		return builder.toString();
 	}
 	
 	@Override
@@ -194,10 +742,145 @@ public class Report implements Serializable {
 			this.setNumber_of_sockets(this.getNumber_of_sockets() + report.getNumber_of_sockets());
 			this.setNumber_of_statements(this.getNumber_of_statements() + report.getNumber_of_statements());
 			this.setNumber_of_threads(this.getNumber_of_threads() + report.getNumber_of_threads());
+			this.setTarget_rate(this.getTarget_rate() + report.getTarget_rate());
+			this.setAchieved_rate(this.getAchieved_rate() + report.getAchieved_rate());
+			this.setBacklog(this.getBacklog() + report.getBacklog());
+			this.setNumber_of_pooled_connections(this.getNumber_of_pooled_connections() + report.getNumber_of_pooled_connections());
+			this.setNumber_of_idle_connections(this.getNumber_of_idle_connections() + report.getNumber_of_idle_connections());
+			this.setPool_wait_time(this.getPool_wait_time() + report.getPool_wait_time());
+			this.setPool_timeouts(this.getPool_timeouts() + report.getPool_timeouts());
+			this.setLog_queued(this.getLog_queued() + report.getLog_queued());
+			this.setLog_dropped(this.getLog_dropped() + report.getLog_dropped());
+			this.setStmt_cache_hits(this.getStmt_cache_hits() + report.getStmt_cache_hits());
+			this.setStmt_cache_misses(this.getStmt_cache_misses() + report.getStmt_cache_misses());
+			this.setStmt_cache_evictions(this.getStmt_cache_evictions() + report.getStmt_cache_evictions());
+			this.setInterval(this.getInterval() + report.getInterval());
+			addCounters(report, 1);
+			
+			for (Map.Entry<String, LatencyHistogram> entry : report.getLatencies().entrySet()) {
+				LatencyHistogram histogram = this.latencies.get(entry.getKey());
+				if (histogram == null) {
+					histogram = new LatencyHistogram();
+					this.latencies.put(entry.getKey(), histogram);
+				}
+				histogram.add(entry.getValue());
+			}
 		}
 	}
 	
 	/**
+	 * Subtracts a report that was added before. The latency histograms can't be
+	 * subtracted and are left unchanged.
+	 * 
+	 * @param report the report to subtract
+	 */
+	public void subtract(Report report){
+		if(report != null) {
+			this.setConsumed_memory(this.getConsumed_memory() - report.getConsumed_memory());
+			this.setNumber_of_db2Connection(this.getNumber_of_db2Connection() - report.getNumber_of_db2Connection());
+			this.setNumber_of_sockets(this.getNumber_of_sockets() - report.getNumber_of_sockets());
+			this.setNumber_of_statements(this.getNumber_of_statements() - report.getNumber_of_statements());
+			this.setNumber_of_threads(this.getNumber_of_threads() - report.getNumber_of_threads());
+			this.setTarget_rate(this.getTarget_rate() - report.getTarget_rate());
+			this.setAchieved_rate(this.getAchieved_rate() - report.getAchieved_rate());
+			this.setBacklog(this.getBacklog() - report.getBacklog());
+			this.setNumber_of_pooled_connections(this.getNumber_of_pooled_connections() - report.getNumber_of_pooled_connections());
+			this.setNumber_of_idle_connections(this.getNumber_of_idle_connections() - report.getNumber_of_idle_connections());
+			this.setPool_wait_time(this.getPool_wait_time() - report.getPool_wait_time());
+			this.setPool_timeouts(this.getPool_timeouts() - report.getPool_timeouts());
+			this.setLog_queued(this.getLog_queued() - report.getLog_queued());
+			this.setLog_dropped(this.getLog_dropped() - report.getLog_dropped());
+			this.setStmt_cache_hits(this.getStmt_cache_hits() - report.getStmt_cache_hits());
+			this.setStmt_cache_misses(this.getStmt_cache_misses() - report.getStmt_cache_misses());
+			this.setStmt_cache_evictions(this.getStmt_cache_evictions() - report.getStmt_cache_evictions());
+			this.setInterval(this.getInterval() - report.getInterval());
+			addCounters(report, -1);
+		}
+	}
+	
+	/**
+	 * Adds the report of another request that ran in the same time. Unlike {@link #add(Report)},
+	 * the intervals are not summed up, as both requests counted at the same time. The counters
+	 * of the report are scaled to the interval of this report instead, so the rates of the sum
+	 * are the sum of the rates of the requests.
+	 * 
+	 * @param report the report of another request
+	 */
+	public void addConcurrent(Report report) {
+		if(report != null) {
+			if(this.getInterval() <= 0) {
+				this.setInterval(report.getInterval());
+			}
+			add(report.scaleTo(this.getInterval()));
+		}
+	}
+	
+	/**
+	 * Subtracts a report that was added with {@link #addConcurrent(Report)} before, while
+	 * the interval of this report is unchanged. The latency histograms can't be subtracted
+	 * and are left unchanged.
+	 * 
+	 * @param report the report to subtract
+	 */
+	public void subtractConcurrent(Report report) {
+		if(report != null) {
+			subtract(report.scaleTo(this.getInterval()));
+		}
+	}
+	
+	/**
+	 * @param interval the interval to scale to
+	 * @return a copy of the report without an interval, whose counters are scaled to the given interval
+	 */
+	private Report scaleTo(double interval) {
+		Report scaled = new Report();
+		scaled.add(this);
+		scaled.setInterval(0);
+		scaled.addCounters(this, this.getInterval() > 0 ? interval / this.getInterval() - 1 : -1);
+		return scaled;
+	}
+	
+	/**
+	 * Adds the counters of the interval of a report with a factor
+	 * 
+	 * @param report the report with the counters
+	 * @param factor the factor of the counters, negative to subtract them
+	 */
+	private void addCounters(Report report, double factor) {
+		this.setExecutions(this.getExecutions() + factor * report.getExecutions());
+		this.setFailed_executions(this.getFailed_executions() + factor * report.getFailed_executions());
+		this.setCommits(this.getCommits() + factor * report.getCommits());
+		this.setRollbacks(this.getRollbacks() + factor * report.getRollbacks());
+		this.setExecuted_statements(this.getExecuted_statements() + factor * report.getExecuted_statements());
+		this.setRows_fetched(this.getRows_fetched() + factor * report.getRows_fetched());
+		this.setRows_affected(this.getRows_affected() + factor * report.getRows_affected());
+		
+		for (Map.Entry<Integer, Double> entry : report.getSql_errors().entrySet()) {
+			Double errors = this.sql_errors.get(entry.getKey());
+			double sum = (errors == null ? 0 : errors.doubleValue()) + factor * entry.getValue().doubleValue();
+			if (sum > 0) {
+				this.sql_errors.put(entry.getKey(), Double.valueOf(sum));
+			} else {
+				this.sql_errors.remove(entry.getKey());
+			}
+		}
+		
+		for (Map.Entry<String, Double> entry : report.getTransactions().entrySet()) {
+			Double executions = this.transactions.get(entry.getKey());
+			double sum = (executions == null ? 0 : executions.doubleValue()) + factor * entry.getValue().doubleValue();
+			if (sum > 0) {
+				this.transactions.put(entry.getKey(), Double.valueOf(sum));
+			} else {
+				this.transactions.remove(entry.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Averages the reports. The counters of the intervals are not averaged but summed up
+	 * together with the lengths of the intervals, so the rates of the average are the rates
+	 * over all intervals.
+	 * 
 	 * @param reports
 	 * @return average of the reports
 	 */
@@ -212,6 +895,19 @@ public class Report implements Serializable {
 			average.setNumber_of_sockets(average.getNumber_of_sockets() / reports.size());
 			average.setNumber_of_statements(average.getNumber_of_statements() / reports.size());
 			average.setNumber_of_threads(average.getNumber_of_threads() / reports.size());
+			average.setTarget_rate(average.getTarget_rate() / reports.size());
+			average.setAchieved_rate(average.getAchieved_rate() / reports.size());
+			average.setBacklog(average.getBacklog() / reports.size());
+			average.setNumber_of_pooled_connections(average.getNumber_of_pooled_connections() / reports.size());
+			average.setNumber_of_idle_connections(average.getNumber_of_idle_connections() / reports.size());
+			average.setPool_wait_time(average.getPool_wait_time() / reports.size());
+			average.setPool_timeouts(average.getPool_timeouts() / reports.size());
+			average.setLog_queued(average.getLog_queued() / reports.size());
+			average.setLog_dropped(average.getLog_dropped() / reports.size());
+			average.setStmt_cache_hits(average.getStmt_cache_hits() / reports.size());
+			average.setStmt_cache_misses(average.getStmt_cache_misses() / reports.size());
+			average.setStmt_cache_evictions(average.getStmt_cache_evictions() / reports.size());
+			// the counters are summed up with the intervals, the latency histograms are merged over all reports
 		}
 		return average;
 	}
@@ -12,6 +12,7 @@ package com.ibm.dbwkl.request;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -69,6 +70,11 @@ public abstract class ASubRequest implements Runnable {
 	 */
 	private List<SubRequestFinishedEventListener> subRequestFinishedEventListeners; 
 	
+	/**
+	 * Released when the subrequest has finished
+	 */
+	private final CountDownLatch finished = new CountDownLatch(1);
+	
 	/**
 	 * This is the abstract method, that must be implemented be each receiver object. The
 	 * method acceptRequest of the class DB2WorkloadService will call this method, if a 
@@ -92,13 +98,39 @@ public abstract class ASubRequest implements Runnable {
 	 */
 	@Override
 	public void run() {
-		this.result = acceptRequest();
-		
-		for (SubRequestFinishedEventListener listener : this.subRequestFinishedEventListeners) {
-			listener.subRequestFinished(this);
+		try {
+			this.result = acceptRequest();
+		} finally {
+			// also release the waiting request if the subrequest ended with an exception
+			if (this.result == null) {
+				this.result = new STAFResult(STAFResult.JavaError, getName() + " ended unexpectedly");
+			}
+			this.finished.countDown();
+			
+			if (this.subRequestFinishedEventListeners != null) {
+				for (SubRequestFinishedEventListener listener : this.subRequestFinishedEventListeners) {
+					listener.subRequestFinished(this);
+				}
+			}
 		}
 	}
 	
+	/**
+	 * Waits until the subrequest has finished
+	 * 
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public void awaitFinished() throws InterruptedException {
+		this.finished.await();
+	}
+	
+	/**
+	 * @return true if the subrequest has finished
+	 */
+	public boolean isFinished() {
+		return this.finished.getCount() == 0;
+	}
+	
 	/**
 	 * Adds the given listener to the list of sub request finished event listeners
 	 * 
@@ -54,6 +54,16 @@ public class Options {
 	 */
 	public static final String GEN_LOG_LOGLEVEL = "LOGLEVEL";
 	
+	/**
+	 * Number of log entries buffered in the request JVM before they are sent to DB2WKL (0 = no buffering)
+	 */
+	public static final String GEN_LOG_LOGBUFFER = "LOGBUFFER";
+	
+	/**
+	 * What to do when the log buffer is full: BLOCK, DROPDEBUG or SAMPLE
+	 */
+	public static final String GEN_LOG_LOGPOLICY = "LOGPOLICY";
+	
 	/**
 	 * Output format for requests
 	 */
@@ -204,6 +214,27 @@ public class Options {
 	 */
 	public static final String REPORT_SYSTEM = "SYSTEM";
 	
+	/**
+	 * Export a report output file as CSV
+	 */
+	public static final String REPORT_EXPORT = "EXPORT";
+	
+	/**
+	 * Time step in seconds to downsample the exported reports to, 0 for every report
+	 */
+	public static final String REPORT_STEP = "STEP";
+	
+	/**
+	 * Path of the exported CSV file, default is the report output file with the suffix .csv
+	 */
+	public static final String REPORT_CSVFILE = "CSVFILE";
+	
+	/**
+	 * Port of the HTTP endpoint that exposes the reports in the Prometheus format, OFF to stop it.
+	 * The endpoint needs the reports of the requests, so it can only be started while REPORT is ON.
+	 */
+	public static final String REPORT_METRICS = "METRICS";
+	
 	/* *******************************************************************
 	 * 
 	 * SOCKET options for socket Connections as used by the LiveLogger
@@ -318,6 +349,42 @@ public class Options {
 	 */
 	public static final String THREADED_INSTANCES = "INSTANCES";
 	
+	/**
+	 * Option for setting the target rate (executions per second over all instances) 
+	 * for executing a threaded request in the rate controlled (open-loop) mode
+	 */
+	public static final String THREADED_RATE = "RATE";
+	
+	/**
+	 * Option for setting the profile of the arrival times (CONSTANT or POISSON)
+	 * in the rate controlled mode
+	 */
+	public static final String THREADED_RATE_PROFILE = "RATEPROFILE";
+	
+	/**
+	 * Option for setting the time in seconds to ramp up linearly to the target 
+	 * rate in the rate controlled mode
+	 */
+	public static final String THREADED_RAMPUP = "RAMPUP";
+	
+	/**
+	 * Option for setting the number of carrier threads that execute the INSTANCES. 
+	 * Without it, each instance runs in its own threads. With DURATION or RATE it must
+	 * not be less than the INSTANCES, as an instance keeps its carrier until it ends.
+	 */
+	public static final String THREADED_CARRIERS = "CARRIERS";
+	
+	/**
+	 * Option for setting the seed of the random selections, so that a run can be repeated
+	 */
+	public static final String THREADED_SEED = "SEED";
+	
+	/**
+	 * Option for recording the workload phases, statements, connection requests and JVM samples
+	 * of the request into a trace file in the logging directory
+	 */
+	public static final String THREADED_TRACE = "TRACE";
+	
 	/* *******************************************************************
 	 * 
 	 * Workload options
@@ -394,12 +461,22 @@ public class Options {
 	 * Own Path to a replay directory
 	 */
 	public static final String SP_REPLAY = "REPLAY";
+
+	/**
+	 * Format of the replay file: XML (default, can be executed again) or TEXT (one line per call)
+	 */
+	public static final String SP_REPLAYFORMAT = "REPLAYFORMAT";
 	
 	/**
 	 * Option for overwriting SP params that are written within an task file
 	 */
 	public static final String SP_PARAMS = "PARAMS";
 	
+	/**
+	 * Number of randomly selected stored procedure calls per execution. Default is 10
+	 */
+	public static final String SP_CALLS = "CALLS";
+	
 	/* *******************************************************************
 	 * 
 	 * MISC options
@@ -459,6 +536,26 @@ public class Options {
 	 */
 	public static final String SQL_SLEEP = "SLEEP";
 	
+	/**
+	 * The number of consecutive data changing statements that are sent to the database as one batch
+	 */
+	public static final String SQL_BATCHSIZE = "BATCHSIZE";
+	
+	/**
+	 * The number of statements after which the changes are committed. Default is to commit once at the end
+	 */
+	public static final String SQL_COMMITEVERY = "COMMITEVERY";
+	
+	/**
+	 * The way the result sets are consumed (TABLE, DISCARD, COUNT, CHECKSUM or SAMPLE). Default is TABLE
+	 */
+	public static final String SQL_FETCHMODE = "FETCHMODE";
+	
+	/**
+	 * The number of rows that are logged with the fetch mode SAMPLE. Default is 10
+	 */
+	public static final String SQL_SAMPLESIZE = "SAMPLESIZE";
+	
 	/* *******************************************************************
 	 * 
 	 * Database URL options
@@ -490,6 +587,24 @@ public class Options {
 	 */
 	public static final String DB_POOLING = "POOLING";
 	
+	/**
+	 * Use the built-in connection pool of the request with the given settings 
+	 * (MIN=n;MAX=n;LEASETIMEOUT=sec;IDLETIMEOUT=sec;VALIDATE=TRUE|FALSE)
+	 */
+	public static final String DB_POOL = "POOL";
+	
+	/**
+	 * Log connections that are not closed after the given number of seconds 
+	 * together with the code that opened them
+	 */
+	public static final String DB_LEAKDETECTION = "LEAKDETECTION";
+	
+	/**
+	 * Number of prepared and callable statements that are cached per connection, 
+	 * 0 turns the statement cache off
+	 */
+	public static final String DB_STMTCACHE = "STMTCACHE";
+	
 	/**
 	 * URLs for at least one connection
 	 */
@@ -12,6 +12,9 @@ package com.ibm.dbwkl.rmi;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Vector;
+
+import com.ibm.dbwkl.logging.LoggerEntry;
 
 /**
  *
@@ -35,4 +38,12 @@ public interface LoggerRemoteInterface extends Remote{
 	 */
 	void Log(String message, String requestName, String level, String classe, String method, int lineNumber, String thread, String threadGroup) throws RemoteException;
 
+	/**
+	 * Logs a batch of entries that were buffered in the request JVM
+	 * 
+	 * @param entries the entries in the order they were logged
+	 * @throws RemoteException
+	 */
+	void LogBatch(Vector<LoggerEntry> entries) throws RemoteException;
+
 }
@@ -38,6 +38,18 @@ public interface ReporterRemoteInterface extends Remote {
 	 */
 	void lastReport(Long id, Vector<Report> reports) throws RemoteException;
 
+	/**
+	 * Receives the reports that a request created since its last push. The requests push
+	 * their reports to the Reporter of the originating machine and, for incoming requests,
+	 * also to the Reporter of the machine they run on.
+	 * 
+	 * @param id the request id
+	 * @param host the originating host of the request
+	 * @param reports the reports in the order they were created
+	 * @throws RemoteException
+	 */
+	void pushReports(Long id, String host, Vector<Report> reports) throws RemoteException;
+
 	/**
 	 * @return out file
 	 * @throws RemoteException 
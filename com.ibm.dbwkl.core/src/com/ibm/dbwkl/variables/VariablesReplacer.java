@@ -10,8 +10,7 @@
  *******************************************************************************/
 package com.ibm.dbwkl.variables;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.dbwkl.helper.RandomStringGenerator;
 import com.ibm.staf.STAFException;
@@ -22,10 +21,38 @@ import com.ibm.staf.STAFResult;
  * This class is used to replace system properties or
  * STAF properties in a given string
  * 
+ * <p>The strings are parsed once into a {@link VariablesTemplate}, which is kept for
+ * strings that are replaced again. The values of the variables are kept for
+ * {@link #VALUE_TTL} milliseconds, so that STAF is not asked for every string.</p>
  *
  */
 public class VariablesReplacer {
 
+	/**
+	 * Time in milliseconds for which a resolved value is used before it is resolved again
+	 */
+	public static final long VALUE_TTL = 10000;
+	
+	/**
+	 * Maximum number of templates that are kept
+	 */
+	private static final int MAX_TEMPLATES = 1000;
+	
+	/**
+	 * The parsed templates by their string
+	 */
+	private static final ConcurrentHashMap<String, VariablesTemplate> templates = new ConcurrentHashMap<String, VariablesTemplate>();
+	
+	/**
+	 * The resolved values by their source and name
+	 */
+	private static final ConcurrentHashMap<String, CachedValue> values = new ConcurrentHashMap<String, CachedValue>();
+	
+	/**
+	 * Handle that is used to get the STAF variables, created on first use
+	 */
+	private static STAFHandle stafHandle;
+
 	/**
 	 * Replaces variables in the given string with system properties
 	 * and STAF properties
@@ -35,57 +62,121 @@ public class VariablesReplacer {
 	 * @throws VariablesReplacerException thrown when the replacement failed du to some reason
 	 */
 	public String replaceVars(String input) throws VariablesReplacerException {
-		String output = input;
 		
-		Pattern variablePattern = Pattern.compile("\\{(sys|env|staf)\\:([^{}]*)\\}");
-		Matcher matcher = variablePattern.matcher(output);
+		// most strings don't contain any variable
+		if (input.indexOf('{') < 0) {
+			return input;
+		}
 		
-		while (matcher.find()) {
-					
-			// check for the "{<src>:<var>}" eyecatcher using regex
-			// get the source for the variable
-			// sys  - Java System Property (System.getProperty(...))
-			// env  - OS System Environment (System.getenv())
-			// staf - STAF variable (IBM/DB2WKL/MYVAR)
-			String source = matcher.group(1);
-			
-			// get the variable name
-			String variable = matcher.group(2);
-			
-			// depending on the source, get the value
-			String value = "";
-			if (source.equalsIgnoreCase("sys")) {
-				if (System.getProperty(variable) != null) {
-					value = System.getProperty(variable);
-				} else {
-					throw new VariablesReplacerException("The variable " + variable + " is not defined as system property");
-				}
-			} else if (source.equalsIgnoreCase("env")) {
-				if (System.getenv(variable) != null) {
-					value = System.getenv(variable);
-				} else {
-					throw new VariablesReplacerException("The variable " + variable + " is not defined in the system evnironment");
-				}
-			} else if (source.equalsIgnoreCase("staf")) {
-				try {
-					STAFHandle stafHandle = new STAFHandle("db2wkl_sql_" + RandomStringGenerator.get(3));
-					STAFResult result = stafHandle.submit2("local", "VAR", "GET SYSTEM VAR " + variable);
-					if (result.rc == STAFResult.Ok) {
-						value = result.result;
-					} else {
-						throw new VariablesReplacerException("The variable " + variable + " is not defined in STAF. Only system variables are supported.");
-					}
-				} catch (STAFException e) {
-					throw new VariablesReplacerException("Calling STAF LOCAL VAR GET VAR ... failed");
-				}
-			} else {
-				throw new VariablesReplacerException("Unknown source " + (matcher == null ? "null" : matcher.group(0)) + " in " + input);
+		VariablesTemplate template = templates.get(input);
+		if (template == null) {
+			template = new VariablesTemplate(input);
+			if (!template.hasVariables()) {
+				return input;
 			}
+			if (templates.size() < MAX_TEMPLATES) {
+				templates.putIfAbsent(input, template);
+			}
+		}
+		
+		return template.render(this);
+	}
+	
+	/**
+	 * Returns the value of a variable, which is taken from the cache if it was resolved
+	 * within the last {@link #VALUE_TTL} milliseconds
+	 * 
+	 * @param source the source of the variable: sys, env or staf
+	 * @param variable the name of the variable
+	 * @return the value of the variable
+	 * @throws VariablesReplacerException if the variable is not defined
+	 */
+	String resolve(String source, String variable) throws VariablesReplacerException {
+		String key = source + ":" + variable;
+		long now = System.currentTimeMillis();
 		
-			output = matcher.replaceFirst(value);
+		CachedValue cached = values.get(key);
+		if (cached != null && cached.expires > now) {
+			return cached.value;
 		}
 		
-		return output;
+		String value = resolveValue(source, variable);
+		values.put(key, new CachedValue(value, now + VALUE_TTL));
+		return value;
+	}
+	
+	/**
+	 * Gets the current value of a variable from its source
+	 * 
+	 * @param source the source of the variable: sys, env or staf
+	 * @param variable the name of the variable
+	 * @return the value of the variable
+	 * @throws VariablesReplacerException if the variable is not defined
+	 */
+	private static String resolveValue(String source, String variable) throws VariablesReplacerException {
+		
+		// sys  - Java System Property (System.getProperty(...))
+		// env  - OS System Environment (System.getenv())
+		// staf - STAF variable (IBM/DB2WKL/MYVAR)
+		if (source.equals("sys")) {
+			String value = System.getProperty(variable);
+			if (value == null) {
+				throw new VariablesReplacerException("The variable " + variable + " is not defined as system property");
+			}
+			return value;
+		} else if (source.equals("env")) {
+			String value = System.getenv(variable);
+			if (value == null) {
+				throw new VariablesReplacerException("The variable " + variable + " is not defined in the system evnironment");
+			}
+			return value;
+		} else if (source.equals("staf")) {
+			try {
+				STAFResult result = getSTAFHandle().submit2("local", "VAR", "GET SYSTEM VAR " + variable);
+				if (result.rc == STAFResult.Ok) {
+					return result.result;
+				}
+				throw new VariablesReplacerException("The variable " + variable + " is not defined in STAF. Only system variables are supported.");
+			} catch (STAFException e) {
+				throw new VariablesReplacerException("Calling STAF LOCAL VAR GET VAR ... failed");
+			}
+		}
+		throw new VariablesReplacerException("Unknown source " + source + " for variable " + variable);
 	}
 	
+	/**
+	 * @return the handle for the STAF variables
+	 * @throws STAFException if the handle can't be registered
+	 */
+	private static synchronized STAFHandle getSTAFHandle() throws STAFException {
+		if (stafHandle == null) {
+			stafHandle = new STAFHandle("db2wkl_sql_" + RandomStringGenerator.get(3));
+		}
+		return stafHandle;
+	}
+	
+	/**
+	 * A resolved value and the time until it is valid
+	 */
+	private static class CachedValue {
+		
+		/**
+		 * The value
+		 */
+		final String value;
+		
+		/**
+		 * Time in milliseconds until the value is valid
+		 */
+		final long expires;
+		
+		/**
+		 * @param value the value
+		 * @param expires time in milliseconds until the value is valid
+		 */
+		CachedValue(String value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
 }
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.variables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A string with variables like <code>{sys:user.name}</code>, <code>{env:HOME}</code> or
+ * <code>{staf:MYVAR}</code> that is parsed once into its literal parts and variables. The
+ * template can then be rendered any number of times without parsing the string again.</p>
+ */
+public class VariablesTemplate {
+
+	/**
+	 * The sources of the variables
+	 */
+	private static final String[] SOURCES = { "sys", "env", "staf" };
+
+	/**
+	 * The literal parts of the string, one more than there are variables
+	 */
+	private final String[] literals;
+
+	/**
+	 * The sources of the variables
+	 */
+	private final String[] sources;
+
+	/**
+	 * The names of the variables
+	 */
+	private final String[] names;
+
+	/**
+	 * The length of all literal parts
+	 */
+	private final int literalLength;
+
+	/**
+	 * Parses the given string
+	 *
+	 * @param input the string with the variables
+	 */
+	public VariablesTemplate(String input) {
+		List<String> literalList = new ArrayList<String>();
+		List<String> sourceList = new ArrayList<String>();
+		List<String> nameList = new ArrayList<String>();
+		int length = 0;
+
+		int literalStart = 0;
+		int open = input.indexOf('{');
+		while (open >= 0) {
+			int next = open + 1;
+			String source = getSource(input, next);
+			if (source != null) {
+				int nameStart = next + source.length() + 1;
+				int close = nameStart;
+				while (close < input.length() && input.charAt(close) != '}' && input.charAt(close) != '{') {
+					close++;
+				}
+
+				if (close < input.length() && input.charAt(close) == '}') {
+					String literal = input.substring(literalStart, open);
+					literalList.add(literal);
+					length += literal.length();
+					sourceList.add(source);
+					nameList.add(input.substring(nameStart, close));
+					literalStart = close + 1;
+					next = literalStart;
+				}
+			}
+			open = input.indexOf('{', next);
+		}
+
+		String literal = input.substring(literalStart);
+		literalList.add(literal);
+		length += literal.length();
+
+		this.literals = literalList.toArray(new String[literalList.size()]);
+		this.sources = sourceList.toArray(new String[sourceList.size()]);
+		this.names = nameList.toArray(new String[nameList.size()]);
+		this.literalLength = length;
+	}
+
+	/**
+	 * @return true if the string contains variables
+	 */
+	public boolean hasVariables() {
+		return this.names.length > 0;
+	}
+
+	/**
+	 * Renders the string with the values of the variables
+	 *
+	 * @param resolver resolves the values of the variables
+	 * @return the string with the replaced variables
+	 * @throws VariablesReplacerException if a variable can't be resolved
+	 */
+	public String render(VariablesReplacer resolver) throws VariablesReplacerException {
+		if (this.names.length == 0) {
+			return this.literals[0];
+		}
+
+		String[] values = new String[this.names.length];
+		int length = this.literalLength;
+		for (int i = 0; i < this.names.length; i++) {
+			values[i] = resolver.resolve(this.sources[i], this.names[i]);
+			length += values[i].length();
+		}
+
+		StringBuilder output = new StringBuilder(length);
+		for (int i = 0; i < this.names.length; i++) {
+			output.append(this.literals[i]);
+			output.append(values[i]);
+		}
+		output.append(this.literals[this.names.length]);
+		return output.toString();
+	}
+
+	/**
+	 * @param input the string
+	 * @param offset the position after the opening brace
+	 * @return the source of the variable that starts at the position or null if there is none
+	 */
+	private static String getSource(String input, int offset) {
+		for (String source : SOURCES) {
+			if (input.startsWith(source, offset) && input.startsWith(":", offset + source.length())) {
+				return source;
+			}
+		}
+		return null;
+	}
+}
@@ -14,8 +14,6 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 
-import com.ibm.dbwkl.helper.ThreadGroupLocal;
-
 /**
  * It is used to define for every thread his own url.
  * For example Workload, SQL and SPM.
@@ -24,9 +22,11 @@ import com.ibm.dbwkl.helper.ThreadGroupLocal;
 public abstract class ADataSourceConsumer {
  
 	/**
-	 * URL to the database on which the workload should run.
+	 * URL to the database on which the workload should run. It is set by the thread
+	 * that runs the workload and inherited by the threads the workload starts, so it
+	 * doesn't depend on the thread group and works for pooled threads as well.
 	 */
-	private static ThreadGroupLocal<String> url = new ThreadGroupLocal<String>();
+	private static final InheritableThreadLocal<String> url = new InheritableThreadLocal<String>();
 	
 	/**
 	 * List of statements in the workload
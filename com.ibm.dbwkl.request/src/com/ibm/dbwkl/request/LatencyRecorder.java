@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.dbwkl.report.LatencyHistogram;
+
+/**
+ * Records the latencies of one kind of operation (like the execution of a workload,
+ * a SQL statement or a stored procedure call) within the request.
+ *
+ * Every thread records into its own histogram, which is only written by that thread,
+ * so recording does not need any lock. The reporter merges the histograms of all
+ * threads into one {@link LatencyHistogram} per operation and report interval. The
+ * histograms of finished threads are merged once more and then dropped.
+ */
+public class LatencyRecorder {
+
+	/**
+	 * Operation name for the execute phase of a workload
+	 */
+	public static final String EXECUTE = "EXECUTE";
+
+	/**
+	 * Operation name for a single SQL statement
+	 */
+	public static final String STATEMENT = "STATEMENT";
+
+	/**
+	 * Operation name for a batch of SQL statements
+	 */
+	public static final String BATCH = "BATCH";
+
+	/**
+	 * Prefix of the operation name for a stored procedure call
+	 */
+	public static final String CALL = "CALL ";
+
+	/**
+	 * All recorders of the request by their operation name
+	 */
+	private static final ConcurrentHashMap<String, LatencyRecorder> recorders = new ConcurrentHashMap<String, LatencyRecorder>();
+
+	/**
+	 * The histograms of all threads that have recorded for this operation
+	 */
+	private final Queue<ThreadHistogram> threadHistograms = new ConcurrentLinkedQueue<ThreadHistogram>();
+
+	/**
+	 * The values of finished threads that were not reported yet
+	 */
+	private LatencyHistogram finishedThreads = new LatencyHistogram();
+
+	/**
+	 * The histogram of the current thread
+	 */
+	private final ThreadLocal<ThreadHistogram> threadHistogram = new ThreadLocal<ThreadHistogram>() {
+		@Override
+		protected ThreadHistogram initialValue() {
+			// the histograms of finished threads are also dropped when the reporter is off
+			removeFinishedThreads();
+			ThreadHistogram histogram = new ThreadHistogram(Thread.currentThread());
+			LatencyRecorder.this.threadHistograms.add(histogram);
+			return histogram;
+		}
+	};
+
+	/**
+	 * Returns the recorder for the given operation and creates it if required
+	 *
+	 * @param operation the name of the operation
+	 * @return the recorder
+	 */
+	public static LatencyRecorder getRecorder(String operation) {
+		LatencyRecorder recorder = recorders.get(operation);
+		if (recorder == null) {
+			recorder = new LatencyRecorder();
+			LatencyRecorder existing = recorders.putIfAbsent(operation, recorder);
+			if (existing != null) {
+				recorder = existing;
+			}
+		}
+		return recorder;
+	}
+
+	/**
+	 * Records the latency of an operation for the current thread
+	 *
+	 * @param operation the name of the operation
+	 * @param nanos the latency in nanoseconds
+	 */
+	public static void record(String operation, long nanos) {
+		getRecorder(operation).recordValue(nanos);
+	}
+
+	/**
+	 * Records a latency for the current thread
+	 *
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void recordValue(long nanos) {
+		this.threadHistogram.get().record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	/**
+	 * Merges the values of all threads that were recorded since the last call into
+	 * one histogram. This method must only be called by the reporter.
+	 *
+	 * @return the histogram of the interval
+	 */
+	public synchronized LatencyHistogram getIntervalHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (Iterator<ThreadHistogram> it = this.threadHistograms.iterator(); it.hasNext(); ) {
+			ThreadHistogram threadHistogram = it.next();
+			// a finished thread does not record anymore, so its histogram is complete after this merge
+			boolean alive = threadHistogram.owner.isAlive();
+			threadHistogram.addIntervalTo(histogram);
+			if (!alive) {
+				it.remove();
+			}
+		}
+		histogram.add(this.finishedThreads);
+		this.finishedThreads = new LatencyHistogram();
+		return histogram;
+	}
+
+	/**
+	 * Merges the values of finished threads that were not reported yet and drops their histograms
+	 */
+	synchronized void removeFinishedThreads() {
+		for (Iterator<ThreadHistogram> it = this.threadHistograms.iterator(); it.hasNext(); ) {
+			ThreadHistogram threadHistogram = it.next();
+			if (!threadHistogram.owner.isAlive()) {
+				threadHistogram.addIntervalTo(this.finishedThreads);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the interval histograms of all operations that were recorded since the
+	 * last call. This method must only be called by the reporter.
+	 *
+	 * @return the histograms by operation name
+	 */
+	public static Map<String, LatencyHistogram> getIntervalHistograms() {
+		Map<String, LatencyHistogram> histograms = new TreeMap<String, LatencyHistogram>();
+		for (Map.Entry<String, LatencyRecorder> entry : recorders.entrySet()) {
+			LatencyHistogram histogram = entry.getValue().getIntervalHistogram();
+			if (histogram.getTotalCount() > 0) {
+				histograms.put(entry.getKey(), histogram);
+			}
+		}
+		return histograms;
+	}
+
+	/**
+	 * The histogram of a single thread. The counts are only written by the owning
+	 * thread and read by the reporter, which remembers what it has already reported.
+	 */
+	private static class ThreadHistogram {
+
+		/**
+		 * The thread that records into the histogram
+		 */
+		final Thread owner;
+
+		/**
+		 * The counts of the buckets
+		 */
+		private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.LENGTH);
+
+		/**
+		 * Sum of the values
+		 */
+		private final AtomicLong sum = new AtomicLong();
+
+		/**
+		 * Highest value since the last interval
+		 */
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * The counts that have already been reported (only used by the reporter)
+		 */
+		private final long[] reportedCounts = new long[LatencyHistogram.LENGTH];
+
+		/**
+		 * The sum that has already been reported (only used by the reporter)
+		 */
+		private long reportedSum = 0;
+
+		/**
+		 * @param owner the thread that records into the histogram
+		 */
+		ThreadHistogram(Thread owner) {
+			this.owner = owner;
+		}
+
+		/**
+		 * Records a value, must only be called by the owning thread
+		 *
+		 * @param value value in microseconds
+		 */
+		void record(long value) {
+			int index = LatencyHistogram.getIndex(value);
+			this.counts.lazySet(index, this.counts.get(index) + 1);
+			this.sum.lazySet(this.sum.get() + value);
+
+			long current;
+			while ((current = this.max.get()) < value) {
+				if (this.max.compareAndSet(current, value)) {
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Adds the values that were recorded since the last call to the histogram
+		 *
+		 * @param histogram the histogram to add to
+		 */
+		void addIntervalTo(LatencyHistogram histogram) {
+			for (int i = 0; i < LatencyHistogram.LENGTH; i++) {
+				long count = this.counts.get(i);
+				if (count != this.reportedCounts[i]) {
+					histogram.addCount(i, count - this.reportedCounts[i]);
+					this.reportedCounts[i] = count;
+				}
+			}
+
+			long currentSum = this.sum.get();
+			histogram.setTotalSum(histogram.getTotalSum() + currentSum - this.reportedSum);
+			this.reportedSum = currentSum;
+
+			histogram.setMaxValue(Math.max(histogram.getMaxValue(), this.max.getAndSet(0)));
+		}
+	}
+}
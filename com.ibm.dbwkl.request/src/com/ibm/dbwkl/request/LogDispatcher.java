@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request;
+
+import java.rmi.RemoteException;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.logging.LoggerEntry;
+import com.ibm.dbwkl.rmi.LoggerRemoteInterface;
+
+/**
+ * <p>Sends the log entries of the request asynchronously to the DB2WKL JVM. The
+ * logging threads only put the entries into a bounded buffer. A background thread
+ * drains the buffer and sends the entries in batches, either when a batch is full
+ * or when the flush interval is over.</p>
+ *
+ * <p>What happens when the buffer is full is defined by the {@link LogPolicy}.</p>
+ */
+public class LogDispatcher implements Runnable {
+
+	/**
+	 * Default number of entries in the buffer
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/**
+	 * Maximum number of entries sent in one batch
+	 */
+	private static final int BATCH_SIZE = 200;
+
+	/**
+	 * Maximum time in milliseconds an entry stays in the buffer
+	 */
+	private static final long FLUSH_INTERVAL = 200;
+
+	/**
+	 * Only every n-th debug/info entry is kept by the SAMPLE policy
+	 */
+	private static final int SAMPLE_RATE = 10;
+
+	/**
+	 * Maximum time in milliseconds to wait for the buffer to be drained on close
+	 */
+	private static final long CLOSE_TIMEOUT = 10000;
+
+	/**
+	 * The buffer
+	 */
+	private final ArrayBlockingQueue<LoggerEntry> buffer;
+
+	/**
+	 * The logger stub to send the entries to
+	 */
+	private final LoggerRemoteInterface logStub;
+
+	/**
+	 * The policy for a full buffer
+	 */
+	private final LogPolicy policy;
+
+	/**
+	 * The thread that drains the buffer
+	 */
+	private final Thread drainer;
+
+	/**
+	 * Number of dropped entries
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Number of entries that were considered for sampling
+	 */
+	private final AtomicLong sampled = new AtomicLong();
+
+	/**
+	 * The dispatcher was closed
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * @param logStub the logger stub to send the entries to
+	 * @param capacity number of entries in the buffer
+	 * @param policy the policy for a full buffer
+	 */
+	public LogDispatcher(LoggerRemoteInterface logStub, int capacity, LogPolicy policy) {
+		this.logStub = logStub;
+		this.buffer = new ArrayBlockingQueue<LoggerEntry>(capacity);
+		this.policy = policy;
+
+		this.drainer = new Thread(this, "LogDispatcher");
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+	}
+
+	/**
+	 * Puts an entry into the buffer
+	 *
+	 * @param entry the entry
+	 * @param level the level of the entry
+	 * @return false if the dispatcher is closed and the entry has to be sent directly
+	 */
+	public boolean dispatch(LoggerEntry entry, LogLevel level) {
+		if (this.closed) {
+			return false;
+		}
+
+		boolean lowLevel = level == LogLevel.Debug || level == LogLevel.Info;
+
+		switch (this.policy) {
+		case DROPDEBUG:
+			if (!this.buffer.offer(entry)) {
+				if (level == LogLevel.Debug) {
+					this.dropped.incrementAndGet();
+				} else {
+					put(entry);
+				}
+			}
+			break;
+
+		case SAMPLE:
+			if (lowLevel && this.buffer.remainingCapacity() < this.buffer.size()
+					&& this.sampled.incrementAndGet() % SAMPLE_RATE != 0) {
+				this.dropped.incrementAndGet();
+			} else if (!this.buffer.offer(entry)) {
+				if (lowLevel) {
+					this.dropped.incrementAndGet();
+				} else {
+					put(entry);
+				}
+			}
+			break;
+
+		default:
+			put(entry);
+			break;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Puts an entry into the buffer and waits until there is room for it. An interrupt does
+	 * not stop the wait, as the threads of a stopped request are interrupted and their last
+	 * entries are often the errors. The interrupt is set again afterwards.
+	 *
+	 * @param entry the entry
+	 */
+	private void put(LoggerEntry entry) {
+		if (this.buffer.offer(entry)) {
+			return;
+		}
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.buffer.put(entry);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		Vector<LoggerEntry> batch = new Vector<LoggerEntry>(BATCH_SIZE);
+
+		while (!this.closed || !this.buffer.isEmpty()) {
+			try {
+				// wait for the first entry, then collect until the batch is full or the interval is over
+				LoggerEntry entry = this.buffer.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+				if (entry == null) {
+					continue;
+				}
+				batch.add(entry);
+
+				long flushTime = System.currentTimeMillis() + FLUSH_INTERVAL;
+				while (batch.size() < BATCH_SIZE) {
+					this.buffer.drainTo(batch, BATCH_SIZE - batch.size());
+					long wait = flushTime - System.currentTimeMillis();
+					if (batch.size() >= BATCH_SIZE || wait <= 0 || this.closed) {
+						break;
+					}
+					entry = this.buffer.poll(wait, TimeUnit.MILLISECONDS);
+					if (entry == null) {
+						break;
+					}
+					batch.add(entry);
+				}
+			} catch (InterruptedException e) {
+				// send what we have
+			}
+
+			send(batch);
+		}
+	}
+
+	/**
+	 * Sends a batch to the DB2WKL JVM and clears it
+	 *
+	 * @param batch the batch
+	 */
+	private void send(Vector<LoggerEntry> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		long traceStart = Tracer.begin();
+		try {
+			this.logStub.LogBatch(batch);
+			Tracer.end(Tracer.LOG, "LogBatch", traceStart);
+		} catch (RemoteException e) {
+			e.printStackTrace(System.err);
+			// the DB2WKL JVM is not reachable anymore, so there is no reason to continue
+			if (!this.closed) {
+				System.exit(1);
+			}
+		}
+		batch.clear();
+	}
+
+	/**
+	 * Sends all buffered entries and stops the dispatcher. Entries logged afterwards
+	 * have to be sent directly.
+	 */
+	public void close() {
+		this.closed = true;
+		try {
+			this.drainer.join(CLOSE_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the number of entries in the buffer
+	 */
+	public int getQueued() {
+		return this.buffer.size();
+	}
+
+	/**
+	 * @return the number of dropped entries
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+}
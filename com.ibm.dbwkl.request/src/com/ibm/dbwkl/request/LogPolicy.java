@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request;
+
+/**
+ * <p>Defines what the {@link LogDispatcher} does when log entries are created faster
+ * than they can be sent to the DB2WKL JVM and the log buffer fills up.</p>
+ */
+public enum LogPolicy {
+
+	/**
+	 * The logging thread waits until there is space in the buffer. No entry is lost.
+	 */
+	BLOCK,
+
+	/**
+	 * Debug entries are dropped when the buffer is full, all other entries wait
+	 */
+	DROPDEBUG,
+
+	/**
+	 * Only every n-th debug and info entry is kept when the buffer is more than half
+	 * full and they are dropped when the buffer is full. Warnings and errors wait.
+	 */
+	SAMPLE;
+
+	/**
+	 * Returns the policy for the given name ignoring the case
+	 *
+	 * @param name the name of the policy
+	 * @return the policy or null if there is no policy with that name
+	 */
+	public static LogPolicy getPolicy(String name) {
+		for (LogPolicy policy : values()) {
+			if (policy.name().equalsIgnoreCase(name.trim())) {
+				return policy;
+			}
+		}
+		return null;
+	}
+}
@@ -16,7 +16,9 @@ import java.rmi.RemoteException;
 import java.sql.SQLException;
 
 import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.logging.LoggerEntry;
 import com.ibm.dbwkl.logging.helper.SQLErrorCodeToMessageConverter;
+import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.rmi.LoggerRemoteInterface;
 
 /**
@@ -57,6 +59,11 @@ public class Logger {
 	 */
 	private static LoggerRemoteInterface logStub;
 	
+	/**
+	 * buffers the entries and sends them in batches, null if the entries are sent directly
+	 */
+	private static volatile LogDispatcher dispatcher;
+	
 	/**
 	 * @param host
 	 * @param port
@@ -68,6 +75,78 @@ public class Logger {
 		Logger.logStub = (LoggerRemoteInterface) RequestPerformer.getStub(host, port, LoggerRemoteInterface.BIND_NAME);
 	}
 	
+	/**
+	 * Starts the buffering of the log entries according to the options of the request.
+	 * Must be called after the request is initialized.
+	 */
+	public static void initBuffer() {
+		int capacity = LogDispatcher.DEFAULT_CAPACITY;
+		if(Request.hasOption(Options.GEN_LOG_LOGBUFFER)) {
+			try {
+				capacity = Integer.parseInt(Request.getOption(Options.GEN_LOG_LOGBUFFER).trim());
+			} catch (NumberFormatException e) {
+				throw new LoggedRuntimeException("The value for " + Options.GEN_LOG_LOGBUFFER + " is not a valid number: " + Request.getOption(Options.GEN_LOG_LOGBUFFER));
+			}
+		}
+		
+		LogPolicy policy = LogPolicy.BLOCK;
+		if(Request.hasOption(Options.GEN_LOG_LOGPOLICY)) {
+			policy = LogPolicy.getPolicy(Request.getOption(Options.GEN_LOG_LOGPOLICY));
+			if(policy == null)
+				throw new LoggedRuntimeException("The value for " + Options.GEN_LOG_LOGPOLICY + " is not valid: " + Request.getOption(Options.GEN_LOG_LOGPOLICY));
+		}
+		
+		if(capacity <= 0 || logStub == null)
+			return;
+		
+		dispatcher = new LogDispatcher(logStub, capacity, policy);
+		
+		// make sure that the buffered entries are sent even if the JVM exits unexpectedly
+		Runtime.getRuntime().addShutdownHook(new Thread("LogDispatcherShutdown") {
+			@Override
+			public void run() {
+				Logger.flush();
+			}
+		});
+	}
+	
+	/**
+	 * Sends all buffered log entries and stops the buffering. Entries logged 
+	 * afterwards are sent directly.
+	 */
+	public static void flush() {
+		LogDispatcher logDispatcher = dispatcher;
+		if(logDispatcher != null)
+			logDispatcher.close();
+	}
+	
+	/**
+	 * @return the number of log entries that are waiting to be sent
+	 */
+	public static int getQueuedEntries() {
+		LogDispatcher logDispatcher = dispatcher;
+		return logDispatcher == null ? 0 : logDispatcher.getQueued();
+	}
+	
+	/**
+	 * @return the number of log entries that were dropped because the buffer was full
+	 */
+	public static long getDroppedEntries() {
+		LogDispatcher logDispatcher = dispatcher;
+		return logDispatcher == null ? 0 : logDispatcher.getDropped();
+	}
+	
+	/**
+	 * Checks whether messages of the given level are logged, so that expensive messages
+	 * are only built if they are needed
+	 * 
+	 * @param level
+	 * @return true if messages of the level are logged
+	 */
+	public static boolean isLoggable(LogLevel level) {
+		return level.getLevel() >= Request.getLogLevel().getLevel();
+	}
+	
 	/**
 	 * @param message
 	 * @param level
@@ -76,7 +155,7 @@ public class Logger {
 		String classe = "";
 		String method = "";
 		int lineNumber = 0;
-		if(level.getLevel() >= Request.getLogLevel().getLevel()){
+		if(isLoggable(level)){
 		// if a detailed logging is activated, we get the class name, method name...
 			if(Request.isLogDetails()){
 				StackTraceElement[] currentStack = Thread.currentThread().getStackTrace();
@@ -95,9 +174,19 @@ public class Logger {
 				}
 			}
 			
+			LogDispatcher logDispatcher = dispatcher;
+			if(logDispatcher != null){
+				LoggerEntry entry = new LoggerEntry(Request.getRequestName(), message, level, classe, method, lineNumber, 
+						Thread.currentThread().getName(), Thread.currentThread().getThreadGroup().getName());
+				if(logDispatcher.dispatch(entry, level))
+					return;
+			}
+			
 			if(logStub != null){
+				long traceStart = Tracer.begin();
 				try {
 					logStub.Log(message, Request.getRequestName(), level.toString(), classe, method, lineNumber, Thread.currentThread().getName(), Thread.currentThread().getThreadGroup().getName());
+					Tracer.end(Tracer.LOG, "Log", traceStart);
 				} catch (RemoteException e) {
 					e.printStackTrace(System.err);
 					System.exit(1);
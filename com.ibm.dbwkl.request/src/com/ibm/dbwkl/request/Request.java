@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.dbwkl.request;
 
+import java.io.File;
+import java.io.IOException;
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
@@ -19,7 +21,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.helper.NumberCounter;
 import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.request.ARequest;
@@ -28,7 +34,6 @@ import com.ibm.dbwkl.request.DataSourceRequired;
 import com.ibm.dbwkl.request.Output;
 import com.ibm.dbwkl.request.RequestState;
 import com.ibm.dbwkl.request.RequestStateChangedListener;
-import com.ibm.dbwkl.request.SubRequestFinishedEventListener;
 import com.ibm.dbwkl.request.connection.DB2WklDataSource;
 import com.ibm.dbwkl.request.connection.DataSourceFactory;
 import com.ibm.dbwkl.request.handler.SPHandler;
@@ -63,7 +68,7 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 	/**
 	 * Current state this request is in
 	 */
-	protected RequestState state;
+	protected volatile RequestState state;
 	
 	/**
 	 * Holds a flag to indicate whether this request requires a data source
@@ -301,7 +306,7 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 			this.subRequests.put(receiver.getName(), receiver);
 		}
 
-		return res;
+		return checkCarriers();
 	}
 	
 	/**
@@ -385,7 +390,6 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 	 * 
 	 * @return the STAF result of this request
 	 */
-	@SuppressWarnings("boxing")
 	public STAFResult execute() {
 
 		STAFResult executeResult;
@@ -393,51 +397,48 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 		// print some debug info for sub requests
 		Logger.log("Number of subrequests: " + Request.getSubRequests().size(), LogLevel.Debug);
 
+		// with the CARRIERS option, the sub requests share a bounded pool of threads
+		ExecutorService carriers = createCarriers();
+		
 		// use the sub requests and start it
 		List<Thread> threads = new ArrayList<Thread>();
-		final HashMap<ASubRequest, Boolean> runningSubRequests = new HashMap<ASubRequest, Boolean>();
 		for (Entry<String, ASubRequest> sr : Request.getSubRequests().entrySet()) {
 			
 			// set up the subrequest
 			ASubRequest subRequest = sr.getValue();
 			subRequest.setRequest(this);
-			subRequest.addSubRequestFinishedEventListener(new SubRequestFinishedEventListener() {
-				
-				@Override
-				public void subRequestFinished(@SuppressWarnings("hiding") ASubRequest subRequest) {
-					synchronized (runningSubRequests) {
-						runningSubRequests.put(subRequest, Boolean.FALSE);
-					}
-				}
-			});
+			
+			Logger.log("Start subrequest " + subRequest.getName(), LogLevel.Debug);
+			
+			if (carriers != null) {
+				// the sub request waits in the queue until a carrier thread is free
+				carriers.execute(subRequest);
+				continue;
+			}
 			
 			// capsulate the sub request into a managed framework thread to execute them in parallel
 			ManagedFrameworkThread subRequestThread = new ManagedFrameworkThread(subRequest);
 
 			// put the thread into a queue to wait until it is finished
 			threads.add(subRequestThread);
-			Logger.log("Start subrequest " + subRequest.getName(), LogLevel.Debug);
 			// start the thread
-			runningSubRequests.put(subRequest, Boolean.TRUE);
 			subRequestThread.start();
 		}
 		
-		// wait for the subrequests to end
-		int stillRunning = 0;
-		do {
-			stillRunning = 0;
-			
-			for (ASubRequest subRequest : this.subRequests.values()) {
-				if(runningSubRequests.get(subRequest))
-					stillRunning++;
-			}
-			
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-				// nop
+		// wait for the subrequests to end, each subrequest releases the wait as soon as it has finished
+		for (ASubRequest subRequest : this.subRequests.values()) {
+			while (!subRequest.isFinished()) {
+				try {
+					subRequest.awaitFinished();
+				} catch (InterruptedException e) {
+					// nop
+				}
 			}
-		} while (stillRunning > 0);
+		}
+		
+		if (carriers != null) {
+			carriers.shutdown();
+		}
 		
 		Logger.log("All sub requests have finished", LogLevel.Info);
 		
@@ -571,6 +572,69 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 		return executeResult;
 	}
 
+	/**
+	 * Creates the pool of carrier threads that executes the sub requests, if the 
+	 * CARRIERS option is specified. The workload of a sub request runs in the carrier
+	 * thread itself, so each instance needs one thread only while it is executed and
+	 * the number of threads is bounded independent of the number of INSTANCES.
+	 * 
+	 * @return the pool or null if each sub request runs in its own thread
+	 */
+	private ExecutorService createCarriers() {
+		if (!Request.hasOption(Options.THREADED_CARRIERS)) {
+			return null;
+		}
+		
+		int carriers = getCarriers();
+		if (carriers <= 0) {
+			Logger.log("Option CARRIERS does not contain a valid positive number. Each instance runs in its own thread.", LogLevel.Error);
+			return null;
+		}
+		
+		carriers = Math.min(carriers, this.subRequests.size());
+		Logger.log("Running " + this.subRequests.size() + " subrequests on " + carriers + " carrier threads", LogLevel.Info);
+		
+		return Executors.newFixedThreadPool(carriers, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new ManagedFrameworkThread(runnable);
+			}
+		});
+	}
+
+	/**
+	 * Rejects less CARRIERS than INSTANCES in the DURATION or RATE mode. An instance keeps
+	 * its carrier thread until its workload ends, so the instances that wait for a carrier
+	 * would only start after the first ones ran for the whole duration.
+	 * 
+	 * @return Ok or the reason why the CARRIERS option is rejected
+	 */
+	private STAFResult checkCarriers() {
+		int carriers = getCarriers();
+		if (carriers > 0 && carriers < this.subRequests.size()
+				&& (Request.hasOption(Options.THREADED_DURATION) || Request.hasOption(Options.THREADED_RATE))) {
+			String msg = "CARRIERS " + carriers + " is less than the " + this.subRequests.size() + " instances. With DURATION or RATE, "
+					+ "each instance keeps its carrier thread until it ends, so the instances would not run at the same time.";
+			Logger.log(msg, LogLevel.Error);
+			return new STAFResult(STAFResult.InvalidRequestString, msg);
+		}
+		return new STAFResult(STAFResult.Ok);
+	}
+
+	/**
+	 * @return the number of carrier threads of the CARRIERS option or 0 if it is not set or invalid
+	 */
+	private static int getCarriers() {
+		if (!Request.hasOption(Options.THREADED_CARRIERS)) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(Request.getOption(Options.THREADED_CARRIERS));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
 	/**
 	 * Cleanup processing for this request
 	 * 
@@ -594,6 +658,12 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 			subRequest.stopForce();
 		}
 		
+		//cancel the statements that are executed right now, the workloads see the stop when they return
+		if (Request.isDataSourceRequired()) {
+			int cancelled = getDataSource().cancelStatements();
+			Logger.log(cancelled + " running statements were cancelled", LogLevel.Debug);
+		}
+		
 		//set the right end-time of the Request
 //		ArrayList<ADataSourceConsumer> dataSourceConsumers = getDataSourceConsumers();
 //		if(dataSourceConsumers.size() <= 0){
@@ -704,6 +774,10 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 	 */
 	public void setRequestState(RequestState state) {
 		this.state = state;
+		
+		// wake up the notifier, it ends with the request
+		if(this.requestNotifier != null)
+			this.requestNotifier.requestStateChanged();
 	}
 	
 
@@ -885,8 +959,26 @@ public class Request extends ARequest implements Runnable, RequestRemoteInterfac
 			Logger.log(this.getResult().result, LogLevel.Error);
 			return;
 		}
+		
+		// start the recording within the request thread as well
+		if(hasRequestOption(Options.THREADED_TRACE)){
+			Tracer.start();
+		}
 	
-		go();
+		try {
+			go();
+		} finally {
+			// write the recording to the logging directory, also if the request failed
+			if(Tracer.isEnabled()){
+				String dateTime = new SimpleDateFormat("-yyyyMMddHHmmss").format(new Date());
+				File traceFile = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging(), getName() + dateTime + ".trace.json");
+				try {
+					Tracer.dump(traceFile, getName());
+				} catch (IOException e) {
+					Logger.log("Could not write the trace to " + traceFile.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+				}
+			}
+		}
 	
 		// create a log entry
 		if (this.getResult().rc != STAFResult.Ok) {
@@ -19,7 +19,8 @@ import com.ibm.dbwkl.rmi.RequestNotifierRemoteInterface;
  * The Requestnotifier informed the Request that the user want to stop a request.
  * It means that the Request and the active workloads must stopped.
  * 
- * 
+ * The notifier thread sleeps until it is woken up by a stop or a state change of 
+ * the request, so a stop is delivered immediately.
  **/
 public class RequestNotifier implements RequestNotifierRemoteInterface, Runnable {
 	
@@ -33,10 +34,20 @@ public class RequestNotifier implements RequestNotifierRemoteInterface, Runnable
 	 */
 	private String name;
 	
+	/**
+	 * Interval in milliseconds in which a change of the number of active connections is logged
+	 */
+	private static final long CONNECTION_CHECK_INTERVAL = 1000;
+	
 	/**
 	 * is a signal that the request should stop now
 	 */
-	private boolean stop = false;
+	private volatile boolean stop = false;
+	
+	/**
+	 * the stop was passed to the request
+	 */
+	private boolean stopDelivered = false;
 	
 	/**
 	 * Number of current active connections to remember in order to print
@@ -60,26 +71,19 @@ public class RequestNotifier implements RequestNotifierRemoteInterface, Runnable
 	@Override
 	public void run(){	
 		while(true){
-			if(this.request.getRequestState() == RequestState.BROKEDOWN || 
-					this.request.getRequestState() == RequestState.FINISHED || 
-					this.request.getRequestState() == RequestState.STOPPED ){
+			if(isRequestEnded()){
 				Logger.log("The Requestnotifier will close.", LogLevel.Debug);
 				break;
 			}
 			
-			if(this.stop == true && this.request.getRequestState() != RequestState.STOPPING){
+			if(isStopPending()){
+				this.stopDelivered = true;
 				this.request.setRequestState(RequestState.STOPPING);
 
 				//stop the request
 				this.request.stopRequest();
 			}
 			
-			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				Logger.log(e.getMessage(), LogLevel.Error);
-			}
-			
 			if (Request.getDataSource() != null) {
 				if (this.currentNoOfActiveConnections != Request.getDataSource().getNumberOfActiveConnections()) {
 					this.currentNoOfActiveConnections = Request.getDataSource().getNumberOfActiveConnections();
@@ -87,8 +91,41 @@ public class RequestNotifier implements RequestNotifierRemoteInterface, Runnable
 					
 				}
 			}
+			
+			// wait for a stop or a state change, the conditions are checked while holding the lock so no wake up is lost
+			synchronized (this) {
+				if(!isRequestEnded() && !isStopPending()){
+					try {
+						wait(CONNECTION_CHECK_INTERVAL);
+					} catch (InterruptedException e) {
+						Logger.log(e.getMessage(), LogLevel.Error);
+					}
+				}
+			}
 		}
 	}
+	
+	/**
+	 * Wakes up the notifier thread after the state of the request has changed
+	 */
+	public synchronized void requestStateChanged() {
+		notifyAll();
+	}
+	
+	/**
+	 * @return true if the request has ended and the notifier can close
+	 */
+	private boolean isRequestEnded() {
+		RequestState state = this.request.getRequestState();
+		return state == RequestState.BROKEDOWN || state == RequestState.FINISHED || state == RequestState.STOPPED;
+	}
+	
+	/**
+	 * @return true if a stop was requested that was not passed to the request yet
+	 */
+	private boolean isStopPending() {
+		return this.stop && !this.stopDelivered && this.request.getRequestState() != RequestState.STOPPING;
+	}
 
 	/**
 	 * @return request 
@@ -108,8 +145,9 @@ public class RequestNotifier implements RequestNotifierRemoteInterface, Runnable
 	 * @param stop
 	 */
 	@Override
-	public void setStop(boolean stop) {
+	public synchronized void setStop(boolean stop) {
 		this.stop = stop;
+		notifyAll();
 	}
 
 	/**
@@ -47,6 +47,11 @@ public class RequestPerformer {
 	 */
 	private static ReporterRemoteInterface reporterStub = null;
 	
+	/**
+	 * the stub of the Reporter of the local machine in case of an incoming request, otherwise null
+	 */
+	private static ReporterRemoteInterface localReporterStub = null;
+	
 	/**
 	 * @param args host, port, directory, request info
 	 */
@@ -74,6 +79,7 @@ public class RequestPerformer {
 			RequestManagerRemoteInterface localRequestManagerStub = null;
 			if(!host.equalsIgnoreCase(hostLocal)){
 				localRequestManagerStub = (RequestManagerRemoteInterface) getStub(hostLocal, portLocal, RequestManagerRemoteInterface.BIND_NAME);
+				localReporterStub = (ReporterRemoteInterface) getStub(hostLocal, portLocal, ReporterRemoteInterface.BIND_NAME);
 			}
 			requestManagerStub = (RequestManagerRemoteInterface) getStub(host, port, RequestManagerRemoteInterface.BIND_NAME);
 			reporterStub = (ReporterRemoteInterface) getStub(host, port, ReporterRemoteInterface.BIND_NAME);
@@ -86,6 +92,7 @@ public class RequestPerformer {
 			ARequest aRequest = new ARequest(Arrays.copyOfRange(args, 5, args.length));
 			Request request = new Request();
 			request.init(aRequest);
+			Logger.initBuffer();
 			
 			Thread.currentThread().setName(request.getName());
 			
@@ -136,6 +143,9 @@ public class RequestPerformer {
 				//
 			}
 			
+			//send the buffered log entries before the request is reported as finished
+			Logger.flush();
+			
 			//if it's incoming request, notify the local requestManager about the finish of the request so that it will be removed from the map
 			//it doesn't matter if it's finished, brokendown of stopped.
 			if(localRequestManagerStub != null){
@@ -143,6 +153,7 @@ public class RequestPerformer {
 			}
 		} catch (Throwable e) {
 			e.printStackTrace(System.err);
+			Logger.flush();
 			System.exit(1);
 		} 
 	}
@@ -169,6 +180,13 @@ public class RequestPerformer {
 		return reporterStub;
 	}
 	
+	/**
+	 * @return reporter stub of the local machine in case of an incoming request, otherwise null
+	 */
+	public static ReporterRemoteInterface getLocalReporterStub(){
+		return localReporterStub;
+	}
+	
 	/**
 	 * @return request manager stub
 	 */
@@ -14,7 +14,9 @@ import java.rmi.RemoteException;
 import java.util.Timer;
 import java.util.Vector;
 
+import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.report.Report;
+import com.ibm.dbwkl.rmi.ReporterRemoteInterface;
 import com.ibm.dbwkl.rmi.RequestReporterRemoteInterface;
 
 
@@ -27,6 +29,16 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 	 * the period of the RequestReporterTask. Default is 1 second.
 	 */
 	public static final long PERIOD = 1000;
+	
+	/**
+	 * Maximum number of reports that are kept until the Reporter pulls them. Default is one hour.
+	 */
+	public static final int MAX_REPORTS = 3600;
+	
+	/**
+	 * Number of reports that are pushed to the Reporter at once. Default is every 5 seconds.
+	 */
+	public static final int PUSH_REPORTS = 5;
 
 	/**
 	 * request
@@ -43,6 +55,11 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 	 */
 	private Vector<Report> reportList;
 	
+	/**
+	 * The latest report
+	 */
+	private Report latestReport;
+	
 	/**
 	 * the timer
 	 */
@@ -107,6 +124,7 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 		if(this.reportList != null){
 			this.reportList.clear();
 		}
+		this.latestReport = null;
 		
 		if(this.status) {
 			this.requestReporterTask.cancel();
@@ -121,11 +139,62 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 	
 
 	/**
-	 * add the report to the list
+	 * add the report to the list and push the list to the Reporter every {@link #PUSH_REPORTS} reports. 
+	 * If the reports could not be pushed for {@link #MAX_REPORTS} reports, the kept reports are 
+	 * replaced by their average.
 	 * @param report the report to add
 	 */
 	public void add(Report report) {
-		this.reportList.add(report);
+		Vector<Report> reports = null;
+		synchronized (this) {
+			if (this.reportList.size() >= MAX_REPORTS) {
+				Report average = Report.average(this.reportList);
+				this.reportList.clear();
+				this.reportList.add(average);
+			}
+			this.reportList.add(report);
+			this.latestReport = report;
+			
+			if (this.reportList.size() >= PUSH_REPORTS) {
+				reports = getAndClearReport();
+			}
+		}
+		
+		//push outside of the lock, so that the RMI call does not block the remote calls of the service
+		if (reports != null) {
+			push(reports);
+		}
+	}
+	
+	/**
+	 * Pushes the reports to the Reporter. If the push fails, the reports are kept and 
+	 * pushed again with the next reports.
+	 * @param reports the reports to push
+	 */
+	private void push(Vector<Report> reports) {
+		Long rid = this.request.getRid();
+		String host = this.request.getOrigin_host();
+		try {
+			RequestPerformer.getReporterStub().pushReports(rid, host, reports);
+		} catch (RemoteException e) {
+			Logger.log("Could not push the reports to the Reporter: " + e.getMessage(), LogLevel.Warning);
+			synchronized (this) {
+				this.reportList.addAll(0, reports);
+			}
+			return;
+		}
+		
+		//an incoming request reports its latest state to the machine it runs on, too
+		ReporterRemoteInterface localReporter = RequestPerformer.getLocalReporterStub();
+		if (localReporter != null) {
+			Vector<Report> latest = new Vector<Report>();
+			latest.add(reports.lastElement());
+			try {
+				localReporter.pushReports(rid, host, latest);
+			} catch (RemoteException e) {
+				Logger.log("Could not push the reports to the local Reporter: " + e.getMessage(), LogLevel.Warning);
+			}
+		}
 	}
 
 	/**
@@ -142,7 +211,7 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 	 * @return copyOfReport a copy of the report.
 	 */
 	@Override
-	public Vector<Report> getAndClearReport() {
+	public synchronized Vector<Report> getAndClearReport() {
 		if(this.reportList == null || this.reportList.size() == 0){
 			return null;
 		} else {
@@ -158,9 +227,7 @@ public class RequestReporter implements RequestReporterRemoteInterface {
 	 */
 	@Override
 	public Report getLatestReport() throws RemoteException {
-		if (this.reportList.size() > 0)
-			return this.reportList.lastElement();
-		return null;
+		return this.latestReport;
 	}
 
 	/**
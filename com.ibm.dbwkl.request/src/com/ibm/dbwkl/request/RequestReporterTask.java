@@ -10,10 +10,16 @@
  *******************************************************************************/
 package com.ibm.dbwkl.request;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TimerTask;
 
 import com.ibm.dbwkl.report.Report;
+import com.ibm.dbwkl.request.connection.ConnectionPool;
 import com.ibm.dbwkl.request.connection.DB2WklDataSource;
+import com.ibm.dbwkl.workloadtypes.APhaseConsumer;
+import com.ibm.dbwkl.workloadtypes.ArrivalSchedule;
+import com.ibm.dbwkl.workloadtypes.TransactionMix;
 
 /**
  *
@@ -35,6 +41,51 @@ public class RequestReporterTask extends TimerTask {
 	 */
 //	private Report lastReport = new Report();
 	
+	/**
+	 * Time (nanoseconds) of the last report
+	 */
+	private long lastTime = System.nanoTime();
+	
+	/**
+	 * Number of executions of the workloads until the last report
+	 */
+	private long lastExecutions = 0;
+	
+	/**
+	 * Number of failed executions of the workloads until the last report
+	 */
+	private long lastFailedExecutions = 0;
+	
+	/**
+	 * Number of commits until the last report
+	 */
+	private long lastCommits = 0;
+	
+	/**
+	 * Number of rollbacks until the last report
+	 */
+	private long lastRollbacks = 0;
+	
+	/**
+	 * Number of executed SQL statements until the last report
+	 */
+	private long lastExecutedStatements = 0;
+	
+	/**
+	 * Number of fetched rows until the last report
+	 */
+	private long lastRowsFetched = 0;
+	
+	/**
+	 * Number of inserted, updated or deleted rows until the last report
+	 */
+	private long lastRowsAffected = 0;
+	
+	/**
+	 * Number of failed SQL statements by SQLCODE until the last report
+	 */
+	private Map<Integer, Long> lastSQLErrors = new HashMap<Integer, Long>();
+	
 	/**
 	 * @param _owner
 	 */
@@ -51,15 +102,87 @@ public class RequestReporterTask extends TimerTask {
 		Report report = new Report();
 		
 		report.setNumber_of_threads(Thread.currentThread().getThreadGroup().activeCount());
+		
+		// the counters are reported as the difference to the last report
+		long now = System.nanoTime();
+		report.setInterval((now - this.lastTime) / 1000000000.0);
+		this.lastTime = now;
+		
+		long executions = APhaseConsumer.getExecutions();
+		long failedExecutions = APhaseConsumer.getFailedExecutions();
+		report.setExecutions(executions - this.lastExecutions);
+		report.setFailed_executions(failedExecutions - this.lastFailedExecutions);
+		this.lastExecutions = executions;
+		this.lastFailedExecutions = failedExecutions;
+		
 		DB2WklDataSource dataSource = Request.getDataSource();
 		if(dataSource != null){
 			report.setNumber_of_db2Connection(dataSource.getNumberOfActiveConnections());
 			report.setNumber_of_statements(dataSource.getNumberOfActiveStatements());
+			
+			long leases = 0;
+			long leaseWaitTime = 0;
+			for (ConnectionPool pool : dataSource.getConnectionPools()) {
+				report.setNumber_of_pooled_connections(report.getNumber_of_pooled_connections() + pool.getSize());
+				report.setNumber_of_idle_connections(report.getNumber_of_idle_connections() + pool.getIdleSize());
+				report.setPool_timeouts(report.getPool_timeouts() + pool.getLeaseTimeouts());
+				leases += pool.getLeaseCount();
+				leaseWaitTime += pool.getLeaseWaitTime();
+			}
+			if (leases > 0) {
+				report.setPool_wait_time(leaseWaitTime / (double) leases / 1000000);
+			}
+			
+			report.setStmt_cache_hits(dataSource.getStatementCacheHits());
+			report.setStmt_cache_misses(dataSource.getStatementCacheMisses());
+			report.setStmt_cache_evictions(dataSource.getStatementCacheEvictions());
+			
+			long commits = dataSource.getCommits();
+			long rollbacks = dataSource.getRollbacks();
+			long executedStatements = dataSource.getExecutedStatements();
+			long rowsFetched = dataSource.getRowsFetched();
+			long rowsAffected = dataSource.getRowsAffected();
+			report.setCommits(commits - this.lastCommits);
+			report.setRollbacks(rollbacks - this.lastRollbacks);
+			report.setExecuted_statements(executedStatements - this.lastExecutedStatements);
+			report.setRows_fetched(rowsFetched - this.lastRowsFetched);
+			report.setRows_affected(rowsAffected - this.lastRowsAffected);
+			this.lastCommits = commits;
+			this.lastRollbacks = rollbacks;
+			this.lastExecutedStatements = executedStatements;
+			this.lastRowsFetched = rowsFetched;
+			this.lastRowsAffected = rowsAffected;
+			
+			Map<Integer, Long> sqlErrors = dataSource.getSQLErrors();
+			Map<Integer, Double> intervalErrors = new HashMap<Integer, Double>();
+			for (Map.Entry<Integer, Long> entry : sqlErrors.entrySet()) {
+				Long last = this.lastSQLErrors.get(entry.getKey());
+				long errors = entry.getValue().longValue() - (last == null ? 0 : last.longValue());
+				if (errors > 0) {
+					intervalErrors.put(entry.getKey(), Double.valueOf(errors));
+				}
+			}
+			report.setSql_errors(intervalErrors);
+			this.lastSQLErrors = sqlErrors;
 		}
 		
 		report.setNumber_of_sockets(MonitoredSocketImplFactory.getInstance().getNumberOfOpenedSockets());	
 		
 		report.setConsumed_memory(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+		
+		ArrivalSchedule schedule = ArrivalSchedule.getSchedule();
+		if(schedule != null){
+			report.setTarget_rate(schedule.getRate());
+			report.setAchieved_rate(schedule.getAchievedRate());
+			report.setBacklog(schedule.getBacklog());
+		}
+		
+		report.setLatencies(LatencyRecorder.getIntervalHistograms());
+		report.setTransactions(TransactionMix.getIntervalCounts());
+		
+		report.setLog_queued(Logger.getQueuedEntries());
+		report.setLog_dropped(Logger.getDroppedEntries());
+		
 		//if the report is different from the last one, write it to the out File
 		//TODO  output report to file
 /*		try {
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that is incremented by many threads. The value is split into stripes and
+ * each thread adds to its own stripe, so the threads don't compete for the same cache
+ * line. Reading the value sums up all stripes and is meant for the reporter.
+ */
+public class StripedCounter {
+
+	/**
+	 * Number of longs between two stripes, so that each stripe is on its own cache line
+	 */
+	private static final int PADDING = 8;
+
+	/**
+	 * Number of stripes, a power of two
+	 */
+	private static final int STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes < 2 * Runtime.getRuntime().availableProcessors() && stripes < 64) {
+			stripes <<= 1;
+		}
+		STRIPES = stripes;
+	}
+
+	/**
+	 * Number of threads that got a stripe
+	 */
+	private static final AtomicInteger threads = new AtomicInteger();
+
+	/**
+	 * The stripe of the current thread, assigned round robin
+	 */
+	private static final ThreadLocal<Integer> stripe = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			return Integer.valueOf((threads.getAndIncrement() & (STRIPES - 1)) * PADDING);
+		}
+	};
+
+	/**
+	 * The stripes
+	 */
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	/**
+	 * Adds one
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * @param value the value to add
+	 */
+	public void add(long value) {
+		this.cells.getAndAdd(stripe.get().intValue(), value);
+	}
+
+	/**
+	 * @return the sum of all stripes
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += this.cells.get(i * PADDING);
+		}
+		return sum;
+	}
+}
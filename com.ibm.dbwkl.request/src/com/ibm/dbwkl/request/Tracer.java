@@ -0,0 +1,500 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.dbwkl.logging.LogLevel;
+
+/**
+ * <p>Records timed events of the request (workload phases, statement executions, connection
+ * requests and calls to the remote logger) together with samples of the JVM (heap, garbage
+ * collections, blocked threads) once per second. The recording is started with the option
+ * TRACE and written at the end of the request in the trace event format, which can be viewed
+ * with chrome://tracing or Perfetto. The timestamps are microseconds since the epoch, so the
+ * events can be matched with the GC log of the request JVM.</p>
+ *
+ * <p>Every thread records into its own ring buffer, which is only written by that thread,
+ * so recording does not need any lock. The buffer starts small and grows up to {@link #CAPACITY}
+ * events, after that the oldest events of the thread are overwritten. When the recording is not started, {@link #begin()}
+ * returns 0 and {@link #end(String, String, long)} returns immediately.</p>
+ */
+public class Tracer {
+
+	/**
+	 * Category of the workload phases INIT, EXECUTE and CLEAN
+	 */
+	public static final String PHASE = "phase";
+
+	/**
+	 * Category of the executions of SQL statements and stored procedures
+	 */
+	public static final String STATEMENT = "statement";
+
+	/**
+	 * Category of the requests for a database connection
+	 */
+	public static final String CONNECTION = "connection";
+
+	/**
+	 * Category of the calls to the remote logger
+	 */
+	public static final String LOG = "log";
+
+	/**
+	 * Number of events that are kept per thread
+	 */
+	public static final int CAPACITY = 8192;
+
+	/**
+	 * Number of events a new thread buffer has room for
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Maximal length of the name of a statement event
+	 */
+	private static final int MAX_NAME_LENGTH = 48;
+
+	/**
+	 * Period of the JVM samples in ms
+	 */
+	public static final long SAMPLE_PERIOD = 1000;
+
+	/**
+	 * Number of JVM samples that are kept, one day
+	 */
+	public static final int MAX_SAMPLES = 86400;
+
+	/**
+	 * True while the recording is running
+	 */
+	private static volatile boolean enabled = false;
+
+	/**
+	 * Difference between the epoch in ns and System.nanoTime()
+	 */
+	private static long epochOffset;
+
+	/**
+	 * The buffers of all threads that have recorded events
+	 */
+	private static final Queue<ThreadBuffer> buffers = new ConcurrentLinkedQueue<ThreadBuffer>();
+
+	/**
+	 * The buffer of the current thread
+	 */
+	private static final ThreadLocal<ThreadBuffer> buffer = new ThreadLocal<ThreadBuffer>() {
+		@Override
+		protected ThreadBuffer initialValue() {
+			ThreadBuffer threadBuffer = new ThreadBuffer(Thread.currentThread());
+			buffers.add(threadBuffer);
+			return threadBuffer;
+		}
+	};
+
+	/**
+	 * The JVM samples: time, heap, GC count, GC time, threads, blocked count, blocked time
+	 */
+	private static final ArrayDeque<long[]> samples = new ArrayDeque<long[]>();
+
+	/**
+	 * The timer of the JVM samples
+	 */
+	private static Timer sampler;
+
+	/**
+	 * Starts the recording. It has to be started within the request thread to ensure that the
+	 * timer thread is in the same thread group as the request.
+	 */
+	public static synchronized void start() {
+		if (enabled) {
+			return;
+		}
+
+		epochOffset = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads.isThreadContentionMonitoringSupported()) {
+			threads.setThreadContentionMonitoringEnabled(true);
+		}
+
+		sampler = new Timer("Tracer", true);
+		sampler.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, 0, SAMPLE_PERIOD);
+
+		enabled = true;
+		Logger.log("Tracing of the request is started", LogLevel.Info);
+	}
+
+	/**
+	 * Stops the recording. The recorded events are kept until they are written.
+	 */
+	public static synchronized void stop() {
+		if (!enabled) {
+			return;
+		}
+
+		enabled = false;
+		sampler.cancel();
+		sampler = null;
+		sample();
+	}
+
+	/**
+	 * @return true if the recording is running
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Marks the begin of an event
+	 *
+	 * @return the start time for {@link #end(String, String, long)} or 0 if the recording is not running
+	 */
+	public static long begin() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records an event of the current thread that started at the given time and ends now
+	 *
+	 * @param category the category of the event
+	 * @param name the name of the event
+	 * @param start the start time returned by {@link #begin()}
+	 */
+	public static void end(String category, String name, long start) {
+		if (start == 0 || !enabled) {
+			return;
+		}
+		buffer.get().add(category, name, start, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the execution of a SQL statement. The event is named after the beginning
+	 * of the statement, so the trace does not hold the full text of every statement.
+	 *
+	 * @param sql the executed statement
+	 * @param start the start time returned by {@link #begin()}
+	 */
+	public static void endStatement(String sql, long start) {
+		if (start == 0 || !enabled) {
+			return;
+		}
+		end(STATEMENT, getStatementName(sql), start);
+	}
+
+	/**
+	 * @param sql a SQL statement
+	 * @return the statement with collapsed white space, shortened to {@link #MAX_NAME_LENGTH} characters
+	 */
+	static String getStatementName(String sql) {
+		StringBuilder name = new StringBuilder(MAX_NAME_LENGTH + 3);
+		boolean space = false;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = name.length() > 0;
+				continue;
+			}
+			if (space) {
+				name.append(' ');
+				space = false;
+			}
+			if (name.length() == MAX_NAME_LENGTH) {
+				return name.append("...").toString();
+			}
+			name.append(c);
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Takes a sample of the JVM
+	 */
+	static void sample() {
+		long gcCount = 0;
+		long gcTime = 0;
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		for (GarbageCollectorMXBean collector : collectors) {
+			gcCount += Math.max(0, collector.getCollectionCount());
+			gcTime += Math.max(0, collector.getCollectionTime());
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long blockedCount = 0;
+		long blockedTime = 0;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info != null) {
+				blockedCount += info.getBlockedCount();
+				blockedTime += Math.max(0, info.getBlockedTime());
+			}
+		}
+
+		long[] sample = new long[] {
+				System.nanoTime(),
+				ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+				gcCount,
+				gcTime,
+				threads.getThreadCount(),
+				blockedCount,
+				blockedTime
+		};
+
+		synchronized (samples) {
+			if (samples.size() >= MAX_SAMPLES) {
+				samples.removeFirst();
+			}
+			samples.add(sample);
+		}
+	}
+
+	/**
+	 * Stops the recording and writes the recorded events and samples to the file
+	 *
+	 * @param file the file to write
+	 * @param processName the name of the request
+	 * @throws IOException the file can't be written
+	 */
+	public static synchronized void dump(File file, String processName) throws IOException {
+		stop();
+
+		long events = 0;
+		long dropped = 0;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		try {
+			writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+			writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"" + escape(processName) + "\"}}");
+
+			for (ThreadBuffer threadBuffer : buffers) {
+				writer.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + threadBuffer.threadId
+						+ ",\"args\":{\"name\":\"" + escape(threadBuffer.threadName) + "\"}}");
+				events += threadBuffer.write(writer);
+				dropped += threadBuffer.getDropped();
+			}
+
+			synchronized (samples) {
+				long[] last = null;
+				for (long[] sample : samples) {
+					writeSample(writer, sample, last);
+					last = sample;
+				}
+			}
+
+			writer.write("\n]}\n");
+		} finally {
+			writer.close();
+		}
+
+		Logger.log("Trace with " + events + " events written to " + file.getAbsolutePath()
+				+ (dropped > 0 ? ", " + dropped + " older events were overwritten" : ""), LogLevel.Info);
+	}
+
+	/**
+	 * Writes a JVM sample as counter events. GC and blocked times are written as the
+	 * difference to the previous sample.
+	 *
+	 * @param writer where to write to
+	 * @param sample the sample
+	 * @param last the previous sample or null
+	 * @throws IOException the sample can't be written
+	 */
+	private static void writeSample(Writer writer, long[] sample, long[] last) throws IOException {
+		String timestamp = ",\"ph\":\"C\",\"pid\":1,\"ts\":" + toMicros(sample[0]);
+		writer.write(",\n{\"name\":\"heap\"" + timestamp + ",\"args\":{\"used_mb\":" + (sample[1] >> 20) + "}}");
+		writer.write(",\n{\"name\":\"threads\"" + timestamp + ",\"args\":{\"threads\":" + sample[4] + "}}");
+		if (last != null) {
+			writer.write(",\n{\"name\":\"gc\"" + timestamp + ",\"args\":{\"collections\":" + (sample[2] - last[2])
+					+ ",\"time_ms\":" + (sample[3] - last[3]) + "}}");
+			writer.write(",\n{\"name\":\"blocked\"" + timestamp + ",\"args\":{\"count\":" + (sample[5] - last[5])
+					+ ",\"time_ms\":" + (sample[6] - last[6]) + "}}");
+		}
+	}
+
+	/**
+	 * @param nanoTime a value of System.nanoTime()
+	 * @return the microseconds since the epoch
+	 */
+	static long toMicros(long nanoTime) {
+		return (nanoTime + epochOffset) / 1000;
+	}
+
+	/**
+	 * @param value a string
+	 * @return the string as content of a JSON string
+	 */
+	static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		StringBuilder escaped = new StringBuilder(value.length() + 8);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				escaped.append("\\\"");
+				break;
+			case '\\':
+				escaped.append("\\\\");
+				break;
+			case '\n':
+				escaped.append("\\n");
+				break;
+			case '\r':
+				escaped.append("\\r");
+				break;
+			case '\t':
+				escaped.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					escaped.append(String.format("\\u%04x", Integer.valueOf(c)));
+				} else {
+					escaped.append(c);
+				}
+			}
+		}
+		return escaped.toString();
+	}
+
+	/**
+	 * The ring buffer of a single thread. The events are only written by the owning thread
+	 * and read when the recording has stopped. The arrays are doubled when they are full
+	 * until they reach {@link Tracer#CAPACITY}.
+	 */
+	private static class ThreadBuffer {
+
+		/**
+		 * The id of the thread
+		 */
+		final long threadId;
+
+		/**
+		 * The name of the thread
+		 */
+		final String threadName;
+
+		/**
+		 * The categories of the events
+		 */
+		private String[] categories = new String[INITIAL_CAPACITY];
+
+		/**
+		 * The names of the events
+		 */
+		private String[] names = new String[INITIAL_CAPACITY];
+
+		/**
+		 * The start times of the events
+		 */
+		private long[] starts = new long[INITIAL_CAPACITY];
+
+		/**
+		 * The durations of the events
+		 */
+		private long[] durations = new long[INITIAL_CAPACITY];
+
+		/**
+		 * Number of events that were recorded, written after the event
+		 */
+		private volatile long count = 0;
+
+		/**
+		 * @param thread the owning thread
+		 */
+		ThreadBuffer(Thread thread) {
+			this.threadId = thread.getId();
+			this.threadName = thread.getName();
+		}
+
+		/**
+		 * Records an event, must only be called by the owning thread
+		 *
+		 * @param category the category of the event
+		 * @param name the name of the event
+		 * @param start the start time in ns
+		 * @param duration the duration in ns
+		 */
+		void add(String category, String name, long start, long duration) {
+			long current = this.count;
+			if (current == this.starts.length && current < CAPACITY) {
+				grow();
+			}
+			int index = (int) (current % this.starts.length);
+			this.categories[index] = category;
+			this.names[index] = name;
+			this.starts[index] = start;
+			this.durations[index] = duration;
+			this.count = current + 1;
+		}
+
+		/**
+		 * Doubles the room for events, must only be called by the owning thread
+		 */
+		private void grow() {
+			int capacity = Math.min(this.starts.length * 2, CAPACITY);
+			this.categories = Arrays.copyOf(this.categories, capacity);
+			this.names = Arrays.copyOf(this.names, capacity);
+			this.starts = Arrays.copyOf(this.starts, capacity);
+			this.durations = Arrays.copyOf(this.durations, capacity);
+		}
+
+		/**
+		 * @return the number of events that were overwritten
+		 */
+		long getDropped() {
+			return Math.max(0, this.count - CAPACITY);
+		}
+
+		/**
+		 * Writes the kept events in the order they were recorded
+		 *
+		 * @param writer where to write to
+		 * @return the number of written events
+		 * @throws IOException the events can't be written
+		 */
+		long write(Writer writer) throws IOException {
+			long end = this.count;
+			long first = Math.max(0, end - CAPACITY);
+			for (long i = first; i < end; i++) {
+				int index = (int) (i % this.starts.length);
+				writer.write(",\n{\"name\":\"" + escape(this.names[index]) + "\",\"cat\":\"" + this.categories[index]
+						+ "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + this.threadId
+						+ ",\"ts\":" + toMicros(this.starts[index])
+						+ ",\"dur\":" + TimeUnit.NANOSECONDS.toMicros(this.durations[index]) + "}");
+			}
+			return end - first;
+		}
+	}
+}
@@ -0,0 +1,589 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.StringTokenizer;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.db2.jcc.DB2BaseDataSource;
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.LoggedRuntimeException;
+import com.ibm.dbwkl.request.Logger;
+
+/**
+ * <p>A pool of physical connections for one URL and user. The pool is used by
+ * {@link DB2WklDataSource} when the POOL option is specified. Connections that are
+ * closed via {@link DB2WklDataSource#closeConnection(Connection)} are rolled back and
+ * returned to the pool instead of being closed.</p>
+ *
+ * <p>The pool settings are given with the POOL option as a list of key=value pairs
+ * separated by ;</p>
+ * <ul>
+ * 		<li>MIN - minimum number of connections kept open (default 0)</li>
+ * 		<li>MAX - maximum number of connections (default 20)</li>
+ * 		<li>LEASETIMEOUT - seconds to wait for a free connection (default 30)</li>
+ * 		<li>IDLETIMEOUT - seconds after which an idle connection is closed (default 300)</li>
+ * 		<li>VALIDATE - validate a connection before it is handed out (default TRUE)</li>
+ * </ul>
+ */
+public class ConnectionPool {
+
+	/**
+	 * Pool setting for the minimum number of connections
+	 */
+	public static final String MIN = "MIN";
+
+	/**
+	 * Pool setting for the maximum number of connections
+	 */
+	public static final String MAX = "MAX";
+
+	/**
+	 * Pool setting for the time in seconds to wait for a free connection
+	 */
+	public static final String LEASETIMEOUT = "LEASETIMEOUT";
+
+	/**
+	 * Pool setting for the time in seconds after which an idle connection is closed
+	 */
+	public static final String IDLETIMEOUT = "IDLETIMEOUT";
+
+	/**
+	 * Pool setting whether connections are validated before they are handed out
+	 */
+	public static final String VALIDATE = "VALIDATE";
+
+	/**
+	 * Time in seconds a validation of a connection may take
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Period in milliseconds of the eviction of idle connections
+	 */
+	private static final long EVICTION_PERIOD = 10000;
+
+	/**
+	 * Time in ms to wait for a returned connection when all connections are open
+	 */
+	private static final long IDLE_POLL_TIMEOUT = 10;
+
+	/**
+	 * The owner of the pool that opens the physical connections
+	 */
+	private final DB2WklDataSource owner;
+
+	/**
+	 * The data source of the URL
+	 */
+	private final DB2BaseDataSource dataSource;
+
+	/**
+	 * The URL of the pool
+	 */
+	private final String url;
+
+	/**
+	 * User of the connections
+	 */
+	private final String user;
+
+	/**
+	 * Password of the user
+	 */
+	private final String password;
+
+	/**
+	 * Minimum number of connections
+	 */
+	private int minimumSize = 0;
+
+	/**
+	 * Maximum number of connections
+	 */
+	private int maximumSize = 20;
+
+	/**
+	 * Time in milliseconds to wait for a free connection
+	 */
+	private long leaseTimeout = 30000;
+
+	/**
+	 * Time in milliseconds after which an idle connection is closed
+	 */
+	private long idleTimeout = 300000;
+
+	/**
+	 * Validate connections before they are handed out
+	 */
+	private boolean validate = true;
+
+	/**
+	 * Limits the number of leased connections to the maximum size
+	 */
+	private final Semaphore leases;
+
+	/**
+	 * Idle connections, the most recently used first
+	 */
+	private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<IdleConnection>();
+
+	/**
+	 * Leased connections with the time they were leased
+	 */
+	private final ConcurrentHashMap<Connection, Long> leasedConnections = new ConcurrentHashMap<Connection, Long>();
+
+	/**
+	 * Number of open physical connections
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Number of leases
+	 */
+	private final AtomicLong leaseCount = new AtomicLong();
+
+	/**
+	 * Sum of the time in nanoseconds waited for a lease
+	 */
+	private final AtomicLong leaseWaitTime = new AtomicLong();
+
+	/**
+	 * Number of leases that timed out
+	 */
+	private final AtomicLong leaseTimeouts = new AtomicLong();
+
+	/**
+	 * Number of connections that failed the validation
+	 */
+	private final AtomicLong validationFailures = new AtomicLong();
+
+	/**
+	 * Timer for the eviction of idle connections
+	 */
+	private final Timer evictionTimer;
+
+	/**
+	 * The pool was closed
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates the pool and opens the minimum number of connections
+	 *
+	 * @param owner the data source manager that opens the physical connections
+	 * @param dataSource data source of the URL
+	 * @param url the URL of the pool
+	 * @param user user of the connections
+	 * @param password password of the user
+	 * @param settings the pool settings, see class description
+	 * @throws IllegalArgumentException in case of invalid settings
+	 */
+	public ConnectionPool(DB2WklDataSource owner, DB2BaseDataSource dataSource, String url, String user, String password, String settings) throws IllegalArgumentException {
+		this.owner = owner;
+		this.dataSource = dataSource;
+		this.url = url;
+		this.user = user;
+		this.password = password;
+
+		if (settings != null) {
+			parseSettings(settings);
+		}
+
+		this.leases = new Semaphore(this.maximumSize, true);
+
+		Logger.log("Connection pool for " + url + ": min = " + this.minimumSize + "; max = " + this.maximumSize +
+				"; lease timeout = " + this.leaseTimeout + "ms; idle timeout = " + this.idleTimeout + "ms; validate = " + this.validate, LogLevel.Debug);
+
+		fill();
+
+		this.evictionTimer = new Timer("ConnectionPool " + url, true);
+		this.evictionTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				evict();
+			}
+		}, EVICTION_PERIOD, EVICTION_PERIOD);
+	}
+
+	/**
+	 * Parses the pool settings
+	 *
+	 * @param settings the pool settings
+	 * @throws IllegalArgumentException in case of invalid settings
+	 */
+	private void parseSettings(String settings) throws IllegalArgumentException {
+		StringTokenizer tokenizer = new StringTokenizer(settings, ";");
+		while (tokenizer.hasMoreElements()) {
+			String setting = ((String) tokenizer.nextElement()).trim();
+			if (setting.length() == 0) {
+				continue;
+			}
+
+			int separator = setting.indexOf("=");
+			if (separator < 0) {
+				throw new IllegalArgumentException("Invalid pool setting " + setting + ". Use key=value.");
+			}
+			String key = setting.substring(0, separator).trim();
+			String value = setting.substring(separator + 1).trim();
+
+			try {
+				if (key.equalsIgnoreCase(MIN)) {
+					this.minimumSize = Integer.parseInt(value);
+				} else if (key.equalsIgnoreCase(MAX)) {
+					this.maximumSize = Integer.parseInt(value);
+				} else if (key.equalsIgnoreCase(LEASETIMEOUT)) {
+					this.leaseTimeout = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+				} else if (key.equalsIgnoreCase(IDLETIMEOUT)) {
+					this.idleTimeout = TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+				} else if (key.equalsIgnoreCase(VALIDATE)) {
+					this.validate = Boolean.parseBoolean(value);
+				} else {
+					throw new IllegalArgumentException("Unknown pool setting " + key);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number for pool setting " + setting, e);
+			}
+		}
+
+		if (this.maximumSize < 1 || this.minimumSize < 0 || this.minimumSize > this.maximumSize) {
+			throw new IllegalArgumentException("Invalid pool size: min = " + this.minimumSize + "; max = " + this.maximumSize);
+		}
+	}
+
+	/**
+	 * Leases a connection from the pool. Waits up to the lease timeout if all
+	 * connections are in use.
+	 *
+	 * @return the connection
+	 */
+	public Connection borrow() {
+		long start = System.nanoTime();
+		try {
+			if (!this.leases.tryAcquire(this.leaseTimeout, TimeUnit.MILLISECONDS)) {
+				this.leaseTimeouts.incrementAndGet();
+				throw new LoggedRuntimeException("Could not get a connection for " + this.url + " within " +
+						this.leaseTimeout + "ms. All " + this.maximumSize + " connections of the pool are in use.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LoggedRuntimeException("Interrupted while waiting for a connection for " + this.url, e);
+		}
+		this.leaseWaitTime.addAndGet(System.nanoTime() - start);
+
+		try {
+			Connection con = null;
+			while (con == null) {
+				IdleConnection idle = this.idleConnections.pollFirst();
+				if (idle == null) {
+					con = create(this.maximumSize);
+					if (con != null) {
+						break;
+					}
+					// all connections are open, one of them is about to be returned or opened for the minimum size
+					idle = pollIdle();
+				}
+
+				if (idle != null) {
+					if (isValid(idle.connection)) {
+						con = idle.connection;
+					} else {
+						this.validationFailures.incrementAndGet();
+						destroy(idle.connection);
+					}
+				}
+			}
+
+			this.leasedConnections.put(con, Long.valueOf(System.currentTimeMillis()));
+			this.leaseCount.incrementAndGet();
+			return con;
+
+		} catch (RuntimeException e) {
+			this.leases.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a leased connection to the pool. The connection is rolled back.
+	 *
+	 * @param connection the connection to return
+	 * @return false if the connection was not leased from this pool
+	 */
+	public boolean release(Connection connection) {
+		if (this.leasedConnections.remove(connection) == null) {
+			return false;
+		}
+
+		try {
+			if (this.closed || connection.isClosed()) {
+				destroy(connection);
+			} else {
+				this.owner.rollback(connection);
+				this.idleConnections.offerFirst(new IdleConnection(connection));
+			}
+		} catch (SQLException e) {
+			Logger.log("Could not return the connection to the pool: " + e.getLocalizedMessage(), LogLevel.Debug);
+			destroy(connection);
+		} finally {
+			this.leases.release();
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param connection the connection to check
+	 * @return true if the connection is leased from this pool
+	 */
+	public boolean isLeased(Connection connection) {
+		return connection != null && this.leasedConnections.containsKey(connection);
+	}
+
+	/**
+	 * Closes idle connections that exceeded the idle timeout, reclaims leases of connections
+	 * that were closed directly and opens connections up to the minimum size
+	 */
+	void evict() {
+		if (this.closed) {
+			return;
+		}
+
+		for (Connection connection : this.leasedConnections.keySet()) {
+			if (isClosed(connection) && this.leasedConnections.remove(connection) != null) {
+				Logger.log("A connection of the pool for " + this.url + " was closed without returning it to the pool", LogLevel.Warning);
+				this.owner.closeStatementCache(connection);
+				this.size.decrementAndGet();
+				this.leases.release();
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		Iterator<IdleConnection> iterator = this.idleConnections.descendingIterator();
+		while (iterator.hasNext() && this.size.get() > this.minimumSize) {
+			IdleConnection idle = iterator.next();
+			if (now - idle.lastUsed > this.idleTimeout && this.idleConnections.removeLastOccurrence(idle)) {
+				destroy(idle.connection);
+			}
+		}
+
+		try {
+			fill();
+		} catch (RuntimeException e) {
+			Logger.log("Could not open the minimum number of connections for " + this.url + ": " + e.getLocalizedMessage(), LogLevel.Warning);
+		}
+	}
+
+	/**
+	 * Opens connections until the minimum size is reached
+	 */
+	private void fill() {
+		Connection connection;
+		while (!this.closed && (connection = create(this.minimumSize)) != null) {
+			this.idleConnections.offerLast(new IdleConnection(connection));
+		}
+	}
+
+	/**
+	 * Waits a short time for a connection that is returned to the pool
+	 *
+	 * @return the idle connection or null if there is none yet
+	 */
+	private IdleConnection pollIdle() {
+		try {
+			return this.idleConnections.pollFirst(IDLE_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LoggedRuntimeException("Interrupted while waiting for a connection for " + this.url, e);
+		}
+	}
+
+	/**
+	 * Closes all connections of the pool including the leased ones
+	 */
+	public void close() {
+		this.closed = true;
+		this.evictionTimer.cancel();
+
+		IdleConnection idle;
+		while ((idle = this.idleConnections.pollFirst()) != null) {
+			destroy(idle.connection);
+		}
+
+		for (Connection connection : this.leasedConnections.keySet()) {
+			if (this.leasedConnections.remove(connection) != null) {
+				try {
+					this.owner.rollback(connection);
+				} catch (SQLException e) {
+					Logger.log("There is a problem in the rollback. " + e.getLocalizedMessage(), LogLevel.Debug);
+				}
+				destroy(connection);
+			}
+		}
+	}
+
+	/**
+	 * Opens a new physical connection if less than the given number of connections are open.
+	 * The slot of the connection is reserved before it is opened, so concurrent callers
+	 * can't open more connections than the limit.
+	 *
+	 * @param limit the maximal number of open connections
+	 * @return the connection or null if the limit is reached
+	 */
+	private Connection create(int limit) {
+		int current;
+		do {
+			current = this.size.get();
+			if (current >= limit) {
+				return null;
+			}
+		} while (!this.size.compareAndSet(current, current + 1));
+
+		try {
+			return this.owner.openConnection(this.dataSource, this.user, this.password);
+		} catch (RuntimeException e) {
+			this.size.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes a physical connection
+	 *
+	 * @param connection the connection to close
+	 */
+	private void destroy(Connection connection) {
+		this.size.decrementAndGet();
+		this.owner.closeStatementCache(connection);
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			Logger.log("Could not close the connection: " + e.getLocalizedMessage(), LogLevel.Debug);
+		}
+	}
+
+	/**
+	 * @param connection the connection to validate
+	 * @return true if the connection can be used
+	 */
+	private boolean isValid(Connection connection) {
+		try {
+			if (this.validate) {
+				return connection.isValid(VALIDATION_TIMEOUT);
+			}
+			return !connection.isClosed();
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param connection the connection to check
+	 * @return true if the connection is closed or its state cannot be determined
+	 */
+	private static boolean isClosed(Connection connection) {
+		try {
+			return connection.isClosed();
+		} catch (SQLException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * @return the URL of the pool
+	 */
+	public String getUrl() {
+		return this.url;
+	}
+
+	/**
+	 * @return the number of open physical connections
+	 */
+	public int getSize() {
+		return this.size.get();
+	}
+
+	/**
+	 * @return the number of idle connections
+	 */
+	public int getIdleSize() {
+		return this.idleConnections.size();
+	}
+
+	/**
+	 * @return the number of leased connections
+	 */
+	public int getLeasedSize() {
+		return this.leasedConnections.size();
+	}
+
+	/**
+	 * @return the number of leases
+	 */
+	public long getLeaseCount() {
+		return this.leaseCount.get();
+	}
+
+	/**
+	 * @return the sum of the time in nanoseconds waited for a lease
+	 */
+	public long getLeaseWaitTime() {
+		return this.leaseWaitTime.get();
+	}
+
+	/**
+	 * @return the number of leases that timed out
+	 */
+	public long getLeaseTimeouts() {
+		return this.leaseTimeouts.get();
+	}
+
+	/**
+	 * @return the number of connections that failed the validation
+	 */
+	public long getValidationFailures() {
+		return this.validationFailures.get();
+	}
+
+	/**
+	 * An idle connection with the time it was returned to the pool
+	 */
+	private static class IdleConnection {
+
+		/**
+		 * The connection
+		 */
+		final Connection connection;
+
+		/**
+		 * Time the connection was returned to the pool
+		 */
+		final long lastUsed;
+
+		/**
+		 * @param connection the idle connection
+		 */
+		IdleConnection(Connection connection) {
+			this.connection = connection;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+}
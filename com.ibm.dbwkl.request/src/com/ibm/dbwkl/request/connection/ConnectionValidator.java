@@ -15,8 +15,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import com.ibm.dbwkl.helper.ContextLocal;
 import com.ibm.dbwkl.helper.DB2CommandUtility;
-import com.ibm.dbwkl.helper.ThreadGroupLocal;
 import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.request.Logger;
 
@@ -40,7 +40,7 @@ public class ConnectionValidator {
 	/**
 	 * HashMap with all failed URLs and sqlException to handle issues like missing catalog
 	 */
-	private final static ThreadGroupLocal<HashMap<String, SQLException>> failedURLs = new ThreadGroupLocal<HashMap<String, SQLException>>();
+	private final static ContextLocal<HashMap<String, SQLException>> failedURLs = new ContextLocal<HashMap<String, SQLException>>();
     
 	/**
 	 * private default constructor because the dataSourceManager have to be set
@@ -21,9 +21,16 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.db2.jcc.DB2BaseDataSource;
 import com.ibm.dbwkl.helper.URLCutter;
@@ -31,6 +38,8 @@ import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.request.LoggedRuntimeException;
 import com.ibm.dbwkl.request.Logger;
 import com.ibm.dbwkl.request.Request;
+import com.ibm.dbwkl.request.StripedCounter;
+import com.ibm.dbwkl.request.Tracer;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.workloadservice.ADataSourceConsumer;
 
@@ -48,16 +57,22 @@ public abstract class DB2WklDataSource {
 	protected HashMap<String, DB2BaseDataSource> dataSourceList;
 	
 	/**
-	 * List of active connections. For correct maintenance use always this
+	 * Registry of active connections. For correct maintenance use always this
 	 * connection manager.
 	 */
-	protected ArrayList<Connection> activeConnections; 
+	protected ResourceRegistry<Connection> activeConnections; 
 	
 	/**
-	 * List of active statements. For correct maintenance use always this 
-	 * connection manager to get and close statements.
+	 * Registry of active statements. For correct maintenance use always this 
+	 * connection manager to get and close statements. The statements are only
+	 * weakly referenced, so statements that are never closed do not pile up.
 	 */
-	protected ArrayList<Statement> activeStatements;
+	protected ResourceRegistry<Statement> activeStatements;
+	
+	/**
+	 * Timer for the leak detection, only used when the LEAKDETECTION option is specified
+	 */
+	private Timer leakDetectionTimer;
 	
 	/**
 	 * This default URL contains the first URL that is initialized in this 
@@ -65,6 +80,71 @@ public abstract class DB2WklDataSource {
 	 */
 	protected String defaultURL = null;
 	
+	/**
+	 * Connection pools by URL and user, only used when the POOL option is specified
+	 */
+	protected ConcurrentHashMap<String, ConnectionPool> connectionPools;
+	
+	/**
+	 * Default number of cached statements per connection
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+	
+	/**
+	 * Caches of prepared and callable statements by connection
+	 */
+	protected ConcurrentHashMap<Connection, StatementCache> statementCaches;
+	
+	/**
+	 * Number of cached statements per connection, 0 if the statements are not cached
+	 */
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	
+	/**
+	 * Number of statements that were found in the statement caches
+	 */
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	
+	/**
+	 * Number of statements that were not found in the statement caches
+	 */
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+	
+	/**
+	 * Number of statements that were closed to make space in the statement caches
+	 */
+	private final AtomicLong statementCacheEvictions = new AtomicLong();
+	
+	/**
+	 * Number of commits
+	 */
+	private final StripedCounter commits = new StripedCounter();
+	
+	/**
+	 * Number of rollbacks
+	 */
+	private final StripedCounter rollbacks = new StripedCounter();
+	
+	/**
+	 * Number of executed SQL statements
+	 */
+	private final StripedCounter executedStatements = new StripedCounter();
+	
+	/**
+	 * Number of rows fetched from result sets
+	 */
+	private final StripedCounter rowsFetched = new StripedCounter();
+	
+	/**
+	 * Number of rows inserted, updated or deleted
+	 */
+	private final StripedCounter rowsAffected = new StripedCounter();
+	
+	/**
+	 * Number of failed SQL statements by SQLCODE
+	 */
+	private final ConcurrentHashMap<Integer, StripedCounter> sqlErrors = new ConcurrentHashMap<Integer, StripedCounter>();
+	
 	/**
 	 * This method must be implemented by all extending data sources
 	 * 
@@ -139,8 +219,50 @@ public abstract class DB2WklDataSource {
 	 */
 	public DB2WklDataSource() {
 		this.dataSourceList = new HashMap<String, DB2BaseDataSource>();
-		this.activeConnections = new ArrayList<Connection>();
-		this.activeStatements = new ArrayList<Statement>();
+		this.activeConnections = new ResourceRegistry<Connection>("connection", false);
+		this.activeStatements = new ResourceRegistry<Statement>("statement", true);
+		this.connectionPools = new ConcurrentHashMap<String, ConnectionPool>();
+		this.statementCaches = new ConcurrentHashMap<Connection, StatementCache>();
+		
+		if (Request.hasOption(Options.DB_LEAKDETECTION)) {
+			startLeakDetection(Request.getOption(Options.DB_LEAKDETECTION));
+		}
+		
+		if (Request.hasOption(Options.DB_STMTCACHE)) {
+			try {
+				this.statementCacheSize = Math.max(0, Integer.parseInt(Request.getOption(Options.DB_STMTCACHE)));
+			} catch (NumberFormatException e) {
+				Logger.log("Option STMTCACHE does not contain a valid number. Using default of " + DEFAULT_STATEMENT_CACHE_SIZE + " now.", LogLevel.Error);
+			}
+		}
+	}
+	
+	/**
+	 * Starts logging connections that are open for longer than the given age
+	 * together with the code that opened them
+	 * 
+	 * @param maxAge the age in seconds
+	 */
+	private void startLeakDetection(String maxAge) {
+		final long maxAgeMillis;
+		try {
+			maxAgeMillis = Long.parseLong(maxAge) * 1000;
+		} catch (NumberFormatException e) {
+			Logger.log("Option LEAKDETECTION does not contain a valid number. Specify the number of seconds. Leak detection is turned off.", LogLevel.Error);
+			return;
+		}
+		
+		this.activeConnections.setTrackAllocation(true);
+		this.activeStatements.setTrackAllocation(true);
+		
+		long period = Math.max(1000, Math.min(maxAgeMillis / 2, 10000));
+		this.leakDetectionTimer = new Timer("LeakDetection", true);
+		this.leakDetectionTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				DB2WklDataSource.this.activeConnections.logLeaks(maxAgeMillis);
+			}
+		}, period, period);
 	}
 	
 	/**
@@ -369,7 +491,7 @@ public abstract class DB2WklDataSource {
 	 * 
 	 * @return a new connection to the default data source
 	 */
-	public synchronized Connection getConnection() {
+	public Connection getConnection() {
 
 		String url = ADataSourceConsumer.getUrl();
 		
@@ -421,6 +543,68 @@ public abstract class DB2WklDataSource {
 					"you encounter this error message, open a defect.");
 		}
 		
+		// lease the connection from the pool or open a new one
+		long traceStart = Tracer.begin();
+		ConnectionPool pool = getConnectionPool(url, dataSource, user, password);
+		Connection con = pool != null ? pool.borrow() : openConnection(dataSource, user, password);
+		Tracer.end(Tracer.CONNECTION, pool != null ? "borrow" : "open", traceStart);
+		
+		// add it to the active connections
+		this.activeConnections.register(con);
+		
+		return con;
+	}
+	
+	/**
+	 * Returns the connection pool for the given URL and user and creates it if 
+	 * required. Returns null if the POOL option is not specified.
+	 * 
+	 * @param url URL of the connection, if null then default URL
+	 * @param dataSource data source of the URL
+	 * @param user name to establish the connection
+	 * @param password to establish the connection
+	 * @return the connection pool or null
+	 */
+	private ConnectionPool getConnectionPool(String url, DB2BaseDataSource dataSource, String user, String password) {
+		if (!Request.hasOption(Options.DB_POOL)) {
+			return null;
+		}
+		
+		if (url == null || url.length() == 0) {
+			url = this.defaultURL;
+		}
+		
+		String key = url + ";" + user;
+		ConnectionPool pool = this.connectionPools.get(key);
+		if (pool == null) {
+			synchronized (this.connectionPools) {
+				pool = this.connectionPools.get(key);
+				if (pool == null) {
+					pool = new ConnectionPool(this, dataSource, url, user, password, Request.getOption(Options.DB_POOL));
+					this.connectionPools.put(key, pool);
+				}
+			}
+		}
+		return pool;
+	}
+	
+	/**
+	 * @return all connection pools of this data source
+	 */
+	public Collection<ConnectionPool> getConnectionPools() {
+		return this.connectionPools.values();
+	}
+	
+	/**
+	 * Opens a new physical connection with auto commit turned off
+	 * 
+	 * @param dataSource data source to get a connection to 
+	 * @param user name to establish the connection
+	 * @param password to establish the connection
+	 * @return the connection
+	 */
+	Connection openConnection(DB2BaseDataSource dataSource, String user, String password) {
+		
 		Connection con = null;
 		
 		//this counts the number of iterations the loop will go through in case a certain bindException occurs, this
@@ -441,10 +625,6 @@ public abstract class DB2WklDataSource {
 				con = this.getConnection(dataSource, user, password);
 				con.setAutoCommit(false);
 				
-				// new connection, add it to the list of active connections if not null
-				if (con != null && !this.activeConnections.contains(con)){
-					this.activeConnections.add(con);
-				}
 				//will only show in case an SQLException has occurred beforehand 
 				if (iterationLoopCounter > 1) {
 					Logger.log("Iteration count is complete for this getConnection() attempt: " + iterationLoopCounter, LogLevel.Debug);
@@ -482,9 +662,9 @@ public abstract class DB2WklDataSource {
 	 * @return the created statement
 	 * @throws SQLException creation unsuccessful
 	 */
-	public synchronized Statement createStatement(Connection con) throws SQLException {
+	public Statement createStatement(Connection con) throws SQLException {
 		Statement stmt = con.createStatement();
-		this.activeStatements.add(stmt);
+		this.activeStatements.register(stmt);
 		return stmt;
 	}
 	
@@ -496,9 +676,9 @@ public abstract class DB2WklDataSource {
 	 * @return the created prepared statement
 	 * @throws SQLException creation unsuccessful
 	 */
-	public synchronized PreparedStatement createPreparedStatement(Connection con, String sql) throws SQLException {
+	public PreparedStatement createPreparedStatement(Connection con, String sql) throws SQLException {
 		PreparedStatement stmt = con.prepareStatement(sql);
-		this.activeStatements.add(stmt);
+		this.activeStatements.register(stmt);
 		return stmt;
 	}
 	
@@ -510,12 +690,281 @@ public abstract class DB2WklDataSource {
 	 * @return the created callable statement
 	 * @throws SQLException creation unsuccessful
 	 */
-	public synchronized CallableStatement createPreparedCallableStatement(Connection con, String sql) throws SQLException {
+	public CallableStatement createPreparedCallableStatement(Connection con, String sql) throws SQLException {
 		CallableStatement stmt = con.prepareCall(sql);
-		this.activeStatements.add(stmt);
+		this.activeStatements.register(stmt);
+		return stmt;
+	}
+	
+	/**
+	 * Returns a prepared statement for the SQL text from the statement cache of the
+	 * connection or creates and caches it. The statement must not be closed by the
+	 * caller, but released with {@link #releaseCachedStatement(Connection, String, PreparedStatement)}.
+	 * 
+	 * @param con connection to get the statement for
+	 * @param sql SQL text
+	 * @return the prepared statement
+	 * @throws SQLException creation unsuccessful
+	 */
+	public PreparedStatement getCachedPreparedStatement(Connection con, String sql) throws SQLException {
+		return getCachedStatement(con, sql, false);
+	}
+	
+	/**
+	 * Returns a callable statement for the SQL text from the statement cache of the
+	 * connection or creates and caches it. The statement must not be closed by the
+	 * caller, but released with {@link #releaseCachedStatement(Connection, String, PreparedStatement)}.
+	 * 
+	 * @param con connection to get the statement for
+	 * @param sql SQL text
+	 * @return the callable statement
+	 * @throws SQLException creation unsuccessful
+	 */
+	public CallableStatement getCachedCallableStatement(Connection con, String sql) throws SQLException {
+		return (CallableStatement) getCachedStatement(con, sql, true);
+	}
+	
+	/**
+	 * Returns a statement from the statement cache of the connection or creates it
+	 * 
+	 * @param con connection to get the statement for
+	 * @param sql SQL text
+	 * @param callable true for a callable statement
+	 * @return the statement
+	 * @throws SQLException creation unsuccessful
+	 */
+	private PreparedStatement getCachedStatement(Connection con, String sql, boolean callable) throws SQLException {
+		if (this.statementCacheSize <= 0) {
+			return callable ? createPreparedCallableStatement(con, sql) : createPreparedStatement(con, sql);
+		}
+		
+		StatementCache cache = this.statementCaches.get(con);
+		if (cache == null) {
+			StatementCache newCache = new StatementCache(this.statementCacheSize);
+			cache = this.statementCaches.putIfAbsent(con, newCache);
+			if (cache == null) {
+				cache = newCache;
+			}
+		}
+		
+		// prepared and callable statements with the same text are cached separately
+		String key = getCacheKey(sql, callable);
+		PreparedStatement stmt = cache.get(key);
+		if (stmt != null && !stmt.isClosed()) {
+			this.statementCacheHits.incrementAndGet();
+			return stmt;
+		}
+		
+		this.statementCacheMisses.incrementAndGet();
+		stmt = callable ? createPreparedCallableStatement(con, sql) : createPreparedStatement(con, sql);
+		PreparedStatement evicted = cache.put(key, stmt);
+		if (evicted != null) {
+			this.statementCacheEvictions.incrementAndGet();
+			closeStatement(evicted);
+		}
 		return stmt;
 	}
 	
+	/**
+	 * Releases a statement that was returned by {@link #getCachedPreparedStatement(Connection, String)}
+	 * or {@link #getCachedCallableStatement(Connection, String)}. The statement stays open
+	 * for the next use if it is cached, otherwise it is closed.
+	 * 
+	 * @param con connection of the statement
+	 * @param sql SQL text of the statement
+	 * @param statement the statement
+	 */
+	public void releaseCachedStatement(Connection con, String sql, PreparedStatement statement) {
+		if (statement == null) {
+			return;
+		}
+		
+		StatementCache cache = this.statementCaches.get(con);
+		if (cache != null && (cache.get(getCacheKey(sql, statement instanceof CallableStatement)) == statement)) {
+			try {
+				statement.clearParameters();
+			} catch (SQLException e) {
+				discardCachedStatement(con, sql, statement);
+			}
+		} else {
+			closeStatement(statement);
+		}
+	}
+	
+	/**
+	 * Removes a statement from the statement cache of the connection and closes it,
+	 * e.g. after it failed
+	 * 
+	 * @param con connection of the statement
+	 * @param sql SQL text of the statement
+	 * @param statement the statement
+	 */
+	public void discardCachedStatement(Connection con, String sql, PreparedStatement statement) {
+		if (statement == null) {
+			return;
+		}
+		
+		StatementCache cache = this.statementCaches.get(con);
+		if (cache != null) {
+			cache.remove(getCacheKey(sql, statement instanceof CallableStatement), statement);
+		}
+		closeStatement(statement);
+	}
+	
+	/**
+	 * Closes all cached statements of the connection. This has to be done before the
+	 * connection is closed.
+	 * 
+	 * @param con the connection
+	 */
+	void closeStatementCache(Connection con) {
+		StatementCache cache = this.statementCaches.remove(con);
+		if (cache != null) {
+			for (PreparedStatement stmt : cache.clear()) {
+				closeStatement(stmt);
+			}
+		}
+	}
+	
+	/**
+	 * @param sql SQL text
+	 * @param callable true for a callable statement
+	 * @return the key of the statement in the statement cache
+	 */
+	private static String getCacheKey(String sql, boolean callable) {
+		return callable ? "CALL:" + sql : sql;
+	}
+	
+	/**
+	 * @return the number of statements that were found in the statement caches
+	 */
+	public long getStatementCacheHits() {
+		return this.statementCacheHits.get();
+	}
+	
+	/**
+	 * @return the number of statements that were not found in the statement caches
+	 */
+	public long getStatementCacheMisses() {
+		return this.statementCacheMisses.get();
+	}
+	
+	/**
+	 * @return the number of statements that were closed to make space in the statement caches
+	 */
+	public long getStatementCacheEvictions() {
+		return this.statementCacheEvictions.get();
+	}
+	
+	/**
+	 * Commits the connection and counts the commit
+	 * 
+	 * @param con the connection
+	 * @throws SQLException the commit failed
+	 */
+	public void commit(Connection con) throws SQLException {
+		con.commit();
+		this.commits.increment();
+	}
+	
+	/**
+	 * Rolls back the connection and counts the rollback
+	 * 
+	 * @param con the connection
+	 * @throws SQLException the rollback failed
+	 */
+	public void rollback(Connection con) throws SQLException {
+		con.rollback();
+		this.rollbacks.increment();
+	}
+	
+	/**
+	 * Counts an executed SQL statement
+	 * 
+	 * @param updateCount the number of inserted, updated or deleted rows, negative if unknown
+	 */
+	public void countStatement(long updateCount) {
+		this.executedStatements.increment();
+		if (updateCount > 0) {
+			this.rowsAffected.add(updateCount);
+		}
+	}
+	
+	/**
+	 * Counts rows that were fetched from a result set
+	 * 
+	 * @param rows the number of rows
+	 */
+	public void countRowsFetched(long rows) {
+		if (rows > 0) {
+			this.rowsFetched.add(rows);
+		}
+	}
+	
+	/**
+	 * Counts a failed SQL statement by its SQLCODE
+	 * 
+	 * @param e the exception of the statement
+	 */
+	public void countSQLError(SQLException e) {
+		Integer sqlCode = Integer.valueOf(e.getErrorCode());
+		StripedCounter counter = this.sqlErrors.get(sqlCode);
+		if (counter == null) {
+			StripedCounter newCounter = new StripedCounter();
+			counter = this.sqlErrors.putIfAbsent(sqlCode, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		counter.increment();
+	}
+	
+	/**
+	 * @return the number of commits
+	 */
+	public long getCommits() {
+		return this.commits.sum();
+	}
+	
+	/**
+	 * @return the number of rollbacks
+	 */
+	public long getRollbacks() {
+		return this.rollbacks.sum();
+	}
+	
+	/**
+	 * @return the number of executed SQL statements
+	 */
+	public long getExecutedStatements() {
+		return this.executedStatements.sum();
+	}
+	
+	/**
+	 * @return the number of rows fetched from result sets
+	 */
+	public long getRowsFetched() {
+		return this.rowsFetched.sum();
+	}
+	
+	/**
+	 * @return the number of rows inserted, updated or deleted
+	 */
+	public long getRowsAffected() {
+		return this.rowsAffected.sum();
+	}
+	
+	/**
+	 * @return the number of failed SQL statements by SQLCODE
+	 */
+	public Map<Integer, Long> getSQLErrors() {
+		Map<Integer, Long> errors = new TreeMap<Integer, Long>();
+		for (Map.Entry<Integer, StripedCounter> entry : this.sqlErrors.entrySet()) {
+			errors.put(entry.getKey(), Long.valueOf(entry.getValue().sum()));
+		}
+		return errors;
+	}
+	
 	/**
 	 * Closes a given connection. Note that this method automatically
 	 * makes a rollback. Thus, if you want to preserve your changes
@@ -525,18 +974,34 @@ public abstract class DB2WklDataSource {
 	 * @param url URL to close the connection for
 	 * @param connection connection to close
 	 */
-	public synchronized void closeConnection(Connection connection) {
+	public void closeConnection(Connection connection) {
+		
+		if (connection == null) {
+			return;
+		}
+		
+		// pooled connections are returned to their pool
+		for (ConnectionPool pool : this.connectionPools.values()) {
+			if (pool.isLeased(connection)) {
+				this.activeConnections.unregister(connection);
+				pool.release(connection);
+				return;
+			}
+		}
+		
+		// the cached statements are kept as long as the physical connection
+		closeStatementCache(connection);
 		
 		try {
 			if (connection != null && connection.isClosed() != true) {
 				try {
-					connection.rollback();
+					rollback(connection);
 				} catch (SQLException e) {
 					Logger.log("There is a problem with in rollback. " + e.getLocalizedMessage(), 
 							LogLevel.Debug);
 				}finally{
 					connection.close();
-					this.activeConnections.remove(connection);
+					this.activeConnections.unregister(connection);
 				}
 			}
 		} catch (SQLException e) {
@@ -549,11 +1014,11 @@ public abstract class DB2WklDataSource {
 	 * 
 	 * @param statement
 	 */
-	public synchronized void closeStatement(Statement statement) {
+	public void closeStatement(Statement statement) {
 		if (statement != null) {
 			try {
 				statement.close();
-				this.activeStatements.remove(statement);
+				this.activeStatements.unregister(statement);
 			} catch (SQLException e) {
 				Logger.log("Could not close the statement: " + e.getLocalizedMessage(), 
 						LogLevel.Warning);
@@ -561,11 +1026,41 @@ public abstract class DB2WklDataSource {
 		}
 	}
 
+	/**
+	 * Cancels all statements that are currently executed, so that the threads that
+	 * wait for them return with an SQLException. The statements stay open, also the cached
+	 * ones, which are closed with their connection.
+	 *
+	 * @return number of statements that were cancelled
+	 */
+	public int cancelStatements() {
+		int cancelled = 0;
+		for (Statement stmt : this.activeStatements.getResources()) {
+			try {
+				if (!stmt.isClosed()) {
+					stmt.cancel();
+					cancelled++;
+				}
+			} catch (SQLException e) {
+				Logger.log("Could not cancel the statement: " + e.getLocalizedMessage(),
+						LogLevel.Debug);
+			}
+		}
+		return cancelled;
+	}
+
 	/**
 	 * Closes all active connections
 	 */
 	public synchronized void terminate() {
-		for (Statement stmt : this.activeStatements) {
+		if (this.leakDetectionTimer != null) {
+			this.leakDetectionTimer.cancel();
+		}
+		
+		for (Connection con : this.statementCaches.keySet()) {
+			closeStatementCache(con);
+		}
+		for (Statement stmt : this.activeStatements.getResources()) {
 			try {
 				if (stmt != null) {
 					stmt.close();
@@ -575,11 +1070,11 @@ public abstract class DB2WklDataSource {
 						LogLevel.Warning);
 			}
 		}
-		for (Connection con : this.activeConnections) {
+		for (Connection con : this.activeConnections.getResources()) {
 			try {
 				if (con != null && con.isClosed() != true) {
 					try {
-						con.rollback();
+						rollback(con);
 						con.close();
 					} catch (SQLException e) {
 						Logger.log("There is a problem in the rollback. " + e.getLocalizedMessage(), 
@@ -592,6 +1087,11 @@ public abstract class DB2WklDataSource {
 		}
 		this.activeStatements.clear();
 		this.activeConnections.clear();
+		
+		for (ConnectionPool pool : this.connectionPools.values()) {
+			pool.close();
+		}
+		this.connectionPools.clear();
 	}
 	
 	/**
@@ -115,7 +115,7 @@ public abstract class DB2zDataSource extends DB2WklDataSource {
 				
 				// execute the statement
 				stmt.execute(statement);
-				con.commit();
+				commit(con);
 				
 				Logger.log("Tablespace " + tsName + " successfully " +
 						"created using the following statement " + statement, 
@@ -129,7 +129,7 @@ public abstract class DB2zDataSource extends DB2WklDataSource {
 				
 				// use the specified database
 				stmt.execute(statement);
-				con.commit();
+				commit(con);
 				
 				Logger.log("Tablespace " + tsName + " successfully " +
 						"created in database " + Request.getOption(Options.DB_DBNAME).toUpperCase(), 
@@ -142,7 +142,7 @@ public abstract class DB2zDataSource extends DB2WklDataSource {
 				
 				// use the default database
 				stmt.execute(statement);
-				con.commit();
+				commit(con);
 				
 				Logger.log("Tablespace " + tsName + " successfully created the default database", 
 						LogLevel.Debug);
@@ -189,7 +189,7 @@ public abstract class DB2zDataSource extends DB2WklDataSource {
 				stmt.execute("DROP TABLESPACE " + tableSpace);
 			}
 			
-			con.commit();
+			commit(con);
 			
 			Logger.log("Removing the table space " + tableSpace + " successful", LogLevel.Debug);
 			
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request.connection;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.Logger;
+
+/**
+ * <p>Keeps track of the open resources (connections or statements) of a request. The
+ * resources are identified by their identity, so registering and unregistering is
+ * O(1) and does not need a global lock.</p>
+ *
+ * <p>A weak registry does not keep its resources alive. Resources that are garbage
+ * collected without being unregistered are removed automatically, which bounds the
+ * registry for workloads that never close their statements.</p>
+ *
+ * <p>If the allocation tracking is enabled, the allocation site of each resource is
+ * kept, so that resources that are open for too long (see {@link #logLeaks(long)})
+ * or that are garbage collected without being closed can be logged with the code
+ * that created them.</p>
+ *
+ * @param <T> type of the resources
+ */
+public class ResourceRegistry<T> {
+
+	/**
+	 * Maximum number of stack elements logged for an allocation site
+	 */
+	private static final int ALLOCATION_SITE_DEPTH = 8;
+
+	/**
+	 * The registered resources
+	 */
+	private final ConcurrentHashMap<ResourceKey<T>, Registration<T>> resources = new ConcurrentHashMap<ResourceKey<T>, Registration<T>>();
+
+	/**
+	 * Queue of the keys whose resources were garbage collected
+	 */
+	private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+
+	/**
+	 * Name of the resource type for the log messages
+	 */
+	private final String type;
+
+	/**
+	 * Whether the resources are only weakly referenced
+	 */
+	private final boolean weak;
+
+	/**
+	 * Whether the allocation sites are kept
+	 */
+	private volatile boolean trackAllocation = false;
+
+	/**
+	 * @param type name of the resource type for the log messages
+	 * @param weak true if the registry should not keep the resources alive
+	 */
+	public ResourceRegistry(String type, boolean weak) {
+		this.type = type;
+		this.weak = weak;
+	}
+
+	/**
+	 * @param trackAllocation true to keep the allocation site of each resource
+	 */
+	public void setTrackAllocation(boolean trackAllocation) {
+		this.trackAllocation = trackAllocation;
+	}
+
+	/**
+	 * Registers a resource. Registering a resource twice has no effect.
+	 *
+	 * @param resource the resource to register
+	 */
+	public void register(T resource) {
+		if (resource == null) {
+			return;
+		}
+		expunge();
+
+		ResourceKey<T> key = new ResourceKey<T>(resource, this.collected);
+		this.resources.putIfAbsent(key, new Registration<T>(this.weak ? null : resource,
+				this.trackAllocation ? new Throwable() : null));
+	}
+
+	/**
+	 * Unregisters a resource
+	 *
+	 * @param resource the resource to unregister
+	 * @return true if the resource was registered
+	 */
+	public boolean unregister(T resource) {
+		if (resource == null) {
+			return false;
+		}
+		return this.resources.remove(new ResourceKey<T>(resource, null)) != null;
+	}
+
+	/**
+	 * @param resource the resource to check
+	 * @return true if the resource is registered
+	 */
+	public boolean contains(T resource) {
+		return resource != null && this.resources.containsKey(new ResourceKey<T>(resource, null));
+	}
+
+	/**
+	 * @return the number of registered resources
+	 */
+	public int size() {
+		expunge();
+		return this.resources.size();
+	}
+
+	/**
+	 * @return a snapshot of all registered resources that are still alive
+	 */
+	public List<T> getResources() {
+		List<T> list = new ArrayList<T>(this.resources.size());
+		for (ResourceKey<T> key : this.resources.keySet()) {
+			T resource = key.get();
+			if (resource != null) {
+				list.add(resource);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Unregisters all resources
+	 */
+	public void clear() {
+		this.resources.clear();
+		while (this.collected.poll() != null) {
+			// drop the keys of resources that were collected in the meantime
+		}
+	}
+
+	/**
+	 * Logs all resources that are registered for longer than the given age together
+	 * with their allocation site. Each resource is logged only once.
+	 *
+	 * @param maxAge the age in milliseconds
+	 */
+	public void logLeaks(long maxAge) {
+		expunge();
+
+		long now = System.currentTimeMillis();
+		for (Registration<T> registration : this.resources.values()) {
+			long age = now - registration.created;
+			if (age > maxAge && !registration.reported) {
+				registration.reported = true;
+				Logger.log("Possible " + this.type + " leak: " + this.type + " is open for " + (age / 1000) +
+						"s. " + getAllocationSite(registration), LogLevel.Warning);
+			}
+		}
+	}
+
+	/**
+	 * Removes the resources that were garbage collected
+	 */
+	private void expunge() {
+		Reference<? extends T> reference;
+		while ((reference = this.collected.poll()) != null) {
+			Registration<T> registration = this.resources.remove(reference);
+			if (registration != null && registration.allocationSite != null) {
+				Logger.log("A " + this.type + " was garbage collected without being closed. " +
+						getAllocationSite(registration), LogLevel.Warning);
+			}
+		}
+	}
+
+	/**
+	 * @param registration the registration of a resource
+	 * @return a description of the allocation site of the resource
+	 */
+	private String getAllocationSite(Registration<T> registration) {
+		StringBuilder builder = new StringBuilder("Allocated by thread " + registration.thread);
+		if (registration.allocationSite != null) {
+			int depth = 0;
+			for (StackTraceElement element : registration.allocationSite.getStackTrace()) {
+				// skip the frames of the connection management itself
+				if (element.getClassName().startsWith(ResourceRegistry.class.getPackage().getName())) {
+					continue;
+				}
+				builder.append(depth == 0 ? " at " : " <- ");
+				builder.append(element.toString());
+				if (++depth == ALLOCATION_SITE_DEPTH) {
+					break;
+				}
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Key of a resource that compares the identity of the resource
+	 *
+	 * @param <T> type of the resource
+	 */
+	private static final class ResourceKey<T> extends WeakReference<T> {
+
+		/**
+		 * Identity hash code of the resource
+		 */
+		private final int hash;
+
+		/**
+		 * @param resource the resource
+		 * @param queue the queue for the key when the resource is collected, may be null
+		 */
+		ResourceKey(T resource, ReferenceQueue<T> queue) {
+			super(resource, queue);
+			this.hash = System.identityHashCode(resource);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof ResourceKey)) {
+				return false;
+			}
+			Object resource = get();
+			return resource != null && resource == ((ResourceKey<?>) o).get();
+		}
+	}
+
+	/**
+	 * Information about a registered resource
+	 *
+	 * @param <T> type of the resource
+	 */
+	private static final class Registration<T> {
+
+		/**
+		 * Strong reference to the resource, null for weak registries
+		 */
+		@SuppressWarnings("unused")
+		final T resource;
+
+		/**
+		 * The allocation site, null if allocation tracking is disabled
+		 */
+		final Throwable allocationSite;
+
+		/**
+		 * Name of the thread that registered the resource
+		 */
+		final String thread;
+
+		/**
+		 * Time of the registration
+		 */
+		final long created;
+
+		/**
+		 * The resource was already logged as leak
+		 */
+		volatile boolean reported = false;
+
+		/**
+		 * @param resource strong reference to the resource or null
+		 * @param allocationSite the allocation site or null
+		 */
+		Registration(T resource, Throwable allocationSite) {
+			this.resource = resource;
+			this.allocationSite = allocationSite;
+			this.thread = Thread.currentThread().getName();
+			this.created = System.currentTimeMillis();
+		}
+	}
+}
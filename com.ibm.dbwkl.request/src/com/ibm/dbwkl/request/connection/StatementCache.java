@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.request.connection;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Caches the prepared and callable statements of one connection by their SQL text.
+ * If the cache is full, the least recently used statement is removed from it. The
+ * caller has to close the statements that are returned by {@link #put(String, PreparedStatement)}
+ * and {@link #clear()}.</p>
+ *
+ * <p>A connection is normally used by one thread at a time, so the cache is only
+ * synchronized to be safe against the cleanup of the data source.</p>
+ */
+public class StatementCache {
+
+	/**
+	 * The cached statements in the order of their use, the least recently used first
+	 */
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	/**
+	 * Maximum number of cached statements
+	 */
+	private final int capacity;
+
+	/**
+	 * @param capacity maximum number of cached statements
+	 */
+	public StatementCache(int capacity) {
+		this.capacity = capacity;
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	}
+
+	/**
+	 * @param sql the SQL text
+	 * @return the cached statement for the SQL text or null
+	 */
+	public synchronized PreparedStatement get(String sql) {
+		return this.statements.get(sql);
+	}
+
+	/**
+	 * Adds a statement to the cache
+	 *
+	 * @param sql the SQL text of the statement
+	 * @param statement the statement
+	 * @return the statement that was removed to make space for the new one or null
+	 */
+	public synchronized PreparedStatement put(String sql, PreparedStatement statement) {
+		PreparedStatement replaced = this.statements.put(sql, statement);
+		if (replaced != null && replaced != statement) {
+			return replaced;
+		}
+
+		if (this.statements.size() > this.capacity) {
+			Iterator<Map.Entry<String, PreparedStatement>> eldest = this.statements.entrySet().iterator();
+			PreparedStatement evicted = eldest.next().getValue();
+			eldest.remove();
+			return evicted;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a statement from the cache, e.g. because it failed
+	 *
+	 * @param sql the SQL text of the statement
+	 * @param statement the statement
+	 * @return true if the statement was cached
+	 */
+	public synchronized boolean remove(String sql, PreparedStatement statement) {
+		if (this.statements.get(sql) == statement) {
+			this.statements.remove(sql);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all statements from the cache
+	 *
+	 * @return the removed statements
+	 */
+	public synchronized List<PreparedStatement> clear() {
+		List<PreparedStatement> removed = new ArrayList<PreparedStatement>(this.statements.values());
+		this.statements.clear();
+		return removed;
+	}
+
+	/**
+	 * @return the number of cached statements
+	 */
+	public synchronized int size() {
+		return this.statements.size();
+	}
+}
@@ -10,9 +10,10 @@
  *******************************************************************************/
 package com.ibm.dbwkl.request.handler;
 
-
+import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.request.ASubRequest;
 import com.ibm.dbwkl.request.DataSourceRequired;
+import com.ibm.dbwkl.request.Logger;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.workloadservice.ADataSourceConsumer;
 import com.ibm.dbwkl.workloadtypes.SQL;
@@ -22,6 +23,11 @@ import com.ibm.staf.STAFResult;
  */
 @DataSourceRequired
 public class SQLHandler extends ASubRequest {
+	
+	/**
+	 * The SQL execution of this handler
+	 */
+	private volatile SQL sql;
     
     /*
      * (non-Javadoc)
@@ -30,11 +36,11 @@ public class SQLHandler extends ASubRequest {
 	@Override
 	public STAFResult acceptRequest() {
 		
-		SQL sql = new SQL(this.getId(), this.url);
+		this.sql = new SQL(this.getId(), this.url);
 		
-		sql.run();
+		this.sql.run();
 		
-		return sql.getResult();
+		return this.sql.getResult();
 	
 	}
 
@@ -51,12 +57,10 @@ public class SQLHandler extends ASubRequest {
 	 */
 	@Override
 	public void stopForce() {
-//		if(this.sqlList!=null) {
-//			for(SQL sql:this.sqlList) {
-//				sql.stop();
-//			}
-//			Logger.log("SQL Execution stopped, the current statements will end now before the duration time is reached.", LogLevel.Info);
-//		}
+		if (this.sql != null) {
+			this.sql.stop();
+			Logger.log("SQL Execution stopped, the current statements will end now before the duration time is reached.", LogLevel.Info);
+		}
 	}
 
 	/*
@@ -10,8 +10,9 @@
  *******************************************************************************/
 package com.ibm.dbwkl.request.handler;
 
-import java.lang.Thread.State;
 import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import com.ibm.dbwkl.helper.StringUtility;
 import com.ibm.dbwkl.logging.LogLevel;
@@ -35,15 +36,47 @@ import com.ibm.staf.STAFResult;
 @DataSourceRequired
 public class WorkloadHandler extends ASubRequest {
 
+	/**
+	 * Time in milliseconds the workload has to end after the STOP command before its
+	 * connections are closed and the handler stops waiting for it
+	 */
+	private static final long STOP_GRACE_PERIOD = 30000;
+	
+	/**
+	 * Timer that tears down the workloads that don't end within the grace period
+	 */
+	private static final Timer stopTimer = new Timer("WorkloadStopTimer", true);
+	
 	/**
 	 * The workload that is executed by this handler
 	 */
-	private AWorkload workload;
+	private volatile AWorkload workload;
 	
 	/**
 	 * The workload thread
 	 */
-	private ManagedFrameworkThread workloadThread;
+	private volatile ManagedFrameworkThread workloadThread;
+	
+	/**
+	 * The thread group of the workload thread and the threads started by the workload
+	 */
+	private ThreadGroup workloadThreadGroup;
+	
+	/**
+	 * The thread that executes this handler and waits for the workload thread or,
+	 * with the CARRIERS option, executes the workload itself
+	 */
+	private volatile Thread handlerThread;
+	
+	/**
+	 * The handler stopped waiting for the workload thread
+	 */
+	private boolean joined = false;
+	
+	/**
+	 * The request received the STOP command
+	 */
+	private volatile boolean stopped = false;
 	
 	/*
 	 * (non-Javadoc)
@@ -90,21 +123,45 @@ public class WorkloadHandler extends ASubRequest {
 				return new STAFResult(STAFResult.JavaError, e.getLocalizedMessage());
 			} 
 			
+			// a subrequest that was queued for a carrier thread doesn't start after the STOP command
+			if (this.stopped) {
+				return new STAFResult(STAFResult.RequestCancelled, "The request was stopped before the workload started");
+			}
+			
 			// set it up
 			this.workload.initialize(this.url, new Long(this.getId()));
 		
-			ThreadGroup workloadThreadGroup = new ThreadGroup(Thread.currentThread().getName());
-			this.workloadThread = new ManagedFrameworkThread(this.workload, workloadThreadGroup);
-			this.workloadThread.start();
+			this.handlerThread = Thread.currentThread();
 			
-			try {
-				// wait for the workload to finish
-				this.workloadThread.join();
+			if (Request.hasOption(Options.THREADED_CARRIERS)) {
 				
-			} catch (Exception e) {
-				// The workload thread was interrupted. This can happen when the request
-				// is stopped via command line.
-				Logger.log("Thread " + this.workloadThread.getName() + " was stopped", LogLevel.Info);
+				// the handler already runs on a carrier thread, so the workload runs in it, too
+				this.workload.run();
+				
+			} else {
+				
+				this.workloadThreadGroup = new ThreadGroup(Thread.currentThread().getName());
+				this.workloadThread = new ManagedFrameworkThread(this.workload, this.workloadThreadGroup);
+				this.workloadThread.start();
+				
+				try {
+					// wait for the workload to finish
+					this.workloadThread.join();
+					
+				} catch (InterruptedException e) {
+					// The workload did not end within the grace period after the request
+					// was stopped via command line.
+					Logger.log("Thread " + this.workloadThread.getName() + " was abandoned", LogLevel.Warning);
+					this.workload.setStatus(WorkloadStatus.STOPPED);
+					this.workload.setResult(new STAFResult(STAFResult.RequestCancelled, 
+							"The workload did not end within " + (STOP_GRACE_PERIOD / 1000) + "s after the STOP command"));
+				}
+			}
+			
+			synchronized (this) {
+				this.joined = true;
+				// clear an interrupt of the teardown that came too late
+				Thread.interrupted();
 			}
 			
 			/* ********************
@@ -149,43 +206,74 @@ public class WorkloadHandler extends ASubRequest {
 	/* (non-Javadoc)
 	 * @see com.ibm.dbwkl.receiver.ASubRequest#isConnectionManagerRequired()
 	 */
-	@SuppressWarnings("deprecation")
 	@Override
 	public void stopForce() {
 		
-		// stop the threads
-		ThreadGroup threadGroup = Thread.currentThread().getThreadGroup();
-		Thread[] threadList = new Thread[threadGroup.activeCount()];
+		this.stopped = true;
 		
-		// Finish all threads in the list which are in the current threadgroup and opened
-		// by the workload as managed threads. This does not include the workload thread
-		// itself as this is a managed framework thread
-		threadGroup.enumerate(threadList);
-		for(Thread thread : threadList){
-			if(!(thread instanceof ManagedFrameworkThread) && thread instanceof ManagedThread && !thread.getName().startsWith("AWT")){
-				Logger.log("Thread "+ thread.getName() + " will stop.", LogLevel.Info);
-				try {
-					if (thread.getState() != State.TERMINATED) {
-						thread.stop();
-					}
-				} catch (ThreadDeath e) {
-					Logger.log("Expected ThreadDeath occurred for thread " + thread.getName(), LogLevel.Info);
-				}
-			}
+		AWorkload stoppingWorkload = this.workload;
+		if (stoppingWorkload == null) {
+			return;
 		}
-			
 		
-		try {
-			
-			// now that all child threads are stopped, stop the workload thread itself
-			this.workloadThread.stop();
+		// tell the workload to stop, it checks the token in its execution loops
+		stoppingWorkload.stop();
+		
+		ManagedFrameworkThread thread = this.workloadThread;
+		if (thread != null) {
 			
-		} catch (ThreadDeath e) {
-			Logger.log("Expected ThreadDeath occurred", LogLevel.Info);
-		}
+			// Interrupt all threads of the workload, so that they don't continue to wait or sleep.
+			// This includes the workload thread itself and the managed threads it opened.
+			Thread[] threadList = new Thread[this.workloadThreadGroup.activeCount() + 1];
+			int count = this.workloadThreadGroup.enumerate(threadList);
+			for (int i = 0; i < count; i++) {
+				if (threadList[i] instanceof ManagedThread && !threadList[i].getName().startsWith("AWT")) {
+					Logger.log("Thread " + threadList[i].getName() + " will stop.", LogLevel.Info);
+					threadList[i].interrupt();
+				}
+			}
 			
+		} else {
 			
+			// the workload runs on a carrier thread, which runs other subrequests afterwards
+			synchronized (this) {
+				if (!this.joined && this.handlerThread != null) {
+					this.handlerThread.interrupt();
+				}
+			}
+		}
 		
+		stopTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				teardown();
+			}
+		}, STOP_GRACE_PERIOD);
+	}
+	
+	/**
+	 * Closes the connections of the request and lets the handler stop waiting for the
+	 * workload thread, if the workload did not end within the grace period
+	 */
+	private void teardown() {
+		synchronized (this) {
+			// the workload didn't start or has ended in the meantime
+			if (this.joined || this.handlerThread == null) {
+				return;
+			}
+		}
+		
+		Logger.log("The workload " + this.workload.getStatusName() + " did not end within " + (STOP_GRACE_PERIOD / 1000) + 
+				"s after the STOP command. Its connections are closed now.", LogLevel.Warning);
+		if (Request.isDataSourceRequired()) {
+			Request.getDataSource().terminate();
+		}
+		
+		synchronized (this) {
+			if (!this.joined) {
+				this.handlerThread.interrupt();
+			}
+		}
 	}
 
 	/*
@@ -11,10 +11,14 @@
 package com.ibm.dbwkl.workloadtypes;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.LatencyRecorder;
 import com.ibm.dbwkl.request.Logger;
 import com.ibm.dbwkl.request.Request;
+import com.ibm.dbwkl.request.StripedCounter;
+import com.ibm.dbwkl.request.Tracer;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.workloadservice.ADataSourceConsumer;
 import com.ibm.staf.STAFResult;
@@ -26,6 +30,16 @@ import com.ibm.staf.STAFResult;
  */
 public abstract class APhaseConsumer extends ADataSourceConsumer {
 
+	/**
+	 * Number of executions of all workloads of the request
+	 */
+	private static final StripedCounter executions = new StripedCounter();
+	
+	/**
+	 * Number of executions of all workloads of the request that failed
+	 */
+	private static final StripedCounter failedExecutions = new StripedCounter();
+	
 	/**
 	 * Initialize the workload. After this method all tables, functions and database object have to be created.
 	 * 
@@ -58,17 +72,35 @@ public abstract class APhaseConsumer extends ADataSourceConsumer {
 	public abstract STAFResult clean();
 
 	/**
-	 * This variable is set outside of the phase consumer when the request
+	 * This token is cancelled outside of the phase consumer when the request
 	 * asks to stop the workload processing.
 	 */
-	private boolean stop = false;
+	private final CancellationToken cancellationToken = new CancellationToken();
 	
 	/**
 	 * Tell the phase consumer to stop processing and go directly from the execute
 	 * phase to the clean phase 
 	 */
 	public void stop() {
-		this.stop = true;
+		this.cancellationToken.cancel();
+	}
+	
+	/**
+	 * <p>Returns the token that is cancelled when the request is stopped. Workloads
+	 * with long running loops or own threads should check it regularly and end their
+	 * execution when it is cancelled.</p>
+	 * 
+	 * @return the cancellation token of this phase consumer
+	 */
+	public final CancellationToken getCancellationToken() {
+		return this.cancellationToken;
+	}
+	
+	/**
+	 * @return true if the request asked to stop the workload processing
+	 */
+	public final boolean isStopped() {
+		return this.cancellationToken.isCancelled();
 	}
 	
 	/**
@@ -83,9 +115,12 @@ public abstract class APhaseConsumer extends ADataSourceConsumer {
 	 */
 	protected final STAFResult performInit() {
 
-		STAFResult res;
-		res = init();
-		return res;
+		long traceStart = Tracer.begin();
+		try {
+			return init();
+		} finally {
+			Tracer.end(Tracer.PHASE, "INIT", traceStart);
+		}
 	}
 	
 	/**
@@ -100,78 +135,239 @@ public abstract class APhaseConsumer extends ADataSourceConsumer {
 	 */
 	protected final STAFResult performExecute() {
 
-		STAFResult res = null;
+		long traceStart = Tracer.begin();
+		try {
+			STAFResult res = null;
 		
-		// handle REPEAT and DURATION option here
-		if (Request.hasOption(Options.THREADED_DURATION)) {
+			// handle RATE, REPEAT and DURATION option here
+			if (Request.hasOption(Options.THREADED_RATE)) {
 			
-			try {
-				// get the times
-				int durationInMinutes = Integer.parseInt(Request.getOption(Options.THREADED_DURATION));
-				int duration = durationInMinutes * 60 * 1000;
-				long startTime = System.currentTimeMillis();
-				long endTime = startTime + duration;
+				res = performRateControlledExecute();
+			
+			} else if (Request.hasOption(Options.THREADED_DURATION)) {
+			
+				try {
+					// get the times
+					int durationInMinutes = Integer.parseInt(Request.getOption(Options.THREADED_DURATION));
+					int duration = durationInMinutes * 60 * 1000;
+					long startTime = System.currentTimeMillis();
+					long endTime = startTime + duration;
 				
-				Logger.log("End time: " + new Date(endTime).toString(), LogLevel.Debug);
+					Logger.log("End time: " + new Date(endTime).toString(), LogLevel.Debug);
 				
-				// use duration time
-				int cnt = 0;
-				do {
-					res = execute();
-					if (res.rc != STAFResult.Ok) {
-						Logger.log("An error occurred during execution after " + 
-								(System.currentTimeMillis() - startTime) +
-								"ms of " + duration + "ms. Worked for " + cnt + " times", LogLevel.Error);
-						break;
-					}
-					cnt++;
-				} while (System.currentTimeMillis() < endTime && this.stop == false);
+					// use duration time
+					int cnt = 0;
+					do {
+						res = timedExecute();
+						if (res.rc != STAFResult.Ok) {
+							Logger.log("An error occurred during execution after " + 
+									(System.currentTimeMillis() - startTime) +
+									"ms of " + duration + "ms. Worked for " + cnt + " times", LogLevel.Error);
+							break;
+						}
+						cnt++;
+					} while (System.currentTimeMillis() < endTime && !isStopped());
 				
-				Logger.log("Executed for " + cnt + " times", LogLevel.Info);
+					Logger.log("Executed for " + cnt + " times", LogLevel.Info);
 				
-			} catch (NumberFormatException e) {
-				String msg = "Invalid number as duration time: " + Request.getOption(Options.THREADED_DURATION);
-				Logger.log(msg, LogLevel.Error);
-				res = new STAFResult(STAFResult.JavaError, msg);
-			}
+				} catch (NumberFormatException e) {
+					String msg = "Invalid number as duration time: " + Request.getOption(Options.THREADED_DURATION);
+					Logger.log(msg, LogLevel.Error);
+					res = new STAFResult(STAFResult.JavaError, msg);
+				}
 			
-		} else if (Request.hasOption(Options.THREADED_REPEAT)) {
+			} else if (Request.hasOption(Options.THREADED_REPEAT)) {
 			
-			// use number of repeats
-			int repeat;
-			try {
-				repeat = Integer.parseInt(Request.getOption(Options.THREADED_REPEAT));
+				// use number of repeats
+				int repeat;
+				try {
+					repeat = Integer.parseInt(Request.getOption(Options.THREADED_REPEAT));
 			
-				int cnt = 0;
-				for (int i = 0; i < repeat; i++) {
-					res = execute();
-					if (res.rc != STAFResult.Ok) {
-						Logger.log("An error occurred during execution after " + i + " repeats", LogLevel.Error);
-						break;
-					}
-					cnt++;
+					int cnt = 0;
+					for (int i = 0; i < repeat; i++) {
+						res = timedExecute();
+						if (res.rc != STAFResult.Ok) {
+							Logger.log("An error occurred during execution after " + i + " repeats", LogLevel.Error);
+							break;
+						}
+						cnt++;
 					
-					if (this.stop)
-						break;
-				}
+						if (isStopped())
+							break;
+					}
 				
-				Logger.log("Executed for " + cnt + " times", LogLevel.Info);
+					Logger.log("Executed for " + cnt + " times", LogLevel.Info);
 			
-			} catch (NumberFormatException e) {
-				String msg = "Invalid number as number of repeats: " + Request.getOption(Options.THREADED_REPEAT);
-				Logger.log(msg, LogLevel.Error);
-				res = new STAFResult(STAFResult.JavaError, msg);
-			}
+				} catch (NumberFormatException e) {
+					String msg = "Invalid number as number of repeats: " + Request.getOption(Options.THREADED_REPEAT);
+					Logger.log(msg, LogLevel.Error);
+					res = new STAFResult(STAFResult.JavaError, msg);
+				}
 			
-		} else {
+			} else {
 			
-			// just execute it once
-			res = execute();
+				// just execute it once
+				res = timedExecute();
 			
+			}
+		
+			return res;
+		} finally {
+			Tracer.end(Tracer.PHASE, "EXECUTE", traceStart);
+		}
+	}
+	
+	/**
+	 * Calls the execute method and records its latency
+	 * 
+	 * @return result of execution
+	 */
+	private STAFResult timedExecute() {
+		long start = System.nanoTime();
+		STAFResult res = execute();
+		LatencyRecorder.record(LatencyRecorder.EXECUTE, System.nanoTime() - start);
+		countExecution(res);
+		return res;
+	}
+	
+	/**
+	 * Counts an execution of the workload
+	 * 
+	 * @param res result of the execution
+	 */
+	private static void countExecution(STAFResult res) {
+		executions.increment();
+		if (res == null || res.rc != STAFResult.Ok) {
+			failedExecutions.increment();
+		}
+	}
+	
+	/**
+	 * @return the number of executions of all workloads of the request
+	 */
+	public static long getExecutions() {
+		return executions.sum();
+	}
+	
+	/**
+	 * @return the number of executions of all workloads of the request that failed
+	 */
+	public static long getFailedExecutions() {
+		return failedExecutions.sum();
+	}
+	
+	/**
+	 * <p>Executes the workload in the rate controlled (open-loop) mode. The executions
+	 * are started on the arrival times of the schedule that is shared by all instances
+	 * of the request, independent of how long the previous executions took. The
+	 * execution ends when the DURATION is over, the number of REPEATs is reached or
+	 * the request is stopped.</p>
+	 * 
+	 * @return result of execution
+	 */
+	private STAFResult performRateControlledExecute() {
+		
+		double rate;
+		ArrivalProfile profile = ArrivalProfile.CONSTANT;
+		double rampUp = 0;
+		long endTime = Long.MAX_VALUE;
+		int repeat = Integer.MAX_VALUE;
+		
+		try {
+			rate = Double.parseDouble(Request.getOption(Options.THREADED_RATE));
+			if (rate <= 0) {
+				throw new NumberFormatException();
+			}
+		} catch (NumberFormatException e) {
+			String msg = "Invalid number as rate: " + Request.getOption(Options.THREADED_RATE);
+			Logger.log(msg, LogLevel.Error);
+			return new STAFResult(STAFResult.JavaError, msg);
+		}
+		
+		if (Request.hasOption(Options.THREADED_RATE_PROFILE)) {
+			profile = ArrivalProfile.getProfile(Request.getOption(Options.THREADED_RATE_PROFILE));
+			if (profile == null) {
+				String msg = "Invalid rate profile: " + Request.getOption(Options.THREADED_RATE_PROFILE);
+				Logger.log(msg, LogLevel.Error);
+				return new STAFResult(STAFResult.JavaError, msg);
+			}
+		}
+		
+		try {
+			if (Request.hasOption(Options.THREADED_RAMPUP)) {
+				rampUp = Double.parseDouble(Request.getOption(Options.THREADED_RAMPUP));
+			}
+		} catch (NumberFormatException e) {
+			String msg = "Invalid number as ramp up time: " + Request.getOption(Options.THREADED_RAMPUP);
+			Logger.log(msg, LogLevel.Error);
+			return new STAFResult(STAFResult.JavaError, msg);
+		}
+		
+		try {
+			if (Request.hasOption(Options.THREADED_DURATION)) {
+				int durationInMinutes = Integer.parseInt(Request.getOption(Options.THREADED_DURATION));
+				endTime = System.nanoTime() + TimeUnit.MINUTES.toNanos(durationInMinutes);
+			}
+		} catch (NumberFormatException e) {
+			String msg = "Invalid number as duration time: " + Request.getOption(Options.THREADED_DURATION);
+			Logger.log(msg, LogLevel.Error);
+			return new STAFResult(STAFResult.JavaError, msg);
+		}
+		
+		try {
+			if (Request.hasOption(Options.THREADED_REPEAT)) {
+				repeat = Integer.parseInt(Request.getOption(Options.THREADED_REPEAT));
+			}
+		} catch (NumberFormatException e) {
+			String msg = "Invalid number as number of repeats: " + Request.getOption(Options.THREADED_REPEAT);
+			Logger.log(msg, LogLevel.Error);
+			return new STAFResult(STAFResult.JavaError, msg);
+		}
+		
+		STAFResult res = new STAFResult(STAFResult.Ok);
+		ArrivalSchedule schedule = ArrivalSchedule.join(rate, profile, rampUp);
+		
+		int cnt = 0;
+		try {
+			while (cnt < repeat && !isStopped()) {
+				
+				long scheduledStart = schedule.nextArrival();
+				if (scheduledStart - endTime >= 0) {
+					break;
+				}
+				
+				schedule.awaitArrival(scheduledStart);
+				if (isStopped()) {
+					break;
+				}
+				
+				long actualStart = System.nanoTime();
+				schedule.executionStarted(scheduledStart, actualStart);
+				
+				res = execute();
+				
+				// the latency includes the time the execution was late to avoid coordinated omission
+				long end = System.nanoTime();
+				LatencyRecorder.record(LatencyRecorder.EXECUTE, end - scheduledStart);
+				schedule.executionFinished(scheduledStart, actualStart, end);
+				countExecution(res);
+				
+				if (res.rc != STAFResult.Ok) {
+					Logger.log("An error occurred during rate controlled execution after " + cnt + " executions", LogLevel.Error);
+					break;
+				}
+				cnt++;
+			}
+		} catch (InterruptedException e) {
+			Logger.log("Rate controlled execution was interrupted after " + cnt + " executions", LogLevel.Info);
+		} finally {
+			schedule.leave();
 		}
 		
+		Logger.log("Executed for " + cnt + " times", LogLevel.Info);
+		
 		return res;
-	}	
+	}
 
 	/**
 	 * <p><b>This method will...</b></p>
@@ -185,9 +381,12 @@ public abstract class APhaseConsumer extends ADataSourceConsumer {
 	 */
 	public final STAFResult performClean() {
 
-		STAFResult res;
-		res = clean();
-		return res;
+		long traceStart = Tracer.begin();
+		try {
+			return clean();
+		} finally {
+			Tracer.end(Tracer.PHASE, "CLEAN", traceStart);
+		}
 	}
 	
 }
\ No newline at end of file
@@ -199,7 +199,7 @@ public abstract class AStaticWorkload extends APhaseConsumer {
 		cstmt.setString(1, "FREE PACKAGE (" + collection + ".*.(*))");
 		cstmt.execute();
 
-		con.commit();
+		Request.getDataSource().commit(con);
 		
 		Request.getDataSource().closeConnection(con);
 	}
@@ -153,6 +153,18 @@ public abstract class AStoredProceduresModule extends APhaseConsumer implements
 			
 			this.result = new STAFResult(STAFResult.JavaError, e.getLocalizedMessage()); 
 		}
+		finally {
+			release();
+		}
+	}
+	
+	/**
+	 * <p>This method will be called at the end of the run in <b>any case</b>, even if the clean method was
+	 * skipped with the NOCLEAN option or the module failed. It releases the resources of the module like
+	 * open files.</p>
+	 */
+	protected void release() {
+		// nothing to release by default
 	}
 	
 	/**
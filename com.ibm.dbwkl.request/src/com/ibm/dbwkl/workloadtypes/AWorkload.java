@@ -524,6 +524,11 @@ public abstract class AWorkload extends AStaticWorkload implements Runnable {
 			/* ********************
 			 * EXECUTE
 			 * *******************/
+			if (isStopped()) {
+				workloadStopped();
+				return;
+			}
+			
 			if(!Request.hasOption(Options.WKL_NO_EXECUTE)) {
 				
 				this.setStatus(WorkloadStatus.EXECUTE);
@@ -532,6 +537,12 @@ public abstract class AWorkload extends AStaticWorkload implements Runnable {
 				this.setResult(res);
 				
 				this.eCount++;
+				
+				// errors caused by cancelled statements are expected when the request is stopped
+				if (isStopped()) {
+					workloadStopped();
+					return;
+				}
 					
 				if (res.rc != STAFResult.Ok) { 
 					workloadRunFailed();
@@ -540,6 +551,12 @@ public abstract class AWorkload extends AStaticWorkload implements Runnable {
 			}
 		} catch (Exception e){
 			
+			if (isStopped()) {
+				Logger.log("Exception while the workload is stopping: " + e.getLocalizedMessage(), LogLevel.Debug);
+				workloadStopped();
+				return;
+			}
+			
 			this.setStatus(WorkloadStatus.ABEND);
 			Logger.log("There is an exception in the workloadStatus. " + this.getStatus(), LogLevel.Debug);
 			Logger.logException(e);
@@ -547,14 +564,17 @@ public abstract class AWorkload extends AStaticWorkload implements Runnable {
 			workloadRunFailed();
 			
 			this.setResult(new STAFResult(STAFResult.JavaError, e.getLocalizedMessage()));
-			
-		} catch (ThreadDeath e) {
-			
-			// this exception is thrown when the thread is stopped using the Thread.stop() method
-			this.setStatus(WorkloadStatus.STOPPED);			
-			Logger.log("The workload is stopping because the request received the STOP command", LogLevel.Info);
-			
-			this.setResult(new STAFResult(STAFResult.RequestCancelled));
 		}
 	}
+	
+	/**
+	 * <p>Marks the workload as stopped after it ended its execution because the request
+	 * received the STOP command.</p>
+	 */
+	private void workloadStopped() {
+		this.setStatus(WorkloadStatus.STOPPED);
+		Logger.log("The workload is stopping because the request received the STOP command", LogLevel.Info);
+		
+		this.setResult(new STAFResult(STAFResult.RequestCancelled));
+	}
 }
\ No newline at end of file
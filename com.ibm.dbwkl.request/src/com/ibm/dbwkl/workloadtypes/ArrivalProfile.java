@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+/**
+ * <p>The distribution of the inter-arrival times used by the rate controlled
+ * (open-loop) execution mode. A linear ramp can be combined with each profile
+ * using the RAMPUP option.</p>
+ */
+public enum ArrivalProfile {
+
+	/**
+	 * Executions arrive in fixed intervals of 1/rate seconds
+	 */
+	CONSTANT,
+
+	/**
+	 * Executions arrive with exponentially distributed intervals and a mean
+	 * of 1/rate seconds (Poisson process)
+	 */
+	POISSON;
+
+	/**
+	 * Returns the profile for the given name ignoring the case
+	 *
+	 * @param name the name of the profile
+	 * @return the profile or null if there is no profile with that name
+	 */
+	public static ArrivalProfile getProfile(String name) {
+		for (ArrivalProfile profile : values()) {
+			if (profile.name().equalsIgnoreCase(name.trim())) {
+				return profile;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.Logger;
+
+/**
+ * <p>Schedules the executions of the rate controlled (open-loop) mode. There is
+ * one schedule per request, which is shared by all instances of the request. Each
+ * instance takes the next arrival from the schedule, waits until the arrival time
+ * is reached and executes then.</p>
+ *
+ * <p>The schedule is independent from the response time of the database. If the
+ * instances cannot keep up with the target rate, the executions start later than
+ * they were scheduled. The response time is therefore measured from the scheduled
+ * start and not from the actual start, so that the waiting time is not hidden
+ * (coordinated omission). The executions which are due but not started yet are
+ * reported as backlog.</p>
+ *
+ * <p>The arrivals are generated on a unit-rate time line (one unit per execution
+ * for CONSTANT, exponentially distributed units for POISSON) that is mapped to the
+ * wall clock by the inverse of the cumulative rate function. This way a ramp up
+ * changes the rate without changing the profile.</p>
+ */
+public class ArrivalSchedule {
+
+	/**
+	 * The schedule of the current request
+	 */
+	private static ArrivalSchedule schedule;
+
+	/**
+	 * Target rate in executions per second
+	 */
+	private final double rate;
+
+	/**
+	 * Profile of the inter-arrival times
+	 */
+	private final ArrivalProfile profile;
+
+	/**
+	 * Time in seconds to ramp up linearly from 0 to the target rate
+	 */
+	private final double rampUp;
+
+	/**
+	 * Start of the schedule (System.nanoTime)
+	 */
+	private final long startTime;
+
+	/**
+	 * Position of the next arrival on the unit-rate time line
+	 */
+	private double nextArrival = 0;
+
+	/**
+	 * Random number generator for the POISSON profile
+	 */
+	private final Random random = new Random();
+
+	/**
+	 * Number of instances that are currently using the schedule
+	 */
+	private int participants = 0;
+
+	/**
+	 * Number of started executions
+	 */
+	private final AtomicLong started = new AtomicLong();
+
+	/**
+	 * Number of finished executions
+	 */
+	private final AtomicLong finished = new AtomicLong();
+
+	/**
+	 * Sum of the delays between scheduled and actual start in nanoseconds
+	 */
+	private final AtomicLong totalStartDelay = new AtomicLong();
+
+	/**
+	 * Maximum delay between scheduled and actual start in nanoseconds
+	 */
+	private final AtomicLong maxStartDelay = new AtomicLong();
+
+	/**
+	 * Sum of the service times (actual start to end) in nanoseconds
+	 */
+	private final AtomicLong totalServiceTime = new AtomicLong();
+
+	/**
+	 * Sum of the response times (scheduled start to end) in nanoseconds
+	 */
+	private final AtomicLong totalResponseTime = new AtomicLong();
+
+	/**
+	 * Maximum response time (scheduled start to end) in nanoseconds
+	 */
+	private final AtomicLong maxResponseTime = new AtomicLong();
+
+	/**
+	 * @param rate target rate in executions per second
+	 * @param profile profile of the inter-arrival times
+	 * @param rampUp time in seconds to reach the target rate
+	 */
+	private ArrivalSchedule(double rate, ArrivalProfile profile, double rampUp) {
+		this.rate = rate;
+		this.profile = profile;
+		this.rampUp = rampUp;
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Registers an instance at the schedule of the current request. The schedule is
+	 * created by the first instance, all other instances join the existing schedule.
+	 *
+	 * @param rate target rate in executions per second for all instances
+	 * @param profile profile of the inter-arrival times
+	 * @param rampUp time in seconds to reach the target rate
+	 * @return the schedule of the current request
+	 */
+	public static synchronized ArrivalSchedule join(double rate, ArrivalProfile profile, double rampUp) {
+		if (schedule == null) {
+			schedule = new ArrivalSchedule(rate, profile, rampUp);
+			Logger.log("Rate controlled execution with " + rate + " executions per second (" + profile +
+					(rampUp > 0 ? ", ramp up in " + rampUp + "s" : "") + ")", LogLevel.Info);
+		}
+		schedule.participants++;
+		return schedule;
+	}
+
+	/**
+	 * Unregisters an instance from the schedule. The summary is logged when the last
+	 * instance has left the schedule.
+	 */
+	public void leave() {
+		synchronized (ArrivalSchedule.class) {
+			this.participants--;
+			if (this.participants > 0) {
+				return;
+			}
+			if (schedule == this) {
+				schedule = null;
+			}
+		}
+
+		long count = this.finished.get();
+		double mean = count == 0 ? 0 : 1.0 / count;
+		Logger.log("Rate controlled execution: target rate = " + this.rate + "/s" +
+				"; achieved rate = " + String.format("%.2f", getAchievedRate()) + "/s" +
+				"; executions = " + count +
+				"; backlog = " + getBacklog() +
+				"; avg start delay = " + toMillis(this.totalStartDelay.get() * mean) + "ms" +
+				"; max start delay = " + toMillis(this.maxStartDelay.get()) + "ms" +
+				"; avg service time = " + toMillis(this.totalServiceTime.get() * mean) + "ms" +
+				"; avg response time = " + toMillis(this.totalResponseTime.get() * mean) + "ms" +
+				"; max response time = " + toMillis(this.maxResponseTime.get()) + "ms", LogLevel.Info);
+	}
+
+	/**
+	 * @return the schedule of the current request or null if the request does not
+	 * run in the rate controlled mode
+	 */
+	public static synchronized ArrivalSchedule getSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Takes the next arrival from the schedule.
+	 *
+	 * @return the scheduled start of the next execution (System.nanoTime)
+	 */
+	public synchronized long nextArrival() {
+		double seconds = toSeconds(this.nextArrival);
+
+		if (this.profile == ArrivalProfile.POISSON) {
+			this.nextArrival += -Math.log(1.0 - this.random.nextDouble());
+		} else {
+			this.nextArrival += 1.0;
+		}
+
+		return this.startTime + (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/**
+	 * Waits until the scheduled start is reached. Returns immediately if the
+	 * scheduled start is already in the past.
+	 *
+	 * @param scheduledStart the scheduled start (System.nanoTime)
+	 * @throws InterruptedException
+	 */
+	public void awaitArrival(long scheduledStart) throws InterruptedException {
+		long wait = scheduledStart - System.nanoTime();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Marks the start of an execution
+	 *
+	 * @param scheduledStart the scheduled start (System.nanoTime)
+	 * @param actualStart the actual start (System.nanoTime)
+	 */
+	public void executionStarted(long scheduledStart, long actualStart) {
+		this.started.incrementAndGet();
+
+		long delay = Math.max(0, actualStart - scheduledStart);
+		this.totalStartDelay.addAndGet(delay);
+		updateMaximum(this.maxStartDelay, delay);
+	}
+
+	/**
+	 * Marks the end of an execution
+	 *
+	 * @param scheduledStart the scheduled start (System.nanoTime)
+	 * @param actualStart the actual start (System.nanoTime)
+	 * @param end the end of the execution (System.nanoTime)
+	 */
+	public void executionFinished(long scheduledStart, long actualStart, long end) {
+		this.finished.incrementAndGet();
+
+		long responseTime = end - Math.min(scheduledStart, actualStart);
+		this.totalServiceTime.addAndGet(end - actualStart);
+		this.totalResponseTime.addAndGet(responseTime);
+		updateMaximum(this.maxResponseTime, responseTime);
+	}
+
+	/**
+	 * @return the target rate in executions per second
+	 */
+	public double getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * @return the achieved rate in executions per second since the start of the schedule
+	 */
+	public double getAchievedRate() {
+		double elapsed = (System.nanoTime() - this.startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+		return elapsed <= 0 ? 0 : this.finished.get() / elapsed;
+	}
+
+	/**
+	 * @return the number of executions that should have been started by now but
+	 * are not started yet
+	 */
+	public long getBacklog() {
+		double elapsed = (System.nanoTime() - this.startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+		return Math.max(0, (long) Math.floor(toArrivals(elapsed)) - this.started.get());
+	}
+
+	/**
+	 * Maps a position on the unit-rate time line to the seconds since the start
+	 * of the schedule.
+	 *
+	 * @param arrivals position on the unit-rate time line
+	 * @return the seconds since the start
+	 */
+	private double toSeconds(double arrivals) {
+		if (this.rampUp > 0 && arrivals < this.rate * this.rampUp / 2) {
+			return Math.sqrt(2 * this.rampUp * arrivals / this.rate);
+		}
+		return this.rampUp / 2 + arrivals / this.rate;
+	}
+
+	/**
+	 * Maps the seconds since the start of the schedule to the expected number of
+	 * arrivals. This is the inverse of {@link #toSeconds(double)}.
+	 *
+	 * @param seconds the seconds since the start
+	 * @return the expected number of arrivals
+	 */
+	private double toArrivals(double seconds) {
+		if (this.rampUp > 0 && seconds < this.rampUp) {
+			return this.rate * seconds * seconds / (2 * this.rampUp);
+		}
+		return this.rate * (seconds - this.rampUp / 2);
+	}
+
+	/**
+	 * Sets the maximum to the given value if the value is greater
+	 *
+	 * @param maximum the maximum
+	 * @param value the new value
+	 */
+	private static void updateMaximum(AtomicLong maximum, long value) {
+		long current;
+		while ((current = maximum.get()) < value) {
+			if (maximum.compareAndSet(current, value)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @param nanos a time in nanoseconds
+	 * @return the time in milliseconds formatted with two digits
+	 */
+	private static String toMillis(double nanos) {
+		return String.format("%.2f", nanos / TimeUnit.MILLISECONDS.toNanos(1));
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Tells a workload that the request was stopped. The token is cancelled once by the
+ * framework and can be checked by the workload in its loops. Workloads should use
+ * {@link #sleep(long)} instead of <code>Thread.sleep(...)</code>, so that they wake up
+ * as soon as the request is stopped.</p>
+ */
+public class CancellationToken {
+
+	/**
+	 * Released when the token is cancelled
+	 */
+	private final CountDownLatch cancelled = new CountDownLatch(1);
+
+	/**
+	 * Cancels the token. Cancelling it again has no effect.
+	 */
+	public void cancel() {
+		this.cancelled.countDown();
+	}
+
+	/**
+	 * @return true if the token was cancelled
+	 */
+	public boolean isCancelled() {
+		return this.cancelled.getCount() == 0;
+	}
+
+	/**
+	 * Sleeps for the given time or until the token is cancelled
+	 *
+	 * @param millis the time to sleep in milliseconds
+	 * @return true if the time is over, false if the token was cancelled or the thread was interrupted
+	 */
+	public boolean sleep(long millis) {
+		try {
+			return !this.cancelled.await(millis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Distribution of random values within a range [min, max]. A distribution has no state
+ * that depends on the thread, the caller passes the random number generator of its thread.</p>
+ *
+ * <p>The distributions are created by their specification:</p>
+ * <ul>
+ * 		<li><code>uniform</code> - all values have the same probability</li>
+ * 		<li><code>sequential</code> - the values one after the other, starting again with min after max</li>
+ * 		<li><code>zipfian[:theta]</code> - small values are more frequent, theta in (0, 1) is the skew, default 0.99</li>
+ * 		<li><code>nurand[:A]</code> - the non-uniform random distribution of TPC-C with the constant A, default 255</li>
+ * </ul>
+ */
+public abstract class Distribution {
+
+	/**
+	 * Default skew of the zipfian distribution
+	 */
+	public static final double DEFAULT_THETA = 0.99;
+
+	/**
+	 * Default constant A of the NURand distribution
+	 */
+	public static final int DEFAULT_NURAND_A = 255;
+
+	/**
+	 * The smallest value
+	 */
+	protected final long min;
+
+	/**
+	 * The number of values
+	 */
+	protected final long items;
+
+	/**
+	 * @param min the smallest value
+	 * @param max the largest value
+	 */
+	protected Distribution(long min, long max) {
+		if (max < min) {
+			throw new IllegalArgumentException("The maximum " + max + " is smaller than the minimum " + min);
+		}
+		this.min = min;
+		this.items = max - min + 1;
+	}
+
+	/**
+	 * @param random the random number generator of the current thread
+	 * @return the next value
+	 */
+	public abstract long next(Random random);
+
+	/**
+	 * Creates a distribution by its specification
+	 *
+	 * @param specification the specification, e.g. <code>zipfian:0.8</code>, null for uniform
+	 * @param min the smallest value
+	 * @param max the largest value
+	 * @param seed the seed for constants of the distribution
+	 * @return the distribution
+	 * @throws IllegalArgumentException if the specification is invalid
+	 */
+	public static Distribution create(String specification, long min, long max, long seed) {
+		if (specification == null || specification.trim().length() == 0) {
+			return new Uniform(min, max);
+		}
+
+		String name = specification.trim().toLowerCase();
+		String argument = null;
+		int colon = name.indexOf(':');
+		if (colon >= 0) {
+			argument = name.substring(colon + 1).trim();
+			name = name.substring(0, colon).trim();
+		}
+
+		try {
+			if (name.equals("uniform")) {
+				return new Uniform(min, max);
+			} else if (name.equals("sequential")) {
+				return new Sequential(min, max);
+			} else if (name.equals("zipfian")) {
+				return new Zipfian(min, max, argument == null ? DEFAULT_THETA : Double.parseDouble(argument));
+			} else if (name.equals("nurand")) {
+				return new NURand(min, max, argument == null ? DEFAULT_NURAND_A : Integer.parseInt(argument), seed);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number in the distribution " + specification);
+		}
+		throw new IllegalArgumentException("Unknown distribution " + specification);
+	}
+
+	/**
+	 * @param random the random number generator
+	 * @param bound the number of values
+	 * @return a uniformly distributed value in [0, bound)
+	 */
+	protected static long nextLong(Random random, long bound) {
+		if (bound <= Integer.MAX_VALUE) {
+			return random.nextInt((int) bound);
+		}
+		return (long) (random.nextDouble() * bound);
+	}
+
+	/**
+	 * All values have the same probability
+	 */
+	private static final class Uniform extends Distribution {
+
+		/**
+		 * @param min the smallest value
+		 * @param max the largest value
+		 */
+		Uniform(long min, long max) {
+			super(min, max);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.ibm.dbwkl.workloadtypes.Distribution#next(java.util.Random)
+		 */
+		@Override
+		public long next(Random random) {
+			return this.min + nextLong(random, this.items);
+		}
+	}
+
+	/**
+	 * The values one after the other, shared by all threads
+	 */
+	private static final class Sequential extends Distribution {
+
+		/**
+		 * The number of values returned so far
+		 */
+		private final AtomicLong counter = new AtomicLong();
+
+		/**
+		 * @param min the smallest value
+		 * @param max the largest value
+		 */
+		Sequential(long min, long max) {
+			super(min, max);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.ibm.dbwkl.workloadtypes.Distribution#next(java.util.Random)
+		 */
+		@Override
+		public long next(Random random) {
+			long offset = this.counter.getAndIncrement() % this.items;
+			return this.min + (offset < 0 ? offset + this.items : offset);
+		}
+	}
+
+	/**
+	 * Zipfian distribution after Gray et al., "Quickly Generating Billion-Record Synthetic
+	 * Databases". The smallest value is the most frequent one.
+	 */
+	private static final class Zipfian extends Distribution {
+
+		/**
+		 * Number of terms of the zeta function that are summed up exactly
+		 */
+		private static final long EXACT_TERMS = 100000;
+
+		/**
+		 * zeta(items, theta)
+		 */
+		private final double zetan;
+
+		/**
+		 * 1 / (1 - theta)
+		 */
+		private final double alpha;
+
+		/**
+		 * Constant eta of the algorithm
+		 */
+		private final double eta;
+
+		/**
+		 * Probability limit of the second value
+		 */
+		private final double secondLimit;
+
+		/**
+		 * @param min the smallest value
+		 * @param max the largest value
+		 * @param theta the skew in (0, 1)
+		 */
+		Zipfian(long min, long max, double theta) {
+			super(min, max);
+			if (theta <= 0 || theta >= 1) {
+				throw new IllegalArgumentException("The skew of the zipfian distribution has to be between 0 and 1");
+			}
+			this.zetan = zeta(this.items, theta);
+			this.alpha = 1.0 / (1.0 - theta);
+			this.eta = (1 - Math.pow(2.0 / this.items, 1 - theta)) / (1 - zeta(2, theta) / this.zetan);
+			this.secondLimit = 1.0 + Math.pow(0.5, theta);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.ibm.dbwkl.workloadtypes.Distribution#next(java.util.Random)
+		 */
+		@Override
+		public long next(Random random) {
+			double u = random.nextDouble();
+			double uz = u * this.zetan;
+			if (uz < 1.0 || this.items == 1) {
+				return this.min;
+			}
+			if (uz < this.secondLimit) {
+				return this.min + 1;
+			}
+			long offset = (long) (this.items * Math.pow(this.eta * u - this.eta + 1, this.alpha));
+			return this.min + Math.min(offset, this.items - 1);
+		}
+
+		/**
+		 * Calculates the sum of 1 / i^theta for i from 1 to n. The first terms are summed
+		 * up exactly, the rest is approximated with the integral.
+		 *
+		 * @param n the number of terms
+		 * @param theta the skew
+		 * @return the sum
+		 */
+		private static double zeta(long n, double theta) {
+			long exact = Math.min(n, EXACT_TERMS);
+			double sum = 0;
+			for (long i = 1; i <= exact; i++) {
+				sum += 1.0 / Math.pow(i, theta);
+			}
+			if (n > exact) {
+				// Euler-Maclaurin: integral from exact to n plus the correction of the end points
+				sum += (Math.pow(n, 1 - theta) - Math.pow(exact, 1 - theta)) / (1 - theta);
+				sum += (Math.pow(n, -theta) - Math.pow(exact, -theta)) / 2;
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * Non-uniform random distribution NURand(A, x, y) of the TPC-C benchmark
+	 */
+	private static final class NURand extends Distribution {
+
+		/**
+		 * The constant A
+		 */
+		private final int a;
+
+		/**
+		 * The constant C, chosen randomly once
+		 */
+		private final long c;
+
+		/**
+		 * @param min the smallest value
+		 * @param max the largest value
+		 * @param a the constant A
+		 * @param seed the seed for the constant C
+		 */
+		NURand(long min, long max, int a, long seed) {
+			super(min, max);
+			if (a <= 0) {
+				throw new IllegalArgumentException("The constant A of the NURand distribution has to be greater than 0");
+			}
+			this.a = a;
+			this.c = new Random(seed).nextInt(a + 1);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.ibm.dbwkl.workloadtypes.Distribution#next(java.util.Random)
+		 */
+		@Override
+		public long next(Random random) {
+			long value = (random.nextInt(this.a + 1) | nextLong(random, this.items)) + this.c;
+			return this.min + value % this.items;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+/**
+ * <p>The way the SQL action consumes the result sets of its queries. Except for
+ * {@link #SAMPLE}, all rows are fetched from the server.</p>
+ */
+public enum FetchMode {
+
+	/**
+	 * The rows are formatted as a table and logged at Debug level
+	 */
+	TABLE,
+
+	/**
+	 * The rows are fetched and dropped
+	 */
+	DISCARD,
+
+	/**
+	 * The rows are fetched and counted
+	 */
+	COUNT,
+
+	/**
+	 * A checksum over the values of all rows is calculated, independent of the order of the rows
+	 */
+	CHECKSUM,
+
+	/**
+	 * The first rows are formatted as a table and logged, the others are not fetched
+	 */
+	SAMPLE;
+
+	/**
+	 * Returns the mode for the given name ignoring the case
+	 *
+	 * @param name the name of the mode
+	 * @return the mode or null if there is no mode with that name
+	 */
+	public static FetchMode getMode(String name) {
+		for (FetchMode mode : values()) {
+			if (mode.name().equalsIgnoreCase(name.trim())) {
+				return mode;
+			}
+		}
+		return null;
+	}
+}
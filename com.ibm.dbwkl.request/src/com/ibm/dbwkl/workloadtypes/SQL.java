@@ -10,25 +10,29 @@
  *******************************************************************************/
 package com.ibm.dbwkl.workloadtypes;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.zip.CRC32;
 
 import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.helper.FileLoader;
 import com.ibm.dbwkl.helper.StringUtility;
 import com.ibm.dbwkl.helper.xml.ToXML;
 import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.LatencyRecorder;
 import com.ibm.dbwkl.request.Logger;
 import com.ibm.dbwkl.request.Request;
+import com.ibm.dbwkl.request.Tracer;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.variables.VariablesReplacer;
 import com.ibm.dbwkl.variables.VariablesReplacerException;
@@ -77,11 +81,36 @@ public class SQL extends APhaseConsumer implements Runnable {
      */
     private final static int columnWidth = 16;
     
+    /**
+     * The bytes that are used for null values in the checksum
+     */
+    private final static byte[] NULL_BYTES = { 0 };
+    
     /**
      * The delimiter for the commands in the file
      */
     private String delimiter = ";";
     
+    /**
+     * Default number of rows that are logged with the fetch mode SAMPLE
+     */
+    private final static int DEFAULT_SAMPLE_SIZE = 10;
+    
+    /**
+     * Number of rows that are fetched at once if all rows are fetched without formatting them
+     */
+    private final static int STREAMING_FETCH_SIZE = 1000;
+    
+    /**
+     * The way the result sets are consumed
+     */
+    private FetchMode fetchMode = FetchMode.TABLE;
+    
+    /**
+     * Number of rows that are logged with the fetch mode SAMPLE
+     */
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+    
 	/**
 	 * <p>This is the unique ID of the workload. The ID is unique for the whole session 
 	 * (so long as the STAF process is running and the service is registered to it).</p>
@@ -89,9 +118,14 @@ public class SQL extends APhaseConsumer implements Runnable {
 	private Long id;
     
     /**
-     * List of sql commands
+     * Replaces the variables in the sql commands
+     */
+    private final VariablesReplacer variablesReplacer = new VariablesReplacer();
+    
+    /**
+     * The file with the sql commands or null if the sql commands are given in the request
      */
-    private ArrayList<String> commands;
+    private File file;
     
     /**
      * default constructor for SQL
@@ -137,6 +171,23 @@ public class SQL extends APhaseConsumer implements Runnable {
 			this.delimiter = Request.getOption(Options.SQL_DELIMITER);
 		}
 		
+		if (Request.hasOption(Options.SQL_FETCHMODE)) {
+			this.fetchMode = FetchMode.getMode(Request.getOption(Options.SQL_FETCHMODE));
+			if (this.fetchMode == null) {
+				String msg = "Invalid fetch mode: " + Request.getOption(Options.SQL_FETCHMODE);
+				Logger.log(msg, LogLevel.Error);
+				this._result = new STAFResult(STAFResult.InvalidValue, msg);
+				return;
+			}
+		}
+		
+		if (Request.hasOption(Options.SQL_SAMPLESIZE)) {
+			this.sampleSize = getNumberOption(Options.SQL_SAMPLESIZE);
+			if (this.sampleSize == 0) {
+				this.sampleSize = DEFAULT_SAMPLE_SIZE;
+			}
+		}
+		
     	if (Request.hasOption(Options.SQL_FILE)) {
     		
     		// read the file
@@ -155,18 +206,9 @@ public class SQL extends APhaseConsumer implements Runnable {
 					return;
 				}
     		}
-    		String content;
-			try {
-				content = FileLoader.readFile(file);
-			} catch (IOException e) {
-				this._result = new STAFResult(STAFResult.JavaError, "Can't read from file " + file.getAbsolutePath() + ". " + e.getMessage());
-				return;
-			}
     		
-    		// parse the command from the content of the file
-    		this.commands = getSingleSQLStatements(content);
-		} else {
-			this.commands = getSingleSQLStatements(Request.getOption(Options.SQL_SQL));
+    		// the commands are read from the file while they are executed
+    		this.file = file;
 		}
     	
     	// execute the statements
@@ -205,25 +247,39 @@ public class SQL extends APhaseConsumer implements Runnable {
 	    this.timer.setStartDate(new Date());
 	    
 		Connection connection = null;
-	    Statement statement = null;
+		SQLStatementReader commands = null;
 
 		try {
 			connection = Request.getDataSource().getConnection();
-			statement = Request.getDataSource().createStatement(connection);
+			
+			// the file is read again for each execution, so only the current statement is kept in memory
+			if (this.file != null) {
+				commands = new SQLStatementReader(this.file, Charset.defaultCharset(), this.delimiter);
+			} else {
+				commands = new SQLStatementReader(Request.getOption(Options.SQL_SQL), this.delimiter);
+			}
 
 			// we execute the commands on this connection
-			result.append(executeCommands(statement, this.commands));
+			result.append(executeCommands(connection, commands));
 			
-			connection.commit();
+			Request.getDataSource().commit(connection);
 			
 		} catch (VariablesReplacerException e) {
 			Logger.log("SQL file execution not successful because: " + e.getMessage(), LogLevel.Error);
 			return new STAFResult(STAFResult.InvalidParm, e.getMessage());
+		} catch (IOException e) {
+			return new STAFResult(STAFResult.JavaError, "Can't read from file " + this.file.getAbsolutePath() + ". " + e.getMessage());
     	} catch (SQLException e) {
 			return new STAFResult(STAFResult.JavaError, e.getMessage());
 		} finally {
+			if (commands != null) {
+				try {
+					commands.close();
+				} catch (IOException e) {
+					Logger.logException(e);
+				}
+			}
 			Request.getDataSource().closeConnection(connection);
-			Request.getDataSource().closeStatement(statement);
 		}
 	    
 	    this.timer.setEndDate(new Date());
@@ -235,14 +291,24 @@ public class SQL extends APhaseConsumer implements Runnable {
     }
 
 	/**
-	 * Executes the given list of SQL commands on the given connection.
+	 * Executes the SQL commands of the reader on the given connection. Each command is
+	 * executed as soon as it is read. The statements
+	 * are taken from the statement cache of the connection, so commands that are 
+	 * executed repeatedly are only prepared once.
 	 * 
-	 * @param statement
-	 * @param list
+	 * <p>With the option BATCHSIZE, consecutive data changing statements (INSERT, UPDATE,
+	 * DELETE and MERGE) are collected and sent to the database as one batch. Any other
+	 * statement or control comment executes the collected batch first, so the order of
+	 * the commands is kept. With the option COMMITEVERY, the changes are committed as soon
+	 * as the given number of statements was executed since the last commit.</p>
+	 * 
+	 * @param connection
+	 * @param commands the reader of the SQL commands
 	 * @return a pretty formatted result String
 	 * @throws VariablesReplacerException 
+	 * @throws IOException if the commands can't be read
 	 */
-	public String executeCommands(Statement statement, ArrayList<String> list) throws VariablesReplacerException {
+	public String executeCommands(Connection connection, SQLStatementReader commands) throws VariablesReplacerException, IOException {
 
     	// we create our result string
     	StringBuilder result = new StringBuilder("");
@@ -258,98 +324,367 @@ public class SQL extends APhaseConsumer implements Runnable {
 			}
 		}
     	
+    	int batchSize = getNumberOption(Options.SQL_BATCHSIZE);
+    	int commitEvery = getNumberOption(Options.SQL_COMMITEVERY);
+    	
     	int successfullStatementExecutions = 0;
+    	int uncommittedStatements = 0;
     	
-		// now, we execute each SQL command in our list
-    	for (String command : list)
-    	{
-    		// replace optional variables
-    		Logger.log("before : " + command, LogLevel.Info);
-    		String sql = new VariablesReplacer().replaceVars(command);
-    		Logger.log("after  : " + sql, LogLevel.Info);
-    		
-    		// check for comments and ignore them or process them in case they contain control logic
-    		if (sql.startsWith("--")) {
-				// check if it contains a control statement
-    			if (sql.contains("<db2wkl")) {
-					try {
-						// search for the only supported attribute yet, sleep
-						String[] sleepSplit = sql.split("sleep=\"");
-						int sleepTime = Integer.parseInt(sleepSplit[1].substring(0, sleepSplit[1].indexOf("\"")));
-						
-						// sleep
-						Logger.log("Sleep control statement found in SQL file. Waiting for " + sleepTime + " seconds.", LogLevel.Info);
-						Thread.sleep(sleepTime * 1000);
-						Logger.log("Sleep control statement found in SQL file. Waited for  " + sleepTime + " seconds.", LogLevel.Info);
+    	// statement for the batch of data changing statements, only created if batching is used
+    	Statement batch = null;
+    	int batchedStatements = 0;
+    	
+    	try {
+    	
+			// now, we execute each SQL command as soon as it is read
+			String command;
+			while ((command = commands.next()) != null)
+			{
+				if (isStopped()) {
+					Logger.log("SQL execution stopped before all statements were executed", LogLevel.Info);
+					break;
+				}
+				
+				// replace optional variables
+				Logger.log("before : " + command, LogLevel.Debug);
+				String sql = this.variablesReplacer.replaceVars(command);
+				Logger.log("after  : " + sql, LogLevel.Debug);
+				
+				if (batchSize > 1 && !sql.startsWith("--") && isBatchable(sql)) {
+					
+					// collect the statement and execute the batch once it is full
+					if (this._result.rc == 0) {
+						if (batch == null) {
+							batch = Request.getDataSource().createStatement(connection);
+						}
+						batch.addBatch(sql);
+						batchedStatements++;
 						
-					} catch (Exception e) {
-						Logger.log("Sleep control statement in SQL file invalid. Use the following format: <db2wkl sleep=\"5\"/>", LogLevel.Error);
-						Logger.logException(e);
+						if (batchedStatements >= batchSize) {
+							int executed = executeBatch(batch, batchedStatements);
+							successfullStatementExecutions += executed;
+							uncommittedStatements += executed;
+							batchedStatements = 0;
+						}
+					}
+				} else {
+					
+					// any other command or control statement has to come after the collected batch
+					if (batchedStatements > 0 && (!sql.startsWith("--") || sql.contains("<db2wkl"))) {
+						int executed = executeBatch(batch, batchedStatements);
+						successfullStatementExecutions += executed;
+						uncommittedStatements += executed;
+						batchedStatements = 0;
+					}
+					
+					if (executeCommand(connection, sql)) {
+						successfullStatementExecutions++;
+						uncommittedStatements++;
 					}
 				}
-			} else {
 				
-				try
-	    		{
-	    			if (this._result.rc == 0){
-		    			// we log the command
-		    			Logger.log("The SQL-Statement : " + sql + " will execute.", LogLevel.Debug);
-		    			
-		    			// we execute the command and get the result
-		    			boolean statementHasResultSet = statement.execute(sql);
-		
-		    			// if the statement returns a result set
-		    			if(statementHasResultSet)
-		    			{
-		    				ResultSet rs = statement.getResultSet();
-			    			
-		    				Logger.log(resultSetToTable(rs), LogLevel.Debug);
-		    		
-			    			try {
-			    				
-			    				rs.close();
-			    				this._result =  new STAFResult(STAFResult.Ok);
-			    			} 
-			    			catch (SQLException e1) {
-			    				
-			    				Logger.logSQLException(e1, "While closing result set.");
-			    			}
-		    			}
-		    			
-		    			// if we only have a update count
-		    			else
-		    			{
-		    				Logger.log("UpdateCount is " + statement.getUpdateCount(), LogLevel.Debug);
-		    				this._result =  new STAFResult(STAFResult.Ok);
-		    			}
-	    			}
-	    			
-	    			successfullStatementExecutions++;
-	    		}
-	    		catch(SQLException e)
-	        	{
-	        		Logger.logSQLException(e, "");
-	        		Logger.log("Couldn't execute: " + sql, LogLevel.Error);
-	        		this._result = new STAFResult(STAFResult.InvalidValue);
-	        	}	
+				if (commitEvery > 0 && uncommittedStatements >= commitEvery) {
+					Request.getDataSource().commit(connection);
+					Logger.log("Committed after " + uncommittedStatements + " statements", LogLevel.Debug);
+					uncommittedStatements = 0;
+				}
+				
+				if (sleep > 0) {
+					getCancellationToken().sleep(sleep * 1000);
+				}
 			}
-    		
-    		if (sleep > 0) {
-				try {
-					Thread.sleep(sleep * 1000);
-				} catch (InterruptedException e) {
-					// nop
+			
+			// execute the rest of the batch, unless the execution was stopped
+			if (batchedStatements > 0) {
+				if (isStopped()) {
+					Logger.log("Skipped the remaining batch of " + batchedStatements + " statements", LogLevel.Info);
+				} else {
+					successfullStatementExecutions += executeBatch(batch, batchedStatements);
 				}
 			}
-    		
-    	}
-    	
+		} catch (SQLException e) {
+			Request.getDataSource().countSQLError(e);
+			Logger.logSQLException(e, "");
+			Logger.log("Couldn't execute the SQL commands", LogLevel.Error);
+			this._result = new STAFResult(STAFResult.InvalidValue);
+		} finally {
+			if (batch != null) {
+				Request.getDataSource().closeStatement(batch);
+			}
+		}
+		
     	Logger.log("Number of successfull executed statements is " + successfullStatementExecutions, LogLevel.Info);
     	
     	return result.toString();
 		
 	}
 
+	/**
+	 * Executes a single SQL command or processes it in case it is a comment with control logic
+	 * 
+	 * @param connection the connection to execute the command on
+	 * @param sql the SQL command with replaced variables
+	 * @return true if a statement was executed successfully
+	 */
+	private boolean executeCommand(Connection connection, String sql) {
+		
+		// check for comments and ignore them or process them in case they contain control logic
+		if (sql.startsWith("--")) {
+			// check if it contains a control statement
+			if (sql.contains("<db2wkl")) {
+				try {
+					// search for the only supported attribute yet, sleep
+					String[] sleepSplit = sql.split("sleep=\"");
+					int sleepTime = Integer.parseInt(sleepSplit[1].substring(0, sleepSplit[1].indexOf("\"")));
+					
+					// sleep
+					Logger.log("Sleep control statement found in SQL file. Waiting for " + sleepTime + " seconds.", LogLevel.Info);
+					getCancellationToken().sleep(sleepTime * 1000);
+					Logger.log("Sleep control statement found in SQL file. Waited for  " + sleepTime + " seconds.", LogLevel.Info);
+					
+				} catch (Exception e) {
+					Logger.log("Sleep control statement in SQL file invalid. Use the following format: <db2wkl sleep=\"5\"/>", LogLevel.Error);
+					Logger.logException(e);
+				}
+			}
+			return false;
+		}
+		
+		if (this._result.rc != 0) {
+			return false;
+		}
+		
+		PreparedStatement statement = null;
+		long traceStart = Tracer.begin();
+		try
+		{
+			// we log the command
+			Logger.log("The SQL-Statement : " + sql + " will execute.", LogLevel.Debug);
+			
+			// we execute the command and get the result
+			statement = Request.getDataSource().getCachedPreparedStatement(connection, sql);
+			if (this.fetchMode == FetchMode.SAMPLE) {
+				statement.setFetchSize(this.sampleSize);
+			} else if (this.fetchMode != FetchMode.TABLE) {
+				statement.setFetchSize(STREAMING_FETCH_SIZE);
+			}
+			long start = System.nanoTime();
+			boolean statementHasResultSet = statement.execute();
+			
+			// if the statement returns a result set
+			if(statementHasResultSet)
+			{
+				ResultSet rs = statement.getResultSet();
+				
+				Request.getDataSource().countStatement(0);
+				Request.getDataSource().countRowsFetched(consumeResultSet(rs));
+				
+				try {
+					
+					rs.close();
+					this._result =  new STAFResult(STAFResult.Ok);
+				} 
+				catch (SQLException e1) {
+					
+					Logger.logSQLException(e1, "While closing result set.");
+				}
+			}
+			
+			// if we only have a update count
+			else
+			{
+				int updateCount = statement.getUpdateCount();
+				Request.getDataSource().countStatement(updateCount);
+				Logger.log("UpdateCount is " + updateCount, LogLevel.Debug);
+				this._result =  new STAFResult(STAFResult.Ok);
+			}
+			
+			LatencyRecorder.record(LatencyRecorder.STATEMENT, System.nanoTime() - start);
+			
+			Request.getDataSource().releaseCachedStatement(connection, sql, statement);
+			return true;
+		}
+		catch(SQLException e)
+		{
+			Request.getDataSource().countSQLError(e);
+			Request.getDataSource().discardCachedStatement(connection, sql, statement);
+			Logger.logSQLException(e, "");
+			Logger.log("Couldn't execute: " + sql, LogLevel.Error);
+			this._result = new STAFResult(STAFResult.InvalidValue);
+			return false;
+		}
+		finally
+		{
+			Tracer.endStatement(sql, traceStart);
+		}
+	}
+	
+	/**
+	 * Executes the statements that were added to the batch
+	 * 
+	 * @param batch the statement with the batch
+	 * @param size the number of statements in the batch
+	 * @return the number of successfully executed statements
+	 */
+	private int executeBatch(Statement batch, int size) {
+		long traceStart = Tracer.begin();
+		long start = System.nanoTime();
+		try {
+			int[] updateCounts = batch.executeBatch();
+			long duration = System.nanoTime() - start;
+			LatencyRecorder.record(LatencyRecorder.BATCH, duration);
+			Logger.log("Batch of " + size + " statements executed in " + (duration / 1000000) + " ms", LogLevel.Debug);
+			for (int count : updateCounts) {
+				Request.getDataSource().countStatement(count);
+			}
+			return size;
+		} catch (BatchUpdateException e) {
+			Request.getDataSource().countSQLError(e);
+			Logger.logSQLException(e, "");
+			Logger.log("Couldn't execute the batch of " + size + " statements", LogLevel.Error);
+			this._result = new STAFResult(STAFResult.InvalidValue);
+			
+			// depending on the driver, the batch stops at the failed statement or continues after it
+			int successful = 0;
+			for (int count : e.getUpdateCounts()) {
+				if (count != Statement.EXECUTE_FAILED) {
+					Request.getDataSource().countStatement(count);
+					successful++;
+				}
+			}
+			return successful;
+		} catch (SQLException e) {
+			Request.getDataSource().countSQLError(e);
+			Logger.logSQLException(e, "");
+			Logger.log("Couldn't execute the batch of " + size + " statements", LogLevel.Error);
+			this._result = new STAFResult(STAFResult.InvalidValue);
+			return 0;
+		} finally {
+			Tracer.end(Tracer.STATEMENT, LatencyRecorder.BATCH, traceStart);
+			try {
+				batch.clearBatch();
+			} catch (SQLException e) {
+				Logger.logSQLException(e, "While clearing the batch.");
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether the SQL command changes data without returning a result set, so that 
+	 * it can be executed in a batch
+	 * 
+	 * @param sql the SQL command
+	 * @return true if the command can be executed in a batch
+	 */
+	private static boolean isBatchable(String sql) {
+		String verb = sql.trim();
+		int end = 0;
+		while (end < verb.length() && Character.isLetter(verb.charAt(end))) {
+			end++;
+		}
+		verb = verb.substring(0, end).toUpperCase();
+		
+		return verb.equals("INSERT") || verb.equals("UPDATE") || verb.equals("DELETE") || verb.equals("MERGE");
+	}
+	
+	/**
+	 * Reads a positive number from an option of the request
+	 * 
+	 * @param option the name of the option
+	 * @return the number or 0 if the option is not set or invalid
+	 */
+	private static int getNumberOption(String option) {
+		if (!Request.hasOption(option)) {
+			return 0;
+		}
+		
+		try {
+			int value = Integer.parseInt(Request.getOption(option));
+			if (value > 0) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			Logger.logException(e);
+		}
+		Logger.log("Option " + option + " does not contain a valid positive number. Ignoring it.", LogLevel.Error);
+		return 0;
+	}
+
+	/**
+	 * Consumes the rows of the result set depending on the fetch mode. The rows are
+	 * only converted to strings if they are logged.
+	 * 
+	 * @param rs the result set
+	 * @return the number of fetched rows
+	 * @throws SQLException if retrieving information from the resultSet causes an error
+	 */
+	private long consumeResultSet(ResultSet rs) throws SQLException {
+		
+		FetchMode mode = this.fetchMode;
+		if (mode == FetchMode.TABLE && !Logger.isLoggable(LogLevel.Debug)) {
+			mode = FetchMode.DISCARD;
+		}
+		
+		long rows;
+		StringBuilder table;
+		switch (mode) {
+		case TABLE:
+			table = new StringBuilder();
+			rows = formatTable(rs, Integer.MAX_VALUE, table);
+			Logger.log(table.toString(), LogLevel.Debug);
+			break;
+		case SAMPLE:
+			table = new StringBuilder();
+			rows = formatTable(rs, this.sampleSize, table);
+			Logger.log(table.toString(), LogLevel.Info);
+			break;
+		case CHECKSUM:
+			int columnCount = rs.getMetaData().getColumnCount();
+			long checksum = 0;
+			long checkedRows = 0;
+			CRC32 crc = new CRC32();
+			while (rs.next()) {
+				crc.reset();
+				for (int i = 1; i <= columnCount; i++) {
+					String value = rs.getString(i);
+					crc.update(value == null ? NULL_BYTES : value.getBytes(StandardCharsets.UTF_8));
+					crc.update(0);
+				}
+				
+				// the sum of the row checksums doesn't depend on the order of the rows
+				checksum += crc.getValue();
+				checkedRows++;
+			}
+			Logger.log("Checksum of " + checkedRows + " rows is " + Long.toHexString(checksum), LogLevel.Info);
+			rows = checkedRows;
+			break;
+		case COUNT:
+			rows = countRows(rs);
+			Logger.log("Fetched " + rows + " rows", LogLevel.Info);
+			break;
+		default:
+			rows = countRows(rs);
+			Logger.log("Fetched " + rows + " rows", LogLevel.Debug);
+			break;
+		}
+		return rows;
+	}
+	
+	/**
+	 * Fetches all rows of the result set without reading their values
+	 * 
+	 * @param rs the result set
+	 * @return the number of rows
+	 * @throws SQLException if retrieving information from the resultSet causes an error
+	 */
+	private static long countRows(ResultSet rs) throws SQLException {
+		long rows = 0;
+		while (rs.next()) {
+			rows++;
+		}
+		return rows;
+	}
+
 	/**
 	 * Gives some pretty formatting to the result set
 	 * @param rs the result set
@@ -357,23 +692,44 @@ public class SQL extends APhaseConsumer implements Runnable {
 	 * @throws SQLException if retrieving information from the resultSet causes an error
 	 */
 	public String resultSetToTable(ResultSet rs) throws SQLException {
+		return resultSetToTable(rs, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gives some pretty formatting to the first rows of the result set
+	 * @param rs the result set
+	 * @param maxRows the maximum number of rows to format
+	 * @return the formatted string
+	 * @throws SQLException if retrieving information from the resultSet causes an error
+	 */
+	public String resultSetToTable(ResultSet rs, int maxRows) throws SQLException {
 
 		StringBuilder result = new StringBuilder("");
+		formatTable(rs, maxRows, result);
+		return result.toString();
+	}
+
+	/**
+	 * Appends the first rows of the result set formatted as a table
+	 * @param rs the result set
+	 * @param maxRows the maximum number of rows to format
+	 * @param result the formatted rows are appended to it
+	 * @return the number of formatted rows
+	 * @throws SQLException if retrieving information from the resultSet causes an error
+	 */
+	private static int formatTable(ResultSet rs, int maxRows, StringBuilder result) throws SQLException {
 		
 		// we get the meta data (for the column names)
 		ResultSetMetaData rsmd = rs.getMetaData(); 
 
-		// we make a array for our columns
-		ArrayList<String> columns = new ArrayList<String>();
+		// the columns are accessed by their index
+		int columnCount = rsmd.getColumnCount();
 		
 		// we go trough each column and get the name
-		for (int i = 1; i < rsmd.getColumnCount() + 1; i++) 
+		for (int i = 1; i <= columnCount; i++) 
 		{
 			// get the name
 			String name = rsmd.getColumnName(i).trim();
-			
-			// save it in the column array
-			columns.add(name);
 
 			// we format the name and append it to the result to print
 			result.append(StringUtility.cutString(name, columnWidth));
@@ -383,20 +739,23 @@ public class SQL extends APhaseConsumer implements Runnable {
 		result.append("\n");
 		
 		// we append a "-----" for each column
-		for(@SuppressWarnings("unused") String column: columns)
+		for (int i = 1; i <= columnCount; i++)
 			result.append(StringUtility.cutString("------------------------------------------------------------", columnWidth));
 		
 		// line break
 		result.append("\n");
 		
-		// now, we go trough our whole result row by row
-		while(rs.next())
+		// now, we go trough our result row by row
+		int rows = 0;
+		while(rows < maxRows && rs.next())
 		{
+			rows++;
+			
 			// in each row, we go trough all columns
-			for(String column: columns)
+			for (int i = 1; i <= columnCount; i++)
 			{
 				// we get the column content...
-				String tmp = rs.getString(column);
+				String tmp = rs.getString(i);
 				
 				// ...and append it pretty formatted to our result string
 				result.append(StringUtility.cutString(tmp, columnWidth));
@@ -406,7 +765,7 @@ public class SQL extends APhaseConsumer implements Runnable {
 			result.append("\n");
 		}
 		
-		return result.toString();
+		return rows;
 	}
 
 	/**
@@ -460,47 +819,6 @@ public class SQL extends APhaseConsumer implements Runnable {
 		return sqlCommandOrSqlFile.trim();
 	}
 
-	/**
-	 * Converts a ';' separated string into a list of SQL commands.
-	 * 
-	 * @param rawSQLCommands to convert
-	 * @return a list of SQL statements
-	 */
-	public ArrayList<String> getSingleSQLStatements(String rawSQLCommands) {
-
-		ArrayList<String> listTmp = new ArrayList<String>();
-		
-    	String[] commands1 = rawSQLCommands.split(this.delimiter);
-    	for (String command : commands1) {
-    		// check if there is a sleep command before the current command and extract it in this case
-			if (command.trim().startsWith("--")) {
-				StringBuilder command1 = new StringBuilder();
-				StringReader reader = new StringReader(command);
-				BufferedReader lineReader = new BufferedReader(reader);
-				String line;
-				try {
-					while ((line = lineReader.readLine()) != null) {
-						if (line.startsWith("--")) {
-							listTmp.add(line);
-						} else {
-							command1.append(line.trim());
-						}
-					}
-				} catch (IOException e) {
-					Logger.logException(e);
-				}
-				
-				if (command1.toString().trim().length() > 0) {
-					listTmp.add(command1.toString().trim());	
-				}
-			} else if (command.trim().length() != 0) {
-    			listTmp.add(command);	
-			}
-		}
-    	
-		return listTmp;
-	}
-	
 	/**
 	 * <p>This method tests a specified string, whether it is a SQL statement
 	 * or not. It will return true, if it is a SQL statement and false if not.</p>
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+/**
+ * <p>Reads the SQL statements of a script one after the other, so that a statement can
+ * be executed before the rest of the script is read. Only a small buffer of the script
+ * is kept in memory, which allows to run scripts that are larger than the heap.</p>
+ *
+ * <p>The statements are separated by the delimiter. A delimiter within a quoted string
+ * or a comment doesn't end the statement. Comment lines in front of a statement (like the
+ * control statement <code>-- &lt;db2wkl sleep="5"/&gt;</code>) are returned on their own,
+ * comments within a statement are removed.</p>
+ */
+public class SQLStatementReader implements Closeable {
+
+	/**
+	 * Size of the read buffer in characters
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The reader of the script
+	 */
+	private final Reader reader;
+
+	/**
+	 * The delimiter between the statements
+	 */
+	private final String delimiter;
+
+	/**
+	 * The read buffer
+	 */
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	/**
+	 * Position of the next character in the buffer
+	 */
+	private int position;
+
+	/**
+	 * Number of valid characters in the buffer
+	 */
+	private int limit;
+
+	/**
+	 * @param reader the reader of the script
+	 * @param delimiter the delimiter between the statements, ; if it is empty
+	 */
+	public SQLStatementReader(Reader reader, String delimiter) {
+		this.reader = reader;
+		this.delimiter = delimiter == null || delimiter.length() == 0 ? ";" : delimiter;
+	}
+
+	/**
+	 * @param file the file with the script
+	 * @param charset the encoding of the file
+	 * @param delimiter the delimiter between the statements
+	 * @throws IOException if the file can't be opened
+	 */
+	public SQLStatementReader(File file, Charset charset, String delimiter) throws IOException {
+		this(new InputStreamReader(new FileInputStream(file), charset), delimiter);
+	}
+
+	/**
+	 * @param script the script
+	 * @param delimiter the delimiter between the statements
+	 */
+	public SQLStatementReader(String script, String delimiter) {
+		this(new StringReader(script), delimiter);
+	}
+
+	/**
+	 * Reads the next statement or comment line of the script
+	 *
+	 * @return the next statement without the delimiter, the next comment line or null at the end of the script
+	 * @throws IOException if the script can't be read
+	 */
+	public String next() throws IOException {
+		StringBuilder statement = new StringBuilder();
+
+		// the delimiter is only searched behind the last quoted string or comment
+		int codeStart = 0;
+
+		char quote = 0;
+		int c;
+		while ((c = read()) != -1) {
+
+			// within a quoted string, only the closing quote is of interest
+			if (quote != 0) {
+				statement.append((char) c);
+				if (c == quote) {
+					quote = 0;
+					codeStart = statement.length();
+				}
+				continue;
+			}
+
+			if (c == '\'' || c == '"') {
+				quote = (char) c;
+				statement.append((char) c);
+				continue;
+			}
+
+			if (c == '-' && peek() == '-') {
+				read();
+				String comment = "--" + readLine();
+				if (isBlank(statement)) {
+					return trimEnd(comment);
+				}
+				statement.append('\n');
+				codeStart = statement.length();
+				continue;
+			}
+
+			if (c == '/' && peek() == '*') {
+				read();
+				skipBlockComment();
+				statement.append(' ');
+				codeStart = statement.length();
+				continue;
+			}
+
+			statement.append((char) c);
+
+			if (statement.length() - codeStart >= this.delimiter.length() && endsWithDelimiter(statement)) {
+				statement.setLength(statement.length() - this.delimiter.length());
+				if (!isBlank(statement)) {
+					return statement.toString().trim();
+				}
+				statement.setLength(0);
+				codeStart = 0;
+			}
+		}
+
+		if (!isBlank(statement)) {
+			return statement.toString().trim();
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/**
+	 * @return the next character or -1 at the end of the script
+	 * @throws IOException
+	 */
+	private int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.buffer[this.position++];
+	}
+
+	/**
+	 * @return the next character without reading it or -1 at the end of the script
+	 * @throws IOException
+	 */
+	private int peek() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.buffer[this.position];
+	}
+
+	/**
+	 * Fills the buffer if all characters were read
+	 *
+	 * @return false at the end of the script
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		while (this.position >= this.limit) {
+			this.limit = this.reader.read(this.buffer, 0, this.buffer.length);
+			this.position = 0;
+			if (this.limit < 0) {
+				this.limit = 0;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the rest of the current line
+	 *
+	 * @return the rest of the line without the line break
+	 * @throws IOException
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = read()) != -1 && c != '\n') {
+			if (c != '\r') {
+				line.append((char) c);
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Skips the rest of a block comment
+	 *
+	 * @throws IOException
+	 */
+	private void skipBlockComment() throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '*' && peek() == '/') {
+				read();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @param statement the statement read so far
+	 * @return true if the statement ends with the delimiter
+	 */
+	private boolean endsWithDelimiter(StringBuilder statement) {
+		int offset = statement.length() - this.delimiter.length();
+		for (int i = 0; i < this.delimiter.length(); i++) {
+			if (statement.charAt(offset + i) != this.delimiter.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param text the text
+	 * @return true if the text only contains white space
+	 */
+	private static boolean isBlank(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!Character.isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param text the text
+	 * @return the text without white space at its end
+	 */
+	private static String trimEnd(String text) {
+		int end = text.length();
+		while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		return text.substring(0, end);
+	}
+}
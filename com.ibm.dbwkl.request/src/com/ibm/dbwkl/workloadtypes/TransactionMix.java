@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.LatencyRecorder;
+import com.ibm.dbwkl.request.Logger;
+import com.ibm.dbwkl.request.Request;
+import com.ibm.dbwkl.request.parser.Options;
+
+/**
+ * <p>Selects transactions randomly according to their weights. The selection table is
+ * built once with the alias method, so that selecting a transaction takes constant time
+ * independent of the number of transactions.</p>
+ *
+ * <p>Each thread that uses the mix gets its own random number generator. The generators
+ * are derived from the seed of the mix in the order in which the threads use the mix, so
+ * a run with the same seed selects the same transactions. The seed of the request can be
+ * set with the option SEED.</p>
+ *
+ * <p>The mix counts how often each transaction was executed and records the latencies of
+ * the transactions with the {@link LatencyRecorder}. The counts of all mixes of the request
+ * are reported per interval by their operation name, see {@link #getIntervalCounts()}.</p>
+ *
+ * @param <T> Type of the transactions
+ */
+public class TransactionMix<T> {
+
+	/**
+	 * The seed of the request, created on first use
+	 */
+	private static Long requestSeed;
+
+	/**
+	 * Number of executions in the current report interval by operation name, shared by all mixes
+	 */
+	private static final ConcurrentHashMap<String, AtomicLong> intervalCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * The transactions
+	 */
+	private final List<T> transactions;
+
+	/**
+	 * The operation names under which the latencies of the transactions are recorded
+	 */
+	private final String[] operations;
+
+	/**
+	 * Probability to select the transaction of a column instead of its alias
+	 */
+	private final double[] probability;
+
+	/**
+	 * The alias transaction of each column
+	 */
+	private final int[] alias;
+
+	/**
+	 * Number of executions per transaction
+	 */
+	private final AtomicLongArray counts;
+
+	/**
+	 * The counters of the current report interval per transaction
+	 */
+	private final AtomicLong[] intervalCounters;
+
+	/**
+	 * The seed of the mix
+	 */
+	private final long seed;
+
+	/**
+	 * Number of random number generators that were created
+	 */
+	private final AtomicInteger streams = new AtomicInteger();
+
+	/**
+	 * The random number generator of the current thread
+	 */
+	private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random(mix(TransactionMix.this.seed, TransactionMix.this.streams.getAndIncrement()));
+		}
+	};
+
+	/**
+	 * Builds the selection table for the transactions
+	 *
+	 * @param transactions the transactions
+	 * @param names the names of the transactions, used for the latencies
+	 * @param weights the weights of the transactions
+	 * @param operationPrefix prefix of the operation names under which the latencies are recorded
+	 * @param seed the seed for the random number generators
+	 * @throws IllegalArgumentException if there is no transaction or a weight is negative or all are 0
+	 */
+	public TransactionMix(List<T> transactions, List<String> names, int[] weights, String operationPrefix, long seed) {
+		int n = transactions.size();
+		if (n == 0 || names.size() != n || weights.length != n) {
+			throw new IllegalArgumentException("The mix needs the same number of transactions, names and weights");
+		}
+
+		long total = 0;
+		for (int weight : weights) {
+			if (weight < 0) {
+				throw new IllegalArgumentException("The weight of a transaction can't be negative");
+			}
+			total += weight;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("At least one transaction needs a weight greater than 0");
+		}
+
+		this.transactions = new ArrayList<T>(transactions);
+		this.operations = new String[n];
+		this.intervalCounters = new AtomicLong[n];
+		for (int i = 0; i < n; i++) {
+			this.operations[i] = operationPrefix + names.get(i);
+			AtomicLong counter = new AtomicLong();
+			AtomicLong existing = intervalCounts.putIfAbsent(this.operations[i], counter);
+			this.intervalCounters[i] = existing == null ? counter : existing;
+		}
+		this.probability = new double[n];
+		this.alias = new int[n];
+		this.counts = new AtomicLongArray(n);
+		this.seed = seed;
+
+		buildAliasTable(weights, total);
+	}
+
+	/**
+	 * Selects the next transaction
+	 *
+	 * @return the index of the selected transaction
+	 */
+	public int next() {
+		Random rnd = this.random.get();
+		int column = rnd.nextInt(this.probability.length);
+		int index = rnd.nextDouble() < this.probability[column] ? column : this.alias[column];
+		count(index);
+		return index;
+	}
+
+	/**
+	 * Counts an execution of a transaction. The transactions selected with {@link #next()}
+	 * are counted already.
+	 *
+	 * @param index the index of the transaction
+	 */
+	public void count(int index) {
+		this.counts.incrementAndGet(index);
+		this.intervalCounters[index].incrementAndGet();
+	}
+
+	/**
+	 * @param index the index of the transaction
+	 * @return the transaction
+	 */
+	public T get(int index) {
+		return this.transactions.get(index);
+	}
+
+	/**
+	 * @return the number of transactions
+	 */
+	public int size() {
+		return this.transactions.size();
+	}
+
+	/**
+	 * @param index the index of the transaction
+	 * @return how often the transaction was executed
+	 */
+	public long getCount(int index) {
+		return this.counts.get(index);
+	}
+
+	/**
+	 * Returns the executions of the transactions of all mixes since the last call and starts
+	 * the next interval
+	 *
+	 * @return the number of executions by operation name, transactions without executions are left out
+	 */
+	public static Map<String, Double> getIntervalCounts() {
+		Map<String, Double> counts = new HashMap<String, Double>();
+		for (Map.Entry<String, AtomicLong> entry : intervalCounts.entrySet()) {
+			long count = entry.getValue().getAndSet(0);
+			if (count > 0) {
+				counts.put(entry.getKey(), Double.valueOf(count));
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Records the latency of an execution of a transaction
+	 *
+	 * @param index the index of the transaction
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(int index, long nanos) {
+		LatencyRecorder.record(this.operations[index], nanos);
+	}
+
+	/**
+	 * Returns a seed for the given stream of the request. With the option SEED, the seeds
+	 * are the same for each run of the request. Otherwise a seed is created for the request
+	 * and logged, so that the run can be repeated.
+	 *
+	 * @param stream the number of the stream, e.g. the id of the workload
+	 * @return the seed
+	 */
+	public static long getSeed(long stream) {
+		return mix(getRequestSeed(), stream);
+	}
+
+	/**
+	 * @return the seed of the request
+	 */
+	private static synchronized long getRequestSeed() {
+		if (requestSeed == null) {
+			long base = System.nanoTime() ^ System.currentTimeMillis();
+			if (Request.hasOption(Options.THREADED_SEED)) {
+				try {
+					base = Long.parseLong(Request.getOption(Options.THREADED_SEED));
+				} catch (NumberFormatException e) {
+					Logger.log("Option SEED does not contain a valid number. Using a random seed.", LogLevel.Error);
+				}
+			}
+			requestSeed = Long.valueOf(base);
+			Logger.log("Using seed " + base + " for the random selections", LogLevel.Info);
+		}
+		return requestSeed.longValue();
+	}
+
+	/**
+	 * Derives a well distributed seed from a seed and a stream number (SplitMix64)
+	 *
+	 * @param seed the seed
+	 * @param stream the stream number
+	 * @return the derived seed
+	 */
+	private static long mix(long seed, long stream) {
+		long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Builds the probabilities and aliases with Vose's alias method
+	 *
+	 * @param weights the weights of the transactions
+	 * @param total the sum of the weights
+	 */
+	private void buildAliasTable(int[] weights, long total) {
+		int n = weights.length;
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+
+		for (int i = 0; i < n; i++) {
+			scaled[i] = (double) weights[i] * n / total;
+			if (scaled[i] < 1.0) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+
+			this.probability[less] = scaled[less];
+			this.alias[less] = more;
+
+			scaled[more] = scaled[more] + scaled[less] - 1.0;
+			if (scaled[more] < 1.0) {
+				small[smallCount++] = more;
+			} else {
+				large[largeCount++] = more;
+			}
+		}
+
+		// the rest is 1 except for rounding errors
+		while (largeCount > 0) {
+			int more = large[--largeCount];
+			this.probability[more] = 1.0;
+			this.alias[more] = more;
+		}
+		while (smallCount > 0) {
+			int less = small[--smallCount];
+			this.probability[less] = 1.0;
+			this.alias[less] = less;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes.sp;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.db2wkl.workloadtypes.sp.datatypes.Parameter;
+import com.ibm.dbwkl.helper.RandomStringGenerator;
+import com.ibm.dbwkl.request.LoggedRuntimeException;
+import com.ibm.dbwkl.workloadtypes.Distribution;
+import com.ibm.dbwkl.workloadtypes.TransactionMix;
+
+/**
+ * <p>Generates the values of an IN parameter of a stored procedure as declared in the
+ * task file: a fixed value, a value from a list or a random value between a minimum and
+ * a maximum. For CHAR and VARCHAR, minimum and maximum are the length of the text. The
+ * distribution of the numbers and of the list items can be declared in the parameter.</p>
+ *
+ * <p>The generator is created once per parameter. Each thread uses its own random number
+ * generator and its own buffer for the texts.</p>
+ */
+public class ParameterGenerator {
+
+	/**
+	 * Stream numbers of the random number generators, separate from the streams of the workloads
+	 */
+	private static final AtomicLong streams = new AtomicLong(1L << 32);
+
+	/**
+	 * The random number generator of the current thread
+	 */
+	private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random(TransactionMix.getSeed(streams.getAndIncrement()));
+		}
+	};
+
+	/**
+	 * The buffer for the texts of the current thread
+	 */
+	private static final ThreadLocal<char[]> buffer = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[256];
+		}
+	};
+
+	/**
+	 * The parameter
+	 */
+	private final Parameter parameter;
+
+	/**
+	 * The fixed value or null
+	 */
+	private final String value;
+
+	/**
+	 * The list items or null
+	 */
+	private final String[] items;
+
+	/**
+	 * The distribution of the numbers, the list indexes or the text lengths, null for a fixed value
+	 */
+	private final Distribution distribution;
+
+	/**
+	 * Creates the generator for a parameter
+	 *
+	 * @param parameter the parameter
+	 * @throws LoggedRuntimeException if the declaration of the parameter is invalid
+	 */
+	public ParameterGenerator(Parameter parameter) throws LoggedRuntimeException {
+		this.parameter = parameter;
+
+		String min = parameter.getMin() == null || "".equals(parameter.getMin()) ? null : parameter.getMin();
+		String max = parameter.getMax() == null || "".equals(parameter.getMax()) ? null : parameter.getMax();
+
+		try {
+			if (parameter.getValue() != null && !"".equals(parameter.getValue())) {
+				// preset value
+				this.value = parameter.getValue();
+				this.items = null;
+				this.distribution = null;
+			} else if (parameter.getList() != null && !"".equals(parameter.getList())) {
+				// list of values where to take one from randomly
+				long seed = TransactionMix.getSeed(parameter.getName().hashCode());
+				this.value = null;
+				this.items = parameter.getList().split(";");
+				this.distribution = Distribution.create(parameter.getDistribution(), 0, this.items.length - 1, seed);
+			} else if (min != null || max != null) {
+				// random value or text length between minimum and maximum
+				long seed = TransactionMix.getSeed(parameter.getName().hashCode());
+				this.value = null;
+				this.items = null;
+
+				switch (parameter.getDataType()) {
+				case CHAR:
+				case VARCHAR:
+					if (max == null) {
+						throw new LoggedRuntimeException("For parameters of type CHAR or VARCHAR a maximum is required");
+					}
+					int maxLength = Integer.parseInt(max);
+					int minLength = min == null ? maxLength : Integer.parseInt(min);
+					this.distribution = Distribution.create(null, minLength, maxLength, seed);
+					break;
+				case SMALLINT:
+					this.distribution = Distribution.create(parameter.getDistribution(),
+							min == null ? 0 : Short.parseShort(min), max == null ? Short.MAX_VALUE : Short.parseShort(max), seed);
+					break;
+				default:
+					this.distribution = Distribution.create(parameter.getDistribution(),
+							min == null ? 0 : Integer.parseInt(min), max == null ? Integer.MAX_VALUE : Integer.parseInt(max), seed);
+					break;
+				}
+			} else {
+				throw new LoggedRuntimeException("You need to provide either a value, a list of values, a minimum or a maximum value");
+			}
+		} catch (NumberFormatException e) {
+			throw new LoggedRuntimeException("Invalid minimum or maximum for parameter " + parameter.getName() + ": " + e.getMessage());
+		} catch (IllegalArgumentException e) {
+			throw new LoggedRuntimeException("Invalid declaration of parameter " + parameter.getName() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Sets the next value of the parameter for the call
+	 *
+	 * @param cstmt the callable statement
+	 * @throws SQLException setting the parameter value failed
+	 */
+	public void set(CallableStatement cstmt) throws SQLException {
+		if (this.value != null) {
+			setValue(cstmt, this.value);
+			return;
+		}
+
+		Random rnd = random.get();
+		if (this.items != null) {
+			setValue(cstmt, this.items[(int) this.distribution.next(rnd)]);
+			return;
+		}
+
+		String name = this.parameter.getName();
+		switch (this.parameter.getDataType()) {
+		case CHAR:
+		case VARCHAR:
+			int length = (int) this.distribution.next(rnd);
+			char[] chars = buffer.get();
+			if (chars.length < length) {
+				chars = new char[length];
+				buffer.set(chars);
+			}
+			RandomStringGenerator.fill(rnd, chars, 0, length);
+			String text = new String(chars, 0, length);
+			cstmt.setString(name, text);
+			this.parameter.setExecutionValue(text);
+			break;
+		case SMALLINT:
+			short number = (short) this.distribution.next(rnd);
+			cstmt.setShort(name, number);
+			this.parameter.setExecutionValue(String.valueOf(number));
+			break;
+		default:
+			int integer = (int) this.distribution.next(rnd);
+			cstmt.setInt(name, integer);
+			this.parameter.setExecutionValue(String.valueOf(integer));
+			break;
+		}
+	}
+
+	/**
+	 * Sets the value for a specific type
+	 *
+	 * @param cstmt the callable statement where to set the parameter
+	 * @param text the value to set
+	 * @throws SQLException setting the parameter to the callable statement failed
+	 */
+	private void setValue(CallableStatement cstmt, String text) throws SQLException {
+		String name = this.parameter.getName();
+		switch (this.parameter.getDataType()) {
+		case CHAR:
+		case VARCHAR:
+			cstmt.setString(name, text);
+			break;
+		case INTEGER:
+			cstmt.setInt(name, Integer.parseInt(text));
+			break;
+		case SMALLINT:
+			cstmt.setShort(name, Short.parseShort(text));
+			break;
+		default:
+			break;
+		}
+
+		this.parameter.setExecutionValue(text);
+	}
+}
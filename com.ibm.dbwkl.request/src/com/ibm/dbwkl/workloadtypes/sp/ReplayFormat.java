@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.workloadtypes.sp;
+
+/**
+ * <p>The format of the replay file of the stored procedure module.</p>
+ */
+public enum ReplayFormat {
+
+	/**
+	 * A task file that can be executed again with the stored procedure module
+	 */
+	XML(".xml"),
+
+	/**
+	 * One line per call with the schema, the name and the parameter values separated by tabs
+	 */
+	TEXT(".txt");
+
+	/**
+	 * The extension of the replay file
+	 */
+	private final String extension;
+
+	/**
+	 * @param extension the extension of the replay file
+	 */
+	private ReplayFormat(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the extension of the replay file
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * Returns the format for the given name ignoring the case
+	 *
+	 * @param name the name of the format
+	 * @return the format or null if there is no format with that name
+	 */
+	public static ReplayFormat getFormat(String name) {
+		for (ReplayFormat format : values()) {
+			if (format.name().equalsIgnoreCase(name.trim())) {
+				return format;
+			}
+		}
+		return null;
+	}
+}
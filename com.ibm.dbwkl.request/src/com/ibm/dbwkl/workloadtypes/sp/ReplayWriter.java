@@ -12,8 +12,16 @@ package com.ibm.dbwkl.workloadtypes.sp;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import com.ibm.db2wkl.workloadtypes.sp.datatypes.Parameter;
 import com.ibm.db2wkl.workloadtypes.sp.datatypes.Procedure;
@@ -21,12 +29,37 @@ import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.request.Logger;
 
 /**
- * Writes the replay file for the stored procedure module
- * 
+ * <p>Writes the replay file for the stored procedure module. The file is opened once and
+ * kept open until {@link #Close()}. The executed calls are put into a queue with a copy of
+ * their parameter values and written to the file in the background, so the thread that
+ * executes the calls does not wait for the file. When the queue is full, the calling
+ * thread writes the queued calls itself.</p>
  *
+ * <p>The file is written in one of the {@link ReplayFormat}s. Only the XML format can be
+ * executed again as task file.</p>
  */
 public class ReplayWriter {
 
+	/**
+	 * Size of the write buffer in characters
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Number of calls that can be queued before the calling thread writes them itself
+	 */
+	private static final int QUEUE_SIZE = 16 * 1024;
+
+	/**
+	 * Interval in milliseconds in which the queued calls are written to the file
+	 */
+	private static final long FLUSH_INTERVAL = 500;
+
+	/**
+	 * Timer that writes the queued calls of all replay files
+	 */
+	private static final Timer flushTimer = new Timer("ReplayFileFlusher", true);
+
 	/**
 	 * Header of the replay file
 	 */
@@ -45,26 +78,69 @@ public class ReplayWriter {
 	 * replay file path
 	 */
 	private final File file;
-	
+
+	/**
+	 * The format of the replay file
+	 */
+	private final ReplayFormat format;
+
+	/**
+	 * The executed calls that are not written yet
+	 */
+	private final BlockingQueue<Call> queue = new ArrayBlockingQueue<Call>(QUEUE_SIZE);
+
+	/**
+	 * Task that writes the queued calls
+	 */
+	private final TimerTask flushTask;
+
 	/**
-	 * Default constructor
+	 * Writer to the file, null if the file is closed
+	 */
+	private volatile Writer writer;
+
+	/**
+	 * Default constructor, writes the replay file in the XML format
 	 * 
 	 * @param filePath path to the replay file
 	 */
 	public ReplayWriter(String filePath) {
+		this(filePath, ReplayFormat.XML);
+	}
+
+	/**
+	 * @param filePath path to the replay file
+	 * @param format the format of the replay file
+	 */
+	public ReplayWriter(String filePath, ReplayFormat format) {
 		this.file = new File(filePath);
+		this.format = format;
 		
 		try {
 			// create the file and write the header
-			FileWriter fw = new FileWriter(this.file);
-			BufferedWriter bw = new BufferedWriter(fw); 
-			
-			bw.write(this.header);
-			
-			bw.close();
-			fw.close();
+			this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file), StandardCharsets.UTF_8), BUFFER_SIZE);
+			if (this.format == ReplayFormat.XML) {
+				this.writer.write(this.header);
+			}
 		} catch (IOException e) {
-			Logger.log("Could not create the replay file on path filePath: " + e.getMessage(), LogLevel.Error);
+			Logger.log("Could not create the replay file on path " + this.file.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+			this.writer = null;
+		}
+
+		this.flushTask = new TimerTask() {
+			@Override
+			public void run() {
+				// an exception must not escape, it would cancel the timer shared by all writers
+				try {
+					flush();
+				} catch (RuntimeException e) {
+					Logger.log("Could not flush the replay file on path " + ReplayWriter.this.file.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+					Logger.logException(e);
+				}
+			}
+		};
+		if (this.writer != null) {
+			flushTimer.schedule(this.flushTask, FLUSH_INTERVAL, FLUSH_INTERVAL);
 		}
 	}
 	
@@ -78,56 +154,180 @@ public class ReplayWriter {
 	}
 	
 	/**
-	 * Adds a procedure to the report
+	 * Adds a procedure to the report. The current execution values of the parameters are
+	 * copied, the procedure can be executed again right away.
 	 * 
 	 * @param procedure procedure to add to the report
 	 */
 	public void AddProcedure(Procedure procedure) {
 		
-		if (this.file == null) {
+		if (this.writer == null) {
 			return;
 		}
 		
+		List<Parameter> parameters = procedure.getParameter();
+		String[] values = new String[parameters.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = parameters.get(i).getExecutionValue();
+		}
+		
+		Call call = new Call(procedure, values);
+		while (!this.queue.offer(call)) {
+			// the background writer is behind, help it
+			flush();
+			if (this.writer == null) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued calls to the file
+	 */
+	public synchronized void flush() {
+		if (this.writer == null) {
+			return;
+		}
+
 		try {
-			// create the file and write the header
-			FileWriter fw = new FileWriter(this.file, true);
-			BufferedWriter bw = new BufferedWriter(fw); 
-			
-			bw.write("\t<spm:procedure> \n");
-			bw.write("\t\t<spm:name>" + procedure.getName() + "</spm:name> \n");
-			bw.write("\t\t<spm:schema>" + procedure.getSchema()	+ "</spm:schema> \n");
-			for (Parameter parameter : procedure.getParameter()) {
-				bw.write("\t\t\t<spm:parameter> \n");
-				bw.write("\t\t\t\t<spm:name>" + parameter.getName() + "</spm:name> \n");
-				bw.write("\t\t\t\t<spm:dataType>" + parameter.getDataType().toString() + "</spm:dataType> \n");
-				bw.write("\t\t\t\t<spm:parmType>" + parameter.getParmType().toString() + "</spm:parmType> \n");
-				bw.write("\t\t\t\t<spm:value>" + parameter.getExecutionValue() + "</spm:value> \n");
-				bw.write("\t\t\t</spm:parameter> \n");
+			Call call;
+			while ((call = this.queue.poll()) != null) {
+				if (this.format == ReplayFormat.XML) {
+					writeXML(call);
+				} else {
+					writeText(call);
+				}
 			}
-			bw.write("\t</spm:procedure> \n");
-			
-			bw.close();
-			fw.close();
+			this.writer.flush();
 		} catch (IOException e) {
-			Logger.log("Could not create the replay file on path filePath: " + e.getMessage(), LogLevel.Error);
+			Logger.log("Could not write the replay file on path " + this.file.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+			closeWriter();
 		}
 	}
 	
 	/**
-	 * Closes the file
+	 * Writes the queued calls and closes the file
 	 */
-	public void Close() {
+	public synchronized void Close() {
+		this.flushTask.cancel();
+		flush();
+
+		if (this.writer == null) {
+			return;
+		}
+
 		try {
-			// create the file and write the header
-			FileWriter fw = new FileWriter(this.file, true);
-			BufferedWriter bw = new BufferedWriter(fw); 
-			
-			bw.write(this.footer);
-			
-			bw.close();
-			fw.close();
+			if (this.format == ReplayFormat.XML) {
+				this.writer.write(this.footer);
+			}
+		} catch (IOException e) {
+			Logger.log("Could not close the replay file on path " + this.file.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+		}
+		closeWriter();
+	}
+
+	/**
+	 * Closes the writer and drops the queued calls
+	 */
+	private void closeWriter() {
+		try {
+			this.writer.close();
 		} catch (IOException e) {
-			Logger.log("Could not close the replay file on path filePath: " + e.getMessage(), LogLevel.Error);
+			Logger.log("Could not close the replay file on path " + this.file.getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+		}
+		this.writer = null;
+		this.queue.clear();
+	}
+
+	/**
+	 * Writes a call as procedure of a task file
+	 * 
+	 * @param call the call
+	 * @throws IOException
+	 */
+	private void writeXML(Call call) throws IOException {
+		Procedure procedure = call.procedure;
+		Writer w = this.writer;
+		
+		w.write("\t<spm:procedure> \n");
+		w.write("\t\t<spm:name>" + escape(procedure.getName()) + "</spm:name> \n");
+		w.write("\t\t<spm:schema>" + escape(procedure.getSchema()) + "</spm:schema> \n");
+		w.write("\t\t<spm:weight>1</spm:weight> \n");
+		List<Parameter> parameters = procedure.getParameter();
+		for (int i = 0; i < call.values.length; i++) {
+			Parameter parameter = parameters.get(i);
+			w.write("\t\t\t<spm:parameter> \n");
+			w.write("\t\t\t\t<spm:name>" + escape(parameter.getName()) + "</spm:name> \n");
+			w.write("\t\t\t\t<spm:dataType>" + parameter.getDataType().value() + "</spm:dataType> \n");
+			w.write("\t\t\t\t<spm:parmType>" + parameter.getParmType().value() + "</spm:parmType> \n");
+			w.write("\t\t\t\t<spm:value>" + escape(call.values[i]) + "</spm:value> \n");
+			w.write("\t\t\t</spm:parameter> \n");
+		}
+		w.write("\t</spm:procedure> \n");
+	}
+
+	/**
+	 * Writes a call as one line: schema, name and the parameters as name=value, separated by tabs
+	 * 
+	 * @param call the call
+	 * @throws IOException
+	 */
+	private void writeText(Call call) throws IOException {
+		Procedure procedure = call.procedure;
+		Writer w = this.writer;
+		
+		w.write(procedure.getSchema());
+		w.write('\t');
+		w.write(procedure.getName());
+		List<Parameter> parameters = procedure.getParameter();
+		for (int i = 0; i < call.values.length; i++) {
+			w.write('\t');
+			w.write(parameters.get(i).getName());
+			w.write('=');
+			String value = call.values[i];
+			if (value != null) {
+				w.write(value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+			}
+		}
+		w.write('\n');
+	}
+
+	/**
+	 * @param text the text
+	 * @return the text with the XML special characters escaped, an empty text for null
+	 */
+	private static String escape(String text) {
+		if (text == null) {
+			return "";
+		}
+		if (text.indexOf('&') < 0 && text.indexOf('<') < 0 && text.indexOf('>') < 0) {
+			return text;
+		}
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * An executed call with the values of its parameters
+	 */
+	private static final class Call {
+
+		/**
+		 * The procedure
+		 */
+		final Procedure procedure;
+
+		/**
+		 * The execution values of the parameters
+		 */
+		final String[] values;
+
+		/**
+		 * @param procedure the procedure
+		 * @param values the execution values of the parameters
+		 */
+		Call(Procedure procedure, String[] values) {
+			this.procedure = procedure;
+			this.values = values;
 		}
 	}
 }
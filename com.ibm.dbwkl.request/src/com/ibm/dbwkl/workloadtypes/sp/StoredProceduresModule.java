@@ -19,11 +19,12 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -35,14 +36,16 @@ import com.ibm.db2wkl.workloadtypes.sp.datatypes.Procedure;
 import com.ibm.db2wkl.workloadtypes.sp.datatypes.Task;
 import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.helper.FileLoader;
-import com.ibm.dbwkl.helper.RandomStringGenerator;
 import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.request.LatencyRecorder;
 import com.ibm.dbwkl.request.LoggedRuntimeException;
 import com.ibm.dbwkl.request.Logger;
 import com.ibm.dbwkl.request.Request;
+import com.ibm.dbwkl.request.Tracer;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.workloadservice.ADataSourceConsumer;
 import com.ibm.dbwkl.workloadtypes.AStoredProceduresModule;
+import com.ibm.dbwkl.workloadtypes.TransactionMix;
 import com.ibm.staf.STAFResult;
 
 /**
@@ -74,9 +77,34 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 	private ReplayWriter replay;
 	
 	/**
-	 * Counter for stored procedure execution
+	 * Default number of randomly selected calls per execution
 	 */
-	private HashMap<String, Integer> proceduresCount;
+	private static final int DEFAULT_CALLS = 10;
+	
+	/**
+	 * Stream numbers of the mixes, separate from the streams of the workloads and the parameters
+	 */
+	private static final AtomicLong mixStreams = new AtomicLong(2L << 32);
+	
+	/**
+	 * The stream number of the mix of this module, taken in the order the task files are given
+	 */
+	private final long mixStream = mixStreams.getAndIncrement();
+	
+	/**
+	 * The weighted mix of the procedures for the randomized execution
+	 */
+	private TransactionMix<Procedure> mix;
+	
+	/**
+	 * Number of randomly selected calls per execution
+	 */
+	private int calls = DEFAULT_CALLS;
+	
+	/**
+	 * The generators of the values of the IN parameters
+	 */
+	private final IdentityHashMap<Parameter, ParameterGenerator> generators = new IdentityHashMap<Parameter, ParameterGenerator>();
 
 	/**
 	 * @param taskfile
@@ -105,11 +133,19 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 		
 		String timestamp = new SimpleDateFormat("yyyyMMdd-HHmm").format(new Date());
 		
-		String replayFileName = File.separator + Thread.currentThread().getName().replace(':', '_') + "_" + timestamp + ".xml";
+		ReplayFormat replayFormat = ReplayFormat.XML;
+		if (Request.hasOption(Options.SP_REPLAYFORMAT)) {
+			replayFormat = ReplayFormat.getFormat(Request.getOption(Options.SP_REPLAYFORMAT));
+			if (replayFormat == null) {
+				return new STAFResult(STAFResult.InvalidValue, "Unknown replay format " + Request.getOption(Options.SP_REPLAYFORMAT));
+			}
+		}
+		
+		String replayFileName = File.separator + Thread.currentThread().getName().replace(':', '_') + "_" + timestamp + replayFormat.getExtension();
 		if (Request.hasOption(Options.SP_REPLAY)) {
-			this.replay = new ReplayWriter(Request.getOption(Options.SP_REPLAY) + replayFileName);
+			this.replay = new ReplayWriter(Request.getOption(Options.SP_REPLAY) + replayFileName, replayFormat);
 		} else {
-			this.replay = new ReplayWriter(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryTasks() + replayFileName);
+			this.replay = new ReplayWriter(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryTasks() + replayFileName, replayFormat);
 			Logger.log("REPLAY path missing: writing file to " + this.replay.getFilePath(), LogLevel.Info);
 		}
 		
@@ -170,10 +206,34 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 			return new STAFResult(STAFResult.JavaError, e.getMessage());
 		}
 		
-		// initialize counters
-		this.proceduresCount = new HashMap<String, Integer>();
-		for (Procedure procedure : procedures) {
-			this.proceduresCount.put(getProcedureSpecificName(procedure), new Integer(0));
+		// build the mix for the randomized execution once
+		List<String> names = new ArrayList<String>();
+		int[] weights = new int[procedures.size()];
+		for (int i = 0; i < procedures.size(); i++) {
+			Procedure procedure = procedures.get(i);
+			printProcedure(procedure);
+			names.add(getProcedureSpecificName(procedure));
+			weights[i] = procedure.getWeight();
+		}
+		try {
+			this.mix = new TransactionMix<Procedure>(procedures, names, weights, LatencyRecorder.CALL, TransactionMix.getSeed(this.mixStream));
+		} catch (IllegalArgumentException e) {
+			String info = "Invalid weights of the stored procedures: " + e.getMessage();
+			Logger.log(info, LogLevel.Error);
+			return new STAFResult(STAFResult.JavaError, info);
+		}
+		
+		if (Request.hasOption(Options.SP_CALLS)) {
+			try {
+				this.calls = Integer.parseInt(Request.getOption(Options.SP_CALLS));
+				if (this.calls <= 0) {
+					throw new NumberFormatException();
+				}
+			} catch (NumberFormatException e) {
+				String info = "Invalid number of calls: " + Request.getOption(Options.SP_CALLS);
+				Logger.log(info, LogLevel.Error);
+				return new STAFResult(STAFResult.JavaError, info);
+			}
 		}
 
 		return new STAFResult(STAFResult.Ok);
@@ -394,73 +454,47 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 	private STAFResult executeRandomized(Connection con) {
 		CallableStatement cstmt;
 		
-		List<Procedure> procedures = this.task.getProcedure();
-		
-		// print the list of procedures for debugging purposes
-		for (Procedure procedure : procedures) {
-			printProcedure(procedure);
-		}
-
-		// get the random execution info
-		int rndMax = 0;
-		int[] rndBnd = new int[procedures.size()];
-		int n = 0;
-		for (Procedure procedure : procedures) {
-			rndMax += procedure.getWeight();
-			rndBnd[n] = rndMax;
-			n++;
-		}
-		
-		// go through the list of procedures and execute them for 10 times
-		Random rnd = new Random(System.currentTimeMillis());
-		for (int i = 0; i < 10; i++) {
-			
-			Procedure procedure = null;
+		// execute the configured number of randomly selected procedures
+		for (int i = 0; i < this.calls; i++) {
 			
 			// get the next procedure
-			int rnr = rnd.nextInt(rndMax);
-			for (int j = 0; j < procedures.size(); j++) {
-				if (rnr < rndBnd[j]) {
-					procedure = procedures.get(j);
-					break;
-				} 
-			}
-			
-			// check if we have a procedure
-			if (procedure == null) {
-				String info =
-					"Processing error while retrieving random stored procedure " + 
-					"[size:" + procedures.size() + "]" +
-					"[max:" + rndMax + "]" +
-					"[bnd:" + Arrays.toString(rndBnd) + "]"; 
-				Logger.log(info, LogLevel.Error);
-				return new STAFResult(STAFResult.JavaError, info);
-			}
-			
-			// increase the counter
-			this.proceduresCount.put(getProcedureSpecificName(procedure), new Integer(this.proceduresCount.get(getProcedureSpecificName(procedure)).intValue() + 1));
+			int selected = this.mix.next();
+			Procedure procedure = this.mix.get(selected);
 			
 			StringBuilder call = buildCallText(procedure);
 			
+			cstmt = null;
+			long traceStart = Tracer.begin();
 			try {
 				
-				// create the statement
+				// get the statement, the statements of a connection are reused for the same call text
 				Logger.log("Executing SP: " + call.toString(), LogLevel.Debug);
-				cstmt = Request.getDataSource().createPreparedCallableStatement(con, call.toString());
+				cstmt = Request.getDataSource().getCachedCallableStatement(con, call.toString());
 				
 				// set the parameter values for this call
 				setParameters(procedure, cstmt);
 				
 				// execute the call statement
+				long start = System.nanoTime();
 				cstmt.execute();
+				this.mix.record(selected, System.nanoTime() - start);
+				Request.getDataSource().countStatement(cstmt.getUpdateCount());
 				
 				// write to replay file
 				this.replay.AddProcedure(procedure);
 				
+				Request.getDataSource().releaseCachedStatement(con, call.toString(), cstmt);
+				
 			} catch (SQLException e) {
 				
+				Request.getDataSource().countSQLError(e);
+				Request.getDataSource().discardCachedStatement(con, call.toString(), cstmt);
 				Logger.log("Couldn't execute the call statement: " + call, LogLevel.Error);
 				return new STAFResult(STAFResult.JavaError, "Couldn't execute the call statement: " + call);
+			} finally {
+				if (traceStart != 0) {
+					Tracer.end(Tracer.STATEMENT, LatencyRecorder.CALL + getProcedureSpecificName(procedure), traceStart);
+				}
 			}
 		}
 		
@@ -502,30 +536,15 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 			switch (parameter.getParmType()) {
 			case IN:
 				
-
-				if (parameter.getValue() != null && !"".equals(parameter.getValue())) {
-					// preset value
-					setParameterValue(cstmt, parameter, parameter.getValue());
-				} else if (parameter.getList() != null && !"".equals(parameter.getValue())) {
-					// list of values where to take one from randomly
-					setParameterList(cstmt, parameter, parameter.getList());
-				} else if (parameter.getMin() != null && !"".equals(parameter.getMin()) &&
-						(parameter.getMax() == null || "".equals(parameter.getMax()))) {
-					// minimum value only handling
-					setParameterWithMinimum(cstmt, parameter, Integer.parseInt(parameter.getMin()));
-				} else if (parameter.getMax() != null && !"".equals(parameter.getMax()) &&
-						(parameter.getMin() == null || "".equals(parameter.getMin()))) {
-					// maximum value only handling
-					setParameterWithMaximum(cstmt, parameter, Integer.parseInt(parameter.getMax()));
-				} else if (parameter.getMin() != null && !"".equals(parameter.getMin()) &&
-						parameter.getMax() != null && !"".equals(parameter.getMax())) {
-					// minimum and maximum value
-					setParameterWithMinimumAndMaximum(cstmt, parameter, 
-							Integer.parseInt(parameter.getMin()), 
-							Integer.parseInt(parameter.getMax()));
-				} else {
-					throw new LoggedRuntimeException("You need to provide either a value, a list of values, a minimum or a maximum value");
+				// the generators of the task's parameters are kept, the parameters of a replay have fixed values
+				ParameterGenerator generator = this.generators.get(parameter);
+				if (generator == null) {
+					generator = new ParameterGenerator(parameter);
+					if (!this.task.isReplay()) {
+						this.generators.put(parameter, generator);
+					}
 				}
+				generator.set(cstmt);
 				
 				break;
 			case OUT:
@@ -558,157 +577,6 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 		
 	}
 	
-	/**
-	 * @param cstmt
-	 * @param parameter
-	 * @param maximum 
-	 * @throws SQLException setting the parameter value failed
-	 */
-	private void setParameterWithMaximum(CallableStatement cstmt,
-			Parameter parameter, int maximum) throws SQLException {
-
-		String rnds = null;
-		
-		switch (parameter.getDataType()) {
-		
-		case CHAR:
-		case VARCHAR:
-			rnds = RandomStringGenerator.get(maximum);
-			cstmt.setString(parameter.getName(), rnds);
-			break;
-		case INTEGER:
-			int rndi = new Random(System.currentTimeMillis()).nextInt(maximum);
-			rnds = String.valueOf(rndi);
-			cstmt.setInt(parameter.getName(), rndi);
-			break;
-		case SMALLINT:
-			short rndsh = (short) new Random(System.currentTimeMillis()).nextInt(maximum);
-			rnds = String.valueOf(rndsh);
-			cstmt.setShort(parameter.getName(), rndsh);
-			break;
-
-		default:
-			break;
-		}
-		
-		parameter.setExecutionValue(rnds);
-	}
-	
-	/**
-	 * @param cstmt
-	 * @param parameter
-	 * @param minimum 
-	 * @param maximum 
-	 * @throws SQLException setting the parameter value failed
-	 */
-	private void setParameterWithMinimumAndMaximum(CallableStatement cstmt,
-			Parameter parameter, int minimum, int maximum) throws SQLException {
-
-		String rnds = null;
-		
-		switch (parameter.getDataType()) {
-		
-		case CHAR:
-		case VARCHAR:
-			rnds = RandomStringGenerator.get(maximum).substring(0, maximum - minimum);
-			cstmt.setString(parameter.getName(), rnds);
-			break;
-		case INTEGER:
-			int rndi = new Random(System.currentTimeMillis()).nextInt(maximum);
-			rnds = String.valueOf(rndi);
-			cstmt.setInt(parameter.getName(), rndi);
-			break;
-		case SMALLINT:
-			short rndsh = (short) new Random(System.currentTimeMillis()).nextInt(maximum); 
-			rnds = String.valueOf(rndsh);
-			cstmt.setShort(parameter.getName(), rndsh);
-			break;
-
-		default:
-			break;
-		}
-		
-		parameter.setExecutionValue(rnds);
-	}
-
-	/**
-	 * @param cstmt
-	 * @param parameter
-	 * @param minimum
-	 * @throws SQLException setting the parameter value failed
-	 */
-	private void setParameterWithMinimum(CallableStatement cstmt,
-			Parameter parameter, int minimum) throws SQLException {
-
-		String rnds = null;
-		
-		switch (parameter.getDataType()) {
-		
-		case CHAR:
-		case VARCHAR:
-			throw new LoggedRuntimeException("For parameters of type CHAR or VARCHAR a maximum is required");
-		case INTEGER:
-			int rndi = new Random(System.currentTimeMillis()).nextInt(Integer.MAX_VALUE - minimum) + minimum;
-			rnds = String.valueOf(rndi);
-			cstmt.setInt(parameter.getName(), rndi);
-			break;
-		case SMALLINT:
-			short rndsh = (short) (new Random(System.currentTimeMillis()).nextInt(Short.MAX_VALUE - minimum) + minimum);
-			rnds = String.valueOf(rndsh);
-			cstmt.setShort(parameter.getName(), rndsh);
-			break;
-
-		default:
-			break;
-		}
-		
-		parameter.setExecutionValue(rnds);
-	}
-
-	/**
-	 * @param cstmt
-	 * @param parameter
-	 * @param list
-	 * @throws SQLException setting the random parameter failed
-	 */
-	private void setParameterList(CallableStatement cstmt, Parameter parameter,
-			String list) throws SQLException {
-
-		String[] items = list.split(";");
-		int rnd = new Random(System.currentTimeMillis()).nextInt(items.length);
-		setParameterValue(cstmt, parameter, items[rnd]);
-		
-		parameter.setExecutionValue(items[rnd]);
-	}
-
-	/**
-	 * Sets the value for a specific type
-	 * 
-	 * @param cstmt the callable statement where to set the parameter
-	 * @param parameter the parameter itself
-	 * @param value the value to set
-	 * @throws SQLException setting the parameter to the callable statement failed
-	 */
-	private void setParameterValue(CallableStatement cstmt, Parameter parameter, String value) throws SQLException {
-
-		switch (parameter.getDataType()) {
-		case CHAR:
-		case VARCHAR:
-			cstmt.setString(parameter.getName(), value);
-			break;
-		case INTEGER:
-			cstmt.setInt(parameter.getName(), Integer.parseInt(value));
-			break;
-		case SMALLINT:
-			cstmt.setShort(parameter.getName(), Short.parseShort(value));
-			break;
-		default:
-			break;
-		}
-
-		parameter.setExecutionValue(value);
-	}
-
 	/**
 	 * Executes a replay file
 	 * @param con 
@@ -718,35 +586,45 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 	private STAFResult executeReplay(Connection con) {
 		CallableStatement cstmt;
 		
-		List<Procedure> procedures = this.task.getProcedure();
-		
-		// go through the list of procedures and execute them
-		for (Procedure procedure : procedures) {
-			
-			// increase the counter
-			this.proceduresCount.put(getProcedureSpecificName(procedure), new Integer(this.proceduresCount.get(getProcedureSpecificName(procedure)).intValue() + 1));
+		// go through the list of procedures and execute them, the mix holds them in the order of the task
+		for (int i = 0; i < this.mix.size(); i++) {
+			Procedure procedure = this.mix.get(i);
+			this.mix.count(i);
 			
 			StringBuilder call = buildCallText(procedure);
 			
+			cstmt = null;
+			long traceStart = Tracer.begin();
 			try {
 				
-				// create the statement
+				// get the statement, the statements of a connection are reused for the same call text
 				Logger.log("Executing SP: " + call.toString(), LogLevel.Debug);
-				cstmt = Request.getDataSource().createPreparedCallableStatement(con, call.toString());
+				cstmt = Request.getDataSource().getCachedCallableStatement(con, call.toString());
 				
 				// set the parameter values for this call
 				setParameters(procedure, cstmt);
 				
 				// execute the call statement
+				long start = System.nanoTime();
 				cstmt.execute();
+				LatencyRecorder.record(LatencyRecorder.CALL + getProcedureSpecificName(procedure), System.nanoTime() - start);
+				Request.getDataSource().countStatement(cstmt.getUpdateCount());
 				
 				// write to replay file
 				this.replay.AddProcedure(procedure);
 				
+				Request.getDataSource().releaseCachedStatement(con, call.toString(), cstmt);
+				
 			} catch (SQLException e) {
 				
+				Request.getDataSource().countSQLError(e);
+				Request.getDataSource().discardCachedStatement(con, call.toString(), cstmt);
 				Logger.log("Couldn't execute the call statement: " + call + " :: " + e.getMessage(), LogLevel.Error);
 				return new STAFResult(STAFResult.JavaError, "Couldn't execute the call statement: " + call);
+			} finally {
+				if (traceStart != 0) {
+					Tracer.end(Tracer.STATEMENT, LatencyRecorder.CALL + getProcedureSpecificName(procedure), traceStart);
+				}
 			}
 		}
 		
@@ -797,18 +675,32 @@ public class StoredProceduresModule extends AStoredProceduresModule {
 	@Override
 	public STAFResult clean() {
 		
-		// print result
-		if (this.proceduresCount != null) {
-			for (String procedureName : this.proceduresCount.keySet()) {
-				Logger.log("Executed SP " + procedureName + " for " + this.proceduresCount.get(procedureName) + " times", LogLevel.Info);
+		// print result, a procedure can be in the task more than once
+		if (this.mix != null) {
+			Map<String, Long> proceduresCount = new TreeMap<String, Long>();
+			for (int i = 0; i < this.mix.size(); i++) {
+				String procedureName = getProcedureSpecificName(this.mix.get(i));
+				Long count = proceduresCount.get(procedureName);
+				proceduresCount.put(procedureName, Long.valueOf((count == null ? 0 : count.longValue()) + this.mix.getCount(i)));
+			}
+			for (Map.Entry<String, Long> procedureCount : proceduresCount.entrySet()) {
+				Logger.log("Executed SP " + procedureCount.getKey() + " for " + procedureCount.getValue() + " times", LogLevel.Info);
 			}
 		}
 		
-		// finalize the replay xml file
-		this.replay.Close();
-		
 		return new STAFResult(STAFResult.Ok);
 	}
+	
+	/* (non-Javadoc)
+	 * @see com.ibm.dbwkl.workloadtypes.AStoredProceduresModule#release()
+	 */
+	@Override
+	protected void release() {
+		// write the queued calls and finalize the replay file, also with NOCLEAN or after a failure
+		if (this.replay != null) {
+			this.replay.Close();
+		}
+	}
 
 	/*
 	 * @see
@@ -41,6 +41,7 @@ import javax.xml.bind.annotation.XmlType;
  *         &lt;element name="max" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
  *         &lt;element name="value" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
  *         &lt;element name="list" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
+ *         &lt;element name="distribution" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
  *         &lt;element name="executionValue" type="{http://www.w3.org/2001/XMLSchema}string" minOccurs="0"/>
  *       &lt;/sequence>
  *     &lt;/restriction>
@@ -59,6 +60,7 @@ import javax.xml.bind.annotation.XmlType;
     "max",
     "value",
     "list",
+    "distribution",
     "executionValue"
 })
 public class Parameter {
@@ -73,6 +75,7 @@ public class Parameter {
     protected String max;
     protected String value;
     protected String list;
+    protected String distribution;
     protected String executionValue;
 
     /**
@@ -243,6 +246,30 @@ public class Parameter {
         this.list = value;
     }
 
+    /**
+     * Gets the value of the distribution property.
+     * 
+     * @return
+     *     possible object is
+     *     {@link String }
+     *     
+     */
+    public String getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * Sets the value of the distribution property.
+     * 
+     * @param value
+     *     allowed object is
+     *     {@link String }
+     *     
+     */
+    public void setDistribution(String value) {
+        this.distribution = value;
+    }
+
     /**
      * Gets the value of the executionValue property.
      * 
@@ -27,6 +27,7 @@ import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.helper.CaseInsensitiveMap;
 import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.logging.Logger;
+import com.ibm.dbwkl.report.MetricsEndpoint;
 import com.ibm.dbwkl.report.Reporter;
 import com.ibm.dbwkl.request.ARequest;
 import com.ibm.dbwkl.request.RMIRegistry;
@@ -206,6 +207,7 @@ public class DB2WorkloadService implements STAFServiceInterfaceLevel30 {
 	public STAFResult term() {
 		
 		ShutDownHook.removeShutDownHook();
+		MetricsEndpoint.getInstance().stop();
 		try {
 			RMIRegistry.INSTANCE.terminate();
 		} catch (AccessException e) {
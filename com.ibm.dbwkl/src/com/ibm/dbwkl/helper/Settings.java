@@ -29,6 +29,7 @@ import com.ibm.dbwkl.STAFHandler;
 import com.ibm.dbwkl.helper.FileLoader;
 import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.logging.Logger;
+import com.ibm.dbwkl.logging.LoggerStore;
 import com.ibm.staf.STAFResult;
 import com.ibm.staf.STAFUtil;
 
@@ -85,6 +86,11 @@ public enum Settings {
 	 */
 	private static int MAX_REQUESTS = 100;
 	
+	/**
+	 * maximum number of log entries kept in memory for LOG LIST
+	 */
+	private static int LOG_STORE_SIZE = LoggerStore.DEFAULT_STORE_LIMIT;
+	
 	/**
 	 * temporary test value to test the coordination
 	 */
@@ -285,4 +291,20 @@ public enum Settings {
 		
 		return TESTCONNECTIONS;
 	}
+	
+	/**
+	 * Tries to resolve the system var IBM/OMPE/DB2WKL/LogStoreSize otherwise it will
+	 * return the default number of log entries kept in memory
+	 * @return the logStoreSize
+	 */
+	public static int tryLogStoreSize() {
+		try {
+			STAFResult result = STAFUtil.resolveInitVar("{IBM/OMPE/DB2WKL/LogStoreSize}", STAFHandler.instance.getSTAFHandle());
+			if(result.rc==STAFResult.Ok) return Integer.parseInt(result.result);
+		} catch(Exception e) {
+			return LOG_STORE_SIZE;
+		}
+		
+		return LOG_STORE_SIZE;
+	}
 }
@@ -18,8 +18,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.ibm.dbwkl.helper.DateUtility;
+import com.ibm.dbwkl.helper.Settings;
 import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.logging.LoggerEntry;
 import com.ibm.dbwkl.logging.helper.LogHelper;
@@ -84,7 +87,7 @@ public class Logger implements LoggerRemoteInterface {
 	/**
 	 * A store, to hold the log entries
 	 */
-	private static LoggerStore store = new LoggerStore();
+	private static final AtomicReference<LoggerStore> store = new AtomicReference<LoggerStore>(new LoggerStore());
 	
 	/**
 	 * Store the old date to compare against to detect a day switch
@@ -204,7 +207,7 @@ public class Logger implements LoggerRemoteInterface {
 			
 			/* add LoggerEntry to the LoggerEntry store because this is a newly received
 			 unregistered instance that was created by an external LoggerService */
-			store.addEntry(entry);
+			store.get().addEntry(entry);
 			// we copy the list to prevent a ConcurrentModifikationException
 			ArrayList<ILoggerService> copy = getCopyOfLoggers();
 			
@@ -290,6 +293,21 @@ public class Logger implements LoggerRemoteInterface {
 		details = false;
 		logLevel = Logger.Info;
 		
+		// resize the store as configured and keep what was logged so far
+		int storeLimit = Settings.tryLogStoreSize();
+		if(storeLimit != store.get().getStoreLimit()) {
+			LoggerStore resized = new LoggerStore(storeLimit);
+			List<LoggerEntry> copied = store.get().getEntries();
+			for(LoggerEntry entry : copied)
+				resized.addEntry(entry);
+			
+			// also keep the entries that were logged to the old store while copying
+			List<LoggerEntry> previous = store.getAndSet(resized).getEntries();
+			int late = copied.isEmpty() ? 0 : previous.lastIndexOf(copied.get(copied.size() - 1)) + 1;
+			for(LoggerEntry entry : previous.subList(late, previous.size()))
+				resized.addEntry(entry);
+		}
+		
 		addLogger(new TextLogger());
 		addLogger(new HTMLLogger());
 	}
@@ -441,7 +459,7 @@ public class Logger implements LoggerRemoteInterface {
 	 */
 	public static ArrayList<LoggerEntry> getLogEntries() {
 
-		return store.getEntries();
+		return store.get().getEntries();
 	}
 	
 	/**
@@ -451,9 +469,9 @@ public class Logger implements LoggerRemoteInterface {
 	public static List<LoggerEntry> getLogEntries(int n) {
 		
 		if (n > 0)
-			return store.getEntries(n);
+			return store.get().getEntries(n);
 		else
-			return store.getEntries();
+			return store.get().getEntries();
 	}
 	
 	/**
@@ -463,7 +481,7 @@ public class Logger implements LoggerRemoteInterface {
 	 */
 	public static List<LoggerEntry> getLogEntries(int n, String[] levels) {
 
-		return store.getEntries(n, levels);
+		return store.get().getEntries(n, levels);
 	}
 
 	/**
@@ -475,7 +493,7 @@ public class Logger implements LoggerRemoteInterface {
 	 */
 	public static List<LoggerEntry> getLogEntries(int n, String[] levels,
 			int reqid) {
-		return store.getEntries(n, levels, reqid);
+		return store.get().getEntries(n, levels, reqid);
 	}
 
 	/**
@@ -485,14 +503,14 @@ public class Logger implements LoggerRemoteInterface {
 	 * @return the last n log entries filtered with reqid
 	 */
 	public static List<LoggerEntry> getLogEntries(int n, int reqid) {
-		return store.getEntries(n, reqid);
+		return store.get().getEntries(n, reqid);
 	}
 
 	/**
 	 * @return the last log entry
 	 */
 	public static LoggerEntry getLastLogEntry() {
-		return store.getLastLogEntry();
+		return store.get().getLastLogEntry();
 	}
 	
 //	/**
@@ -524,6 +542,20 @@ public class Logger implements LoggerRemoteInterface {
 		log(entry);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.ibm.dbwkl.rmi.LoggerRemoteInterface#LogBatch(java.util.Vector)
+	 */
+	@Override
+	public void LogBatch(Vector<LoggerEntry> entries) throws RemoteException {
+		for (LoggerEntry remoteEntry : entries) {
+			// the entries get their id in this JVM, the time is kept from the request JVM
+			LoggerEntry entry = new LoggerEntry(remoteEntry.getTime(), remoteEntry.getRequestName(), remoteEntry.getMessage(), 
+					LogLevel.getLevel(remoteEntry.getLevel()), remoteEntry.getClasse(), remoteEntry.getMethod(), 
+					remoteEntry.getLineNumber(), remoteEntry.getThread(), remoteEntry.getThreadGroup());
+			log(entry);
+		}
+	}
+
 	/**
 	 * @param message
 	 * @param requestName
@@ -12,94 +12,156 @@ package com.ibm.dbwkl.logging;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import com.ibm.dbwkl.helper.StringUtility;
 import com.ibm.dbwkl.logging.LoggerEntry;
 
 /**
- * This class stores all log entries.
- * 
+ * <p>This class stores the last log entries in a ring buffer with a fixed capacity. When
+ * the buffer is full, the oldest entry is overwritten. Adding an entry does not need a
+ * lock, so the store can be used by many logging threads at the same time.</p>
+ *
+ * <p>Each stored entry links to the previous entry with the same level and the previous
+ * entry of the same request. The queries for a level or a request follow these links, so
+ * they only visit the matching entries instead of scanning the whole store.</p>
  */
 public class LoggerStore {
 
+	/**
+	 * The default maximal number of stored entries
+	 */
+	public static final int DEFAULT_STORE_LIMIT = 10000;
+
+	/**
+	 * Sequence number for 'no entry'
+	 */
+	private static final long NONE = -1;
+
+	/**
+	 * Sequence number of a link that is not set yet
+	 */
+	private static final long PENDING = -2;
+
+	/**
+	 * Marks a request index that was removed because all its entries were overwritten
+	 */
+	private static final long REMOVED = -3;
+
+	/**
+	 * How often a reader yields while waiting for a link that is not set yet
+	 */
+	private static final int PENDING_RETRIES = 100;
+
+	/**
+	 * Number of log levels
+	 */
+	private static final int LEVELS = 4;
+
+	/**
+	 * Orders the slots by their sequence number
+	 */
+	private static final Comparator<Slot> SEQUENCE_ORDER = new Comparator<Slot>() {
+		@Override
+		public int compare(Slot slot1, Slot slot2) {
+			return slot1.sequence < slot2.sequence ? -1 : (slot1.sequence == slot2.sequence ? 0 : 1);
+		}
+	};
+
 	/**
 	 * The maximal number of stored entries
 	 */
-	private int storeLimit = 100;
+	private final int storeLimit;
+
+	/**
+	 * The ring buffer
+	 */
+	private final AtomicReferenceArray<Slot> slots;
 
 	/**
-	 * A list of stored entries
+	 * The sequence number of the next entry
 	 */
-	private final ArrayList<LoggerEntry> entries = new ArrayList<LoggerEntry>();
-	
+	private final AtomicLong sequence = new AtomicLong();
+
 	/**
-	 * @return the stored entries
+	 * The sequence number of the last entry of each level
+	 */
+	private final AtomicLongArray lastOfLevel = new AtomicLongArray(LEVELS);
+
+	/**
+	 * The sequence number of the last entry of each request by the lower case request name
+	 */
+	private final ConcurrentHashMap<String, AtomicLong> lastOfRequest = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Creates a store with the default limit
+	 */
+	public LoggerStore() {
+		this(DEFAULT_STORE_LIMIT);
+	}
+
+	/**
+	 * @param storeLimit the maximal number of stored entries
+	 */
+	public LoggerStore(int storeLimit) {
+		this.storeLimit = storeLimit > 0 ? storeLimit : DEFAULT_STORE_LIMIT;
+		this.slots = new AtomicReferenceArray<Slot>(this.storeLimit);
+		for (int i = 0; i < LEVELS; i++) {
+			this.lastOfLevel.set(i, NONE);
+		}
+	}
+
+	/**
+	 * @return a copy of all stored entries in chronological order
 	 */
 	public ArrayList<LoggerEntry> getEntries() {
-	
-		return this.entries;
+
+		return toEntries(getLastSlots(0));
 	}
-	
+
 	/**
 	 * Returns the last n log entries and filters for the level
-	 * 
+	 *
 	 * @param n if n > 0 : number of last log entries; if n <= 0 : all the log entries
 	 * @param levels levels to filter on
 	 * @return last n log entries
 	 */
 	public List<LoggerEntry> getEntries(int n, String[] levels) {
-		
-		List<LoggerEntry> result = new ArrayList<LoggerEntry>();
-		
-		// costly operation, thus make sure that no other thread is currently logging
-		synchronized (this.entries) {
-			int num = 0;
-			if(n <= 0){
-				num = this.entries.size();
-			} else { 
-				num = n;
-			}
-			int found = 0;
-			int current = this.entries.size() - 1;
-			while (found < num && current >= 0) {
-				if (StringUtility.arrayContainsIgnoreCase(levels, this.entries.get(current).getLevel().trim())) {
-					result.add(this.entries.get(current));
-					found++;
-				}
-				current--;
+
+		List<Slot> result = new ArrayList<Slot>();
+		boolean[] levelFilter = getLevelFilter(levels);
+		for (int level = 0; level < LEVELS; level++) {
+			if (levelFilter[level]) {
+				collect(this.lastOfLevel.get(level), true, n, null, result);
 			}
-			
 		}
-		//let the list be chronological
-		Collections.reverse(result);
-		return result;
+
+		// the levels were collected one after another, so only keep the last n of all
+		Collections.sort(result, SEQUENCE_ORDER);
+		if (n > 0 && result.size() > n) {
+			result = result.subList(result.size() - n, result.size());
+		}
+		return toEntries(result);
 	}
-	
+
 	/**
 	 * Get the last n log entries.
 	 * @param n if n > 0 : number of last log entries; if n <= 0 : all the log entries
 	 * @return the stored entries
 	 */
 	public List<LoggerEntry> getEntries(int n) {
-	
-		if(n <= 0){
-			return getEntries();
-		}
-		
-		// costly operation, thus make sure that no other thread is currently logging
-		synchronized (this.entries) {
-			
-			int first = this.entries.size() - n;
-			return this.entries.subList(first < 0 ? 0 : first, this.entries.size());
 
-		}
-		
+		return toEntries(getLastSlots(n));
 	}
 
 	/**
 	 * Returns the last n log entries and filters for the level and reqID
-	 * 
+	 *
 	 * @param n if n > 0 : number of last log entries if n <= 0 : all the log entries
 	 * @param levels The levels to filter on
 	 * @param reqid The request ID to filter on
@@ -107,100 +169,281 @@ public class LoggerStore {
 	 */
 	public List<LoggerEntry> getEntries(int n, String[] levels, int reqid) {
 
-		List<LoggerEntry> result = new ArrayList<LoggerEntry>();
-
-		// costly operation, thus make sure that no other thread is currently logging
-		synchronized (this.entries) {
-			int num = 0;
-			if(n <= 0){
-				num = this.entries.size();
-			} else { 
-				num = n;
-			}
-			int found = 0;
-			int current = this.entries.size() - 1;
-			while (found < num && current >= 0) {
-				if (StringUtility.arrayContainsIgnoreCase(levels, this.entries.get(current).getLevel().trim())
-						&& this.entries.get(current).getRequestName().equalsIgnoreCase("req" + reqid)) {
-					result.add(this.entries.get(current));
-					found++;
-				}
-				current--;
-			}
+		List<Slot> result = new ArrayList<Slot>();
+		AtomicLong last = this.lastOfRequest.get(("req" + reqid).toLowerCase());
+		if (last != null) {
+			collect(last.get(), false, n, getLevelFilter(levels), result);
 		}
-		//let the list be chronological
-		Collections.reverse(result);
-		return result;
+		Collections.sort(result, SEQUENCE_ORDER);
+		return toEntries(result);
 	}
 
 	/**
 	 * Returns the last n log entries and filters for the reqID
-	 * 
+	 *
 	 * @param n if n > 0 : number of last log entries if n <= 0 : all the log entries
 	 * @param reqid The request ID to filter on
 	 * @return last n log entries
 	 */
 	public List<LoggerEntry> getEntries(int n, int reqid) {
 
-		List<LoggerEntry> result = new ArrayList<LoggerEntry>();
-		
-		// costly operation, thus make sure that no other thread is currently
-		// logging
-		synchronized (this.entries) {
-			int num = 0;
-			if(n <= 0){
-				num = this.entries.size();
-			} else {
-				num = n;
-			}
-			int found = 0;
-			int current = this.entries.size() - 1;
-			while (found < num && current >= 0) {
-				if (this.entries.get(current).getRequestName().equalsIgnoreCase("req" + reqid)) {
-					result.add(this.entries.get(current));
-					found++;
-				}
-				current--;
-			}
-		}
-		
-		Collections.reverse(result);
-		return result;
+		return getEntries(n, null, reqid);
 	}
 
 	/**
 	 * @param entry to add to the list
 	 */
 	public void addEntry(LoggerEntry entry) {
-		
-		if(this.entries.size() == this.storeLimit) 
-			this.entries.remove(0);
-		
-		this.entries.add(entry);
+
+		int level = getLevelIndex(entry.getLevel());
+		String requestName = entry.getRequestName() == null ? "" : entry.getRequestName().toLowerCase();
+
+		long current = this.sequence.getAndIncrement();
+		Slot slot = new Slot(current, entry);
+		this.slots.set(getIndex(current), slot);
+
+		// link the entry after it is visible in the buffer, so every link points to a stored entry
+		slot.previousOfLevel = this.lastOfLevel.getAndSet(level, current);
+		slot.previousOfRequest = requestName.length() == 0 ? NONE : linkToRequest(requestName, current);
 	}
-	
+
 	/**
 	 * @return the maximal number of stored entries
 	 */
 	public int getStoreLimit() {
-		
+
 		return this.storeLimit;
 	}
 
 	/**
-	 * Sets the maximal number of stored entries
-	 * 
-	 * @param storeLimit to set
+	 * @return the number of stored entries
 	 */
-	public void setStoreLimit(int storeLimit) {
-	
-		this.storeLimit = storeLimit;
+	public int getSize() {
+
+		return (int) Math.min(this.sequence.get(), this.storeLimit);
 	}
-	
+
 	/**
-	 * @return the last log entry within the stored logger entries
+	 * @return the last log entry within the stored logger entries or null if there is none
 	 */
 	public LoggerEntry getLastLogEntry() {
-		return this.entries.get(this.entries.size()-1);
+		List<Slot> last = getLastSlots(1);
+		return last.isEmpty() ? null : last.get(0).entry;
+	}
+
+	/**
+	 * Returns the last n slots of the buffer. Slots that are still being written are skipped.
+	 *
+	 * @param n if n > 0 : number of slots; if n <= 0 : all slots
+	 * @return the slots in chronological order
+	 */
+	private List<Slot> getLastSlots(int n) {
+		long last = this.sequence.get() - 1;
+		long first = Math.max(0, last - this.storeLimit + 1);
+
+		List<Slot> result = new ArrayList<Slot>(n > 0 ? Math.min(n, this.storeLimit) : getSize());
+		for (long current = last; current >= first && (n <= 0 || result.size() < n); current--) {
+			Slot slot = this.slots.get(getIndex(current));
+			if (slot == null || slot.sequence < current) {
+				// the entry is not written yet
+				continue;
+			}
+			if (slot.sequence > current) {
+				// the entry was already overwritten, so are all older ones
+				break;
+			}
+			result.add(slot);
+		}
+
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * Follows the links of the level or request, starting with the given entry, and
+	 * collects the entries until n entries are found or the entries were overwritten
+	 *
+	 * @param start sequence number of the first entry
+	 * @param byLevel true to follow the level links, false to follow the request links
+	 * @param n if n > 0 : number of entries to collect; if n <= 0 : all entries
+	 * @param levelFilter the levels to collect or null for all
+	 * @param result the list to add the slots to
+	 */
+	private void collect(long start, boolean byLevel, int n, boolean[] levelFilter, List<Slot> result) {
+		int found = 0;
+		long current = start;
+		while (current >= 0 && (n <= 0 || found < n)) {
+			Slot slot = this.slots.get(getIndex(current));
+			if (slot == null || slot.sequence != current) {
+				// overwritten
+				break;
+			}
+
+			if (levelFilter == null || levelFilter[getLevelIndex(slot.entry.getLevel())]) {
+				result.add(slot);
+				found++;
+			}
+
+			current = byLevel ? slot.getPreviousOfLevel() : slot.getPreviousOfRequest();
+		}
+	}
+
+	/**
+	 * Makes the given entry the last one of its request
+	 *
+	 * @param requestName lower case request name
+	 * @param current sequence number of the entry
+	 * @return the sequence number of the previous entry of the request
+	 */
+	private long linkToRequest(String requestName, long current) {
+		while (true) {
+			AtomicLong last = this.lastOfRequest.get(requestName);
+			if (last == null) {
+				last = this.lastOfRequest.putIfAbsent(requestName, new AtomicLong(current));
+				if (last == null) {
+					// a new request, a good time to forget the requests without stored entries
+					expungeRequests(current);
+					return NONE;
+				}
+			}
+
+			long previous = last.get();
+			if (previous == REMOVED) {
+				this.lastOfRequest.remove(requestName, last);
+			} else if (last.compareAndSet(previous, current)) {
+				return previous;
+			}
+		}
+	}
+
+	/**
+	 * Removes the requests whose entries are all overwritten
+	 *
+	 * @param current the current sequence number
+	 */
+	private void expungeRequests(long current) {
+		for (Map.Entry<String, AtomicLong> request : this.lastOfRequest.entrySet()) {
+			AtomicLong last = request.getValue();
+			long previous = last.get();
+			if (previous >= 0 && previous <= current - this.storeLimit && last.compareAndSet(previous, REMOVED)) {
+				this.lastOfRequest.remove(request.getKey(), last);
+			}
+		}
+	}
+
+	/**
+	 * @param current sequence number
+	 * @return the index of the sequence number in the ring buffer
+	 */
+	private int getIndex(long current) {
+		return (int) (current % this.storeLimit);
+	}
+
+	/**
+	 * @param level name of the level
+	 * @return the index of the level
+	 */
+	private static int getLevelIndex(String level) {
+		return LogLevel.getLevel(level).getLevel();
+	}
+
+	/**
+	 * @param levels names of the levels
+	 * @return true for each index of a level contained in the names
+	 */
+	private static boolean[] getLevelFilter(String[] levels) {
+		boolean[] filter = new boolean[LEVELS];
+		if (levels == null) {
+			for (int i = 0; i < LEVELS; i++) {
+				filter[i] = true;
+			}
+			return filter;
+		}
+
+		for (String level : levels) {
+			for (int i = 0; i < LEVELS; i++) {
+				if (LogLevel.getLevel(i).toString().trim().equalsIgnoreCase(level.trim())) {
+					filter[i] = true;
+				}
+			}
+		}
+		return filter;
+	}
+
+	/**
+	 * @param slots the slots
+	 * @return the entries of the slots
+	 */
+	private static ArrayList<LoggerEntry> toEntries(List<Slot> slots) {
+		ArrayList<LoggerEntry> entries = new ArrayList<LoggerEntry>(slots.size());
+		for (Slot slot : slots) {
+			entries.add(slot.entry);
+		}
+		return entries;
+	}
+
+	/**
+	 * A stored entry with its links
+	 */
+	private static final class Slot {
+
+		/**
+		 * Sequence number of the entry
+		 */
+		final long sequence;
+
+		/**
+		 * The entry
+		 */
+		final LoggerEntry entry;
+
+		/**
+		 * Sequence number of the previous entry with the same level
+		 */
+		volatile long previousOfLevel = PENDING;
+
+		/**
+		 * Sequence number of the previous entry of the same request
+		 */
+		volatile long previousOfRequest = PENDING;
+
+		/**
+		 * @param sequence sequence number of the entry
+		 * @param entry the entry
+		 */
+		Slot(long sequence, LoggerEntry entry) {
+			this.sequence = sequence;
+			this.entry = entry;
+		}
+
+		/**
+		 * @return the previous entry with the same level, waits a little if the writer did not
+		 * link it yet and returns NONE if it still is not linked after that
+		 */
+		long getPreviousOfLevel() {
+			long previous;
+			for (int retries = 0; (previous = this.previousOfLevel) == PENDING; retries++) {
+				if (retries == PENDING_RETRIES) {
+					return NONE;
+				}
+				Thread.yield();
+			}
+			return previous;
+		}
+
+		/**
+		 * @return the previous entry of the same request, waits a little if the writer did not
+		 * link it yet and returns NONE if it still is not linked after that
+		 */
+		long getPreviousOfRequest() {
+			long previous;
+			for (int retries = 0; (previous = this.previousOfRequest) == PENDING; retries++) {
+				if (retries == PENDING_RETRIES) {
+					return NONE;
+				}
+				Thread.yield();
+			}
+			return previous;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -13,27 +13,87 @@ package com.ibm.dbwkl.logging.output;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.dbwkl.DB2WorkloadServiceException;
 import com.ibm.dbwkl.helper.DB2CommandUtility;
 import com.ibm.dbwkl.helper.SimpleJDBCConnector;
 import com.ibm.dbwkl.helper.URLCutter;
 import com.ibm.dbwkl.logging.ILoggerService;
+import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.logging.Logger;
 import com.ibm.dbwkl.logging.LoggerEntry;
 
 /**
- * This class writes a log to a database.
+ * <p>This class writes a log to a database.</p>
  * 
+ * <p>The entries are not inserted by the logging thread. They are put into a bounded 
+ * queue and a writer thread inserts them with a batched prepared statement. The inserted 
+ * rows are committed every {@link #COMMIT_ROWS} rows or after {@link #COMMIT_INTERVAL} 
+ * milliseconds, whatever comes first.</p>
  */
-public class DatabaseLogger implements ILoggerService {
+public class DatabaseLogger implements ILoggerService, Runnable {
+	
+	/**
+	 * Number of entries that can wait to be inserted
+	 */
+	private static final int QUEUE_SIZE = 10000;
+	
+	/**
+	 * Number of rows after which the inserted rows are committed
+	 */
+	private static final int COMMIT_ROWS = 100;
+	
+	/**
+	 * Maximum time in milliseconds an inserted row stays uncommitted
+	 */
+	private static final long COMMIT_INTERVAL = 1000;
+	
+	/**
+	 * Maximum time in milliseconds to wait for the queue to be written on term
+	 */
+	private static final long TERM_TIMEOUT = 10000;
+	
+	/**
+	 * Length of the VARCHAR columns
+	 */
+	private static final int VARCHAR_LENGTH = 400;
 	
 	/**
 	 * Connection to the database
 	 */
 	private Connection connection = null;
+	
+	/**
+	 * The prepared insert statement, only used by the writer thread
+	 */
+	private PreparedStatement insert = null;
+	
+	/**
+	 * Entries that wait to be inserted
+	 */
+	private final ArrayBlockingQueue<LoggerEntry> queue = new ArrayBlockingQueue<LoggerEntry>(QUEUE_SIZE);
+	
+	/**
+	 * The thread that inserts the entries
+	 */
+	private Thread writer = null;
+	
+	/**
+	 * The logger is terminated, no entries are accepted anymore
+	 */
+	private volatile boolean terminated = false;
+	
+	/**
+	 * Number of entries that could not be written
+	 */
+	private final AtomicLong lost = new AtomicLong();
 
 	/**
 	 * The name of the table for the storage
@@ -45,9 +105,9 @@ public class DatabaseLogger implements ILoggerService {
 	 */
 	private static final  String createTableStatement = "CREATE TABLE " + tableName + 
 			    		"(" +
-			    			"TIME VARCHAR(40), " +
+			    			"TIME TIMESTAMP, " +
 			    			"LEVEL VARCHAR(10), " +
-			    			"MESSAGE VARCHAR(400), " +
+			    			"MESSAGE CLOB(1M), " +
 			    			"CLASS VARCHAR(400), " +
 			    			"METHOD VARCHAR (400), " +
 			    			"LINE int, " +
@@ -55,6 +115,12 @@ public class DatabaseLogger implements ILoggerService {
 			    			"THREADGROUP VARCHAR(400)" +
 			    		")";
 	
+	/**
+	 * insert a log entry
+	 */
+	private static final String insertStatement = "INSERT INTO " + tableName + 
+						"(TIME, LEVEL, MESSAGE, CLASS, METHOD, LINE, THREAD, THREADGROUP) VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+	
 	/**
 	 * @param user for the logging database
 	 * @param password for the logging database
@@ -90,53 +156,154 @@ public class DatabaseLogger implements ILoggerService {
 			stmt.close();
 		
 			this.connection.commit();
+			
+			this.insert = this.connection.prepareStatement(insertStatement);
 		} 
 		catch (SQLException e) {
 
 			throw new DB2WorkloadServiceException("Can't create database logger", e);
 		}
+		
+		this.writer = new Thread(this, "DatabaseLogger");
+		this.writer.setDaemon(true);
+		this.writer.start();
 	}
 	
 	/**
 	 * @see com.ibm.dbwkl.logging.ILoggerService#log(java.lang.String, java.lang.String, int, java.lang.String, java.lang.String, java.lang.Integer, java.lang.String, java.lang.String)
 	 */
 	@Override
-	public synchronized void log(LoggerEntry entry) {
+	public void log(LoggerEntry entry) {
 	    
-		String time = entry.getFormatedTime();
-		String level = entry.getLevel();
-		String message = entry.getMessage();
-		String classe = entry.getClasse();
-		String method = entry.getMethod();
-		int line = entry.getLineNumber();
-		String thread = entry.getThread();
-		String threadGroup = entry.getThreadGroup();
-		
-		//message contains illegal characters not allowed by DB2
-		message = message.replace("'", "");
-		
-		try {			
-		    String insertStatement = "INSERT INTO " + tableName + " VALUES(" +
-					 "'" + time 						+ "', " +
-					 "'" + level					 	+ "', " +
-					 "'" + message 						+ "', " +
-					 "'" + classe 						+ "', " +
-					 "'" + method 						+ "', " +
-					 ""  + line 						+ ",  " +
-		    		 "'" + thread  						+ "', " +
-		    		 "'" + threadGroup					+ "')";
-		    
-	    	Statement statement = this.connection.createStatement();
-		    
-		    statement.executeUpdate(insertStatement);
-
-			this.connection.commit();
-			statement.close();
+		if(this.terminated) 
+			return;
+		
+		try {
+			// wait if the database can't keep up, so that no entry is lost
+			this.queue.put(entry);
+		} 
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.lost.incrementAndGet();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		
+		int uncommitted = 0;
+		long commitTime = 0;
+		
+		while(!this.terminated || !this.queue.isEmpty()) {
+			try {
+				long wait = uncommitted == 0 ? COMMIT_INTERVAL : commitTime - System.currentTimeMillis();
+				LoggerEntry entry = wait > 0 ? this.queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+				
+				if(entry != null) {
+					addBatch(entry);
+					if(uncommitted++ == 0)
+						commitTime = System.currentTimeMillis() + COMMIT_INTERVAL;
+				}
+				
+				if(uncommitted > 0 && (uncommitted >= COMMIT_ROWS || System.currentTimeMillis() >= commitTime || 
+						(this.terminated && this.queue.isEmpty()))) {
+					flush();
+					uncommitted = 0;
+				}
+			} 
+			catch (InterruptedException e) {
+				// the loop condition decides whether to continue
+			}
+			catch (SQLException e) {
+				this.lost.addAndGet(uncommitted);
+				uncommitted = 0;
+				rollback();
+				// don't log via the Logger, the entry would be written to this logger again
+				System.err.println("DatabaseLogger: SQLException while logging messages to database: " + e.getMessage());
+			}
+		}
+		
+		try {
+			this.insert.close();
+		} 
+		catch (SQLException e) {
+			//
+		}
+	}
+	
+	/**
+	 * Adds an entry to the batch of the insert statement
+	 * 
+	 * @param entry the entry
+	 * @throws SQLException
+	 */
+	private void addBatch(LoggerEntry entry) throws SQLException {
+		
+		this.insert.setTimestamp(1, new Timestamp(entry.getTime() == null ? System.currentTimeMillis() : entry.getTime().getTime()));
+		this.insert.setString(2, entry.getLevel().trim());
+		this.insert.setString(3, entry.getMessage());
+		this.insert.setString(4, truncate(entry.getClasse()));
+		this.insert.setString(5, truncate(entry.getMethod()));
+		this.insert.setInt(6, entry.getLineNumber());
+		this.insert.setString(7, truncate(entry.getThread()));
+		this.insert.setString(8, truncate(entry.getThreadGroup()));
+		this.insert.addBatch();
+	}
+	
+	/**
+	 * Executes the batch and commits it
+	 * 
+	 * @throws SQLException
+	 */
+	private synchronized void flush() throws SQLException {
+		
+		this.insert.executeBatch();
+		this.connection.commit();
+	}
+	
+	/**
+	 * Rolls back the current batch after an error
+	 */
+	private synchronized void rollback() {
+		
+		try {
+			this.insert.clearBatch();
+			this.connection.rollback();
 		} 
-	    catch (SQLException e) {
-	    	
-	    	throw new DB2WorkloadServiceException("SQLException while logging message to database", e);
-	    }
+		catch (SQLException e) {
+			//
+		}
+	}
+	
+	/**
+	 * @param value a value for a VARCHAR column
+	 * @return the value shortened to the length of the column
+	 */
+	private static String truncate(String value) {
+		
+		if(value == null || value.length() <= VARCHAR_LENGTH)
+			return value;
+		
+		return value.substring(0, VARCHAR_LENGTH);
+	}
+	
+	/**
+	 * @return the number of entries that wait to be inserted
+	 */
+	public int getQueued() {
+		
+		return this.queue.size();
+	}
+	
+	/**
+	 * @return the number of entries that could not be written
+	 */
+	public long getLost() {
+		
+		return this.lost.get();
 	}
 	
 	/**
@@ -217,6 +384,20 @@ public class DatabaseLogger implements ILoggerService {
 	@Override
 	public void term() {
 
+		// write what is queued before the connection is closed
+		this.terminated = true;
+		if(this.writer != null) {
+			try {
+				this.writer.join(TERM_TIMEOUT);
+			} 
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		if(this.lost.get() > 0)
+			Logger.log("DatabaseLogger could not write " + this.lost.get() + " log entries", LogLevel.Warning);
+		
 		try {
 			
 			this.connection.close();
@@ -230,7 +411,7 @@ public class DatabaseLogger implements ILoggerService {
 	 * @see com.ibm.dbwkl.logging.ILoggerService#clean()
 	 */
 	@Override
-	public void clean() {
+	public synchronized void clean() {
 		try {
 			Statement stmt = this.connection.createStatement();
 
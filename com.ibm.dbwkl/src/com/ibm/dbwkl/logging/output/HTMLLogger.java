@@ -10,18 +10,9 @@
  *******************************************************************************/
 package com.ibm.dbwkl.logging.output;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 
-import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.DB2WorkloadServiceException;
 import com.ibm.dbwkl.helper.FileLoader;
 import com.ibm.dbwkl.logging.ILoggerService;
@@ -38,14 +29,9 @@ import com.ibm.dbwkl.logging.helper.HtmlLogFileFilter;
 public class HTMLLogger implements ILoggerService {
 
 	/**
-	 * FileWriter to write the information to the file
+	 * buffered writer to write the information to the file
 	 */
-	private FileWriter writer = null;
-
-	/**
-	 * HTML log file
-	 */
-	private File file;
+	private RollingFileWriter writer = null;
 
 	/**
 	 * Default constructor
@@ -56,53 +42,12 @@ public class HTMLLogger implements ILoggerService {
 	}
 
 	/**
-	 * This method will prepare the HTML file with a HTML-header.
+	 * This method will add a start marker to the HTML file. The HTML-header is written
+	 * by the writer to each new file.
 	 * @throws IOException 
 	 */
 	private void prepareFile() throws IOException {
 		
-		StringBuilder firstLines = new StringBuilder("");
-		String header = FileLoader.getResource("/com/ibm/db2wkl/files/htmlLoggerHeader.txt", this);
-		
-		try {
-
-			FileInputStream input = new FileInputStream(this.file);
-			DataInputStream in = new DataInputStream(input);
-			BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-			String currentLine = null;
-			int lineCount = 0;
-
-			while ((currentLine = br.readLine()) != null && lineCount < 50) {
-
-				firstLines.append(System.getProperty("line.separator"));
-				firstLines.append(currentLine);
-				lineCount++;
-			}
-
-			input.close();
-			in.close();
-			br.close();
-		} 
-		catch (Exception e) {
-			
-			throw new DB2WorkloadServiceException(e);
-		}
-		
-		// check if the header already exists, if not add it to the html file
-		if(!firstLines.toString().contains(header)) {
-			
-			try {
-				
-				this.writer.write(header);
-				this.writer.flush();
-			} 
-			catch (IOException e) {
-
-				throw new DB2WorkloadServiceException(e);
-			}
-		}
-		
 		// independent of whether it exists or not, this is a new start of this DB2WKL instance,
 		// thus add a special html marker to the html file (for better debugging)
 		String start = 
@@ -110,8 +55,7 @@ public class HTMLLogger implements ILoggerService {
 			"\t\t\t\t<td colspan=\"9\" bgcolor=\"pink\">DB2WKL START (" + new Date().toString() + ")</td>\n" +
 			"\t\t\t</tr>";
 		try {
-			this.writer.write(start);
-			this.writer.flush();
+			this.writer.write(start, true);
 		} catch (IOException e) {
 			throw new DB2WorkloadServiceException(e);
 		}
@@ -121,7 +65,7 @@ public class HTMLLogger implements ILoggerService {
 	 * @see com.ibm.dbwkl.logging.ILoggerService#log(java.lang.String, int, java.lang.String, java.lang.String, java.lang.Integer, java.lang.String)
 	 */
 	@Override
-	public synchronized void log(LoggerEntry entry) {
+	public void log(LoggerEntry entry) {
 	    
 		String time = entry.getFormatedTime();
 		String requestName = entry.getRequestName();
@@ -152,8 +96,8 @@ public class HTMLLogger implements ILoggerService {
 
 			if(this.writer != null) {
 				
-				this.writer.write(log);
-				this.writer.flush();
+				// errors are written immediately, they might be the last entries before a crash
+				this.writer.write(log, LogLevel.getLevel(level).getLevel() >= LogLevel.Error.getLevel());
 			}
 		} 
 		catch (IOException e) {
@@ -171,14 +115,7 @@ public class HTMLLogger implements ILoggerService {
 		
 		if(this.writer != null) {
 			
-			try {
-				
-				this.writer.close();
-			} 
-			catch (IOException e) {
-				
-				//
-			}
+			this.writer.close();
 		}
 	}
 
@@ -193,7 +130,7 @@ public class HTMLLogger implements ILoggerService {
 		
 		return 
 		"HTMLLogger v1\n" +
-		"Logging to file " + this.file.getAbsoluteFile();
+		"Logging to file " + this.writer.getFile().getAbsoluteFile();
 	}
 
 	@Override
@@ -212,7 +149,7 @@ public class HTMLLogger implements ILoggerService {
 	@Override
 	public void clean() {
 		try {
-			this.file.delete();
+			this.writer.getFile().delete();
 		}
 		catch (Exception e) { /**/ }
 	}
@@ -220,50 +157,13 @@ public class HTMLLogger implements ILoggerService {
 	@Override
 	public void init() throws IOException {
 		
-		Date myDate = Calendar.getInstance().getTime();
-
-		SimpleDateFormat myFormatter = new SimpleDateFormat("yyyy.MM.dd");
-		
-		// following format was used for debugging to have a new filename every minute and not only every day
-		//SimpleDateFormat myFormatter = new SimpleDateFormat("yyyy.MM.dd.HH.mm");
-		
-		// creates a list of files that match the criteria implemented in LogFileFilter()
-		File [] htmlLogFileList = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging()).listFiles(new HtmlLogFileFilter());
+		// the writer rolls the file itself when the day changes, so it is only created once
+		if(this.writer != null && !this.writer.isClosed())
+			return;
 		
-		// in case there are 10 or more text log files delete the oldest one to conserve space.
-		while (htmlLogFileList.length >= 10) {
-			
-			File myOldestFile = null;
-			// find the oldest file
-			for (File myFile : htmlLogFileList) {
-				
-				if (myOldestFile == null) {
-					myOldestFile = myFile;
-				} 
-				// write myFile into myOldestFile in case myFile is older. 
-				if (myOldestFile.lastModified() >= myFile.lastModified()) {
-					myOldestFile = myFile;				
-				}
-			}
-			
-			if (myOldestFile != null) {
-				myOldestFile.delete();
-			}
-			
-			// read the files in the directory again. This is done to update the length of textLogFileList which is checked in 
-			// the condition of the while loop. Without this check, the variable would not change and create an infinite loop since length
-			// would never decrease.
-			htmlLogFileList = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging()).listFiles(new HtmlLogFileFilter());
-		}
-		
-		String loggingFile = DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging() + File.separator + "log_" + myFormatter.format(myDate) + ".html";
-
-//		String loggingFile = DB2WorkloadService.getDb2WorkloadServiceDirectoryLogging() + "/log.html";
-		
-		this.file = new File(loggingFile);
-		
-		this.writer = new FileWriter(this.file, true);
+		String header = FileLoader.getResource("/com/ibm/db2wkl/files/htmlLoggerHeader.txt", this);
+		this.writer = new RollingFileWriter("log_", ".html", new HtmlLogFileFilter(), header);
 		
 		prepareFile();
 	}
-}
\ No newline at end of file
+}
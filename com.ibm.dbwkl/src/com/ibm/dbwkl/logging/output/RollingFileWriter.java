@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.logging.output;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
+
+/**
+ * <p>Writes a log file in the logging directory of DB2WKL. The text is collected in a
+ * buffer and written to the file channel when the buffer is full, once per second or
+ * when the caller forces it (e.g. for errors).</p>
+ *
+ * <p>There is one file per day, named &lt;prefix&gt;&lt;yyyy.MM.dd&gt;&lt;suffix&gt;. When
+ * the day changes or the file gets larger than {@link #MAX_FILE_SIZE}, the file is rolled:
+ * it is closed, compressed with gzip in the background and a new file is started. Only the
+ * last {@link #MAX_FILES} files are kept.</p>
+ */
+public class RollingFileWriter {
+
+	/**
+	 * Size of the write buffer in bytes
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Interval in milliseconds in which the buffer is written to the file
+	 */
+	private static final long FLUSH_INTERVAL = 1000;
+
+	/**
+	 * Size in bytes after which the file is rolled
+	 */
+	private static final long MAX_FILE_SIZE = 50L * 1024 * 1024;
+
+	/**
+	 * Number of files that are kept
+	 */
+	private static final int MAX_FILES = 10;
+
+	/**
+	 * Suffix of the compressed files
+	 */
+	public static final String COMPRESSED_SUFFIX = ".gz";
+
+	/**
+	 * Timer that flushes all writers periodically
+	 */
+	private static final Timer flushTimer = new Timer("LogFileFlusher", true);
+
+	/**
+	 * Prefix of the file names
+	 */
+	private final String prefix;
+
+	/**
+	 * Suffix of the file names
+	 */
+	private final String suffix;
+
+	/**
+	 * Filter for the files that belong to this writer, used to delete the oldest files
+	 */
+	private final FilenameFilter filter;
+
+	/**
+	 * Text that is written at the beginning of each new file, may be null
+	 */
+	private final String header;
+
+	/**
+	 * The charset of the file
+	 */
+	private final Charset charset = Charset.defaultCharset();
+
+	/**
+	 * The write buffer
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * Task that flushes this writer
+	 */
+	private final TimerTask flushTask;
+
+	/**
+	 * The current file
+	 */
+	private File file;
+
+	/**
+	 * Channel to the current file, null if the writer is closed
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Size of the current file including the buffered bytes
+	 */
+	private long size;
+
+	/**
+	 * Time at which the file is rolled because the day changes
+	 */
+	private long nextDay;
+
+	/**
+	 * @param prefix prefix of the file names
+	 * @param suffix suffix of the file names
+	 * @param filter filter for the files that belong to this writer
+	 * @param header text that is written at the beginning of each new file or null
+	 * @throws IOException if the file can't be opened
+	 */
+	public RollingFileWriter(String prefix, String suffix, FilenameFilter filter, String header) throws IOException {
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.filter = filter;
+		this.header = header;
+
+		open();
+
+		this.flushTask = new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					flush();
+				} catch (IOException e) {
+					// don't log in a logger
+				}
+			}
+		};
+		flushTimer.schedule(this.flushTask, FLUSH_INTERVAL, FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Writes a text to the file
+	 *
+	 * @param text the text
+	 * @param force true to write the text to the file immediately
+	 * @throws IOException
+	 */
+	public synchronized void write(String text, boolean force) throws IOException {
+		if (this.channel == null) {
+			return;
+		}
+
+		if (System.currentTimeMillis() >= this.nextDay) {
+			roll(false);
+		} else if (this.size >= MAX_FILE_SIZE) {
+			roll(true);
+		}
+
+		put(text.getBytes(this.charset));
+
+		if (force) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the buffered text to the file
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.channel == null || this.buffer.position() == 0) {
+			return;
+		}
+
+		this.buffer.flip();
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered text and closes the file. Further texts are ignored.
+	 */
+	public synchronized void close() {
+		this.flushTask.cancel();
+		if (this.channel == null) {
+			return;
+		}
+
+		try {
+			flush();
+			this.channel.close();
+		} catch (IOException e) {
+			// don't log in a logger
+		}
+		this.channel = null;
+	}
+
+	/**
+	 * @return true if the writer is closed
+	 */
+	public synchronized boolean isClosed() {
+		return this.channel == null;
+	}
+
+	/**
+	 * @return the current file
+	 */
+	public synchronized File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Puts the bytes into the buffer, writes the buffer if they don't fit
+	 *
+	 * @param bytes the bytes
+	 * @throws IOException
+	 */
+	private void put(byte[] bytes) throws IOException {
+		if (bytes.length > this.buffer.remaining()) {
+			flush();
+		}
+
+		if (bytes.length > this.buffer.capacity()) {
+			ByteBuffer large = ByteBuffer.wrap(bytes);
+			while (large.hasRemaining()) {
+				this.channel.write(large);
+			}
+		} else {
+			this.buffer.put(bytes);
+		}
+		this.size += bytes.length;
+	}
+
+	/**
+	 * Opens the file of the current day, writes the header if it is a new file and
+	 * deletes the oldest files
+	 *
+	 * @throws IOException
+	 */
+	private void open() throws IOException {
+		Calendar calendar = Calendar.getInstance();
+		Date now = calendar.getTime();
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		this.nextDay = calendar.getTimeInMillis();
+
+		deleteOldestFiles();
+
+		this.file = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging() + File.separator +
+				this.prefix + new SimpleDateFormat("yyyy.MM.dd").format(now) + this.suffix);
+
+		this.channel = new FileOutputStream(this.file, true).getChannel();
+		this.size = this.channel.size();
+
+		if (this.size == 0 && this.header != null) {
+			put(this.header.getBytes(this.charset));
+		}
+	}
+
+	/**
+	 * Closes the current file, compresses it in the background and opens a new file
+	 *
+	 * @param sameDay true if the new file is for the same day as the current file
+	 * @throws IOException
+	 */
+	private void roll(boolean sameDay) throws IOException {
+		flush();
+		this.channel.close();
+		this.channel = null;
+
+		// the file of the same day gets a sequence number, so the new file can use the name of the day
+		File rolled = this.file;
+		String path = this.file.getPath();
+		String base = path.substring(0, path.length() - this.suffix.length());
+		for (int i = 1; sameDay; i++) {
+			File candidate = new File(base + "." + i + this.suffix);
+			if (!candidate.exists() && !new File(candidate.getPath() + COMPRESSED_SUFFIX).exists()) {
+				if (this.file.renameTo(candidate)) {
+					rolled = candidate;
+				}
+				break;
+			}
+		}
+		compress(rolled);
+
+		open();
+	}
+
+	/**
+	 * Deletes the oldest files, so that there is space for a new file
+	 */
+	private void deleteOldestFiles() {
+		File directory = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging());
+		File[] files = directory.listFiles(this.filter);
+
+		while (files != null && files.length >= MAX_FILES) {
+			File oldestFile = null;
+			for (File candidate : files) {
+				if (oldestFile == null || oldestFile.lastModified() >= candidate.lastModified()) {
+					oldestFile = candidate;
+				}
+			}
+
+			if (oldestFile == null || !oldestFile.delete()) {
+				break;
+			}
+			files = directory.listFiles(this.filter);
+		}
+	}
+
+	/**
+	 * Compresses the file with gzip in a background thread and deletes it afterwards
+	 *
+	 * @param source the file to compress
+	 */
+	private static void compress(final File source) {
+		Thread compressor = new Thread("LogFileCompressor") {
+			@Override
+			public void run() {
+				File target = new File(source.getPath() + COMPRESSED_SUFFIX);
+				InputStream in = null;
+				OutputStream out = null;
+				try {
+					in = new FileInputStream(source);
+					out = new GZIPOutputStream(new FileOutputStream(target), BUFFER_SIZE);
+					byte[] bytes = new byte[BUFFER_SIZE];
+					int read;
+					while ((read = in.read(bytes)) > 0) {
+						out.write(bytes, 0, read);
+					}
+					out.close();
+					out = null;
+					in.close();
+					in = null;
+
+					// keep the file's time, the oldest files are deleted by their time
+					target.setLastModified(source.lastModified());
+					source.delete();
+				} catch (IOException e) {
+					// keep the uncompressed file
+					target.delete();
+				} finally {
+					try {
+						if (in != null) {
+							in.close();
+						}
+						if (out != null) {
+							out.close();
+						}
+					} catch (IOException e) {
+						//
+					}
+				}
+			}
+		};
+		compressor.setDaemon(true);
+		compressor.start();
+	}
+}
@@ -10,16 +10,11 @@
  *******************************************************************************/
 package com.ibm.dbwkl.logging.output;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 
-import com.ibm.dbwkl.DB2WorkloadServiceDirectory;
 import com.ibm.dbwkl.helper.StringUtility;
 import com.ibm.dbwkl.logging.ILoggerService;
+import com.ibm.dbwkl.logging.LogLevel;
 import com.ibm.dbwkl.logging.LoggerEntry;
 import com.ibm.dbwkl.logging.helper.TextLogFileFilter;
 
@@ -33,9 +28,9 @@ import com.ibm.dbwkl.logging.helper.TextLogFileFilter;
 public class TextLogger implements ILoggerService {
 	
 	/**
-	 * file writer to write into the logging file
+	 * buffered writer to write into the logging file
 	 */
-	private FileWriter writer = null;
+	private RollingFileWriter writer = null;
 	
 	/**
 	 * The name of the logger
@@ -76,16 +71,6 @@ public class TextLogger implements ILoggerService {
 	 */
 	private final static int maxThreadGroupLength = 12;
 
-	/**
-	 * the logging string
-	 */
-	private String log = "";
-
-	/**
-	 * The log file
-	 */
-	private File file;
-
 	/**
 	 * @param BIND_NAME 
 	 * @param logFile to write the informations to it
@@ -100,7 +85,7 @@ public class TextLogger implements ILoggerService {
 	 * @see com.ibm.dbwkl.logging.ILoggerService#log(java.lang.String, int, java.lang.String, java.lang.String, java.lang.Integer, java.lang.String)
 	 */
 	@Override
-	public synchronized void log(LoggerEntry entry) {
+	public void log(LoggerEntry entry) {
 	    
 		String time = entry.getFormatedTime();
 		String level = entry.getLevel();
@@ -123,12 +108,12 @@ public class TextLogger implements ILoggerService {
 				
 			//this.log = ARequest.getLogger().isDetails() + "[" + time + "]" + "\t[ " + level + "]\t" + threadName + "\t" + threadGroupName + "\t" + (ARequest.getLogger().isDetails() ? className + "\t" + methodName + "\t" + lineNumber : " ") + "\t" + m + "\n";
 			//this.log = "[" + time + "]" + " [" + level + "] [" + threadGroupName + "] [" + threadName + "] " + ((ARequest.getLogger() != null) ? (ARequest.getLogger().isDetails() ? "\t[" + className + "]\t[" + methodName + "]\t[" + lineNumber +"]\t" : ""): "") + "\t" + m + "\n";
- 			this.log = "[" + time + "]" + " [" + level + "] [" + threadGroupName + "] [" + threadName + "] " + 	(!className.trim().equals("") ? "\t[" + className + "]\t[" + methodName + "]\t[" + lineNumber +"]\t" : "") + "\t" + m + "\n";
+ 			String log = "[" + time + "]" + " [" + level + "] [" + threadGroupName + "] [" + threadName + "] " + 	(!className.trim().equals("") ? "\t[" + className + "]\t[" + methodName + "]\t[" + lineNumber +"]\t" : "") + "\t" + m + "\n";
 
 			if(this.writer != null) {
 				
-				this.writer.write(this.log);
-				this.writer.flush();
+				// errors are written immediately, they might be the last entries before a crash
+				this.writer.write(log, LogLevel.getLevel(level).getLevel() >= LogLevel.Error.getLevel());
 			}
 		} 
 		catch (IOException e) {
@@ -148,14 +133,7 @@ public class TextLogger implements ILoggerService {
 		// close writer
 		if(this.writer != null) {
 			
-			try {
-				
-				this.writer.close();
-			} 
-			catch (IOException e) {
-				
-				//
-			}
+			this.writer.close();
 		}
 	}
 
@@ -168,7 +146,7 @@ public class TextLogger implements ILoggerService {
 	@Override
 	public String toString() {
 		
-		return "FileLogger to file " + this.file.getAbsoluteFile();
+		return "FileLogger to file " + this.writer.getFile().getAbsoluteFile();
 	}
 
 	@Override
@@ -183,7 +161,7 @@ public class TextLogger implements ILoggerService {
 	@Override
 	public void clean() {
 		try {
-			this.file.delete();
+			this.writer.getFile().delete();
 		}
 		catch (Exception e) { /**/ }
 	}
@@ -191,51 +169,10 @@ public class TextLogger implements ILoggerService {
 	@Override
 	public void init() throws IOException {
 		
-		Date myDate = Calendar.getInstance().getTime();
-		
-		SimpleDateFormat myFormatter = new SimpleDateFormat("yyyy.MM.dd");
-		
-		// following SimpleDateFormat was used for debugging to have a new filename every minute and not only every day
-//		SimpleDateFormat myFormatter = new SimpleDateFormat("yyyy.MM.dd.HH.mm");
-		
-		// creates a list of files that match the criteria implemented in LogFileFilter()
-		File [] textLogFileList = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging()).listFiles(new TextLogFileFilter());
-		
-		// in case there are 10 or more text log files delete the oldest one to conserve space.
-		while (textLogFileList.length >= 10) {
-			
-			File oldestFile = null;
-			// find the oldest file
-			for (File textLogFile : textLogFileList) {
-				
-				if (oldestFile == null) {
-					oldestFile = textLogFile;
-				} 
-				// write myFile into myOldestFile in case myFile is older. 
-				if (oldestFile.lastModified() >= textLogFile.lastModified()) {
-					oldestFile = textLogFile;				
-				}
-			}
-			
-			if (oldestFile != null) {
-				oldestFile.delete();
-			}
-			
-			// read the files in the directory again. This is done to update the length of textLogFileList which is checked in 
-			// the condition of the while loop. Without this check, the variable would not change and create an infinite loop since length
-			// would never decrease.
-			textLogFileList = new File(DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging()).listFiles(new TextLogFileFilter());
-		}
-		
-		String loggingFile = DB2WorkloadServiceDirectory.getDb2WorkloadServiceDirectoryLogging() + File.separator +"log_" + myFormatter.format(myDate) + ".txt";
-		
-//		String loggingFile = DB2WorkloadService.getDb2WorkloadServiceDirectoryLogging() + "/log.txt";
-		
-		this.file = new File(loggingFile);
-			
-		this.writer = new FileWriter(this.file , true);
-		
-//		Logger.log("No of Files: " + test, LogLevel.Info);
+		// the writer rolls the file itself when the day changes, so it is only created once
+		if(this.writer != null && !this.writer.isClosed())
+			return;
 		
+		this.writer = new RollingFileWriter("log_", ".txt", new TextLogFileFilter(), null);
 	}
-}
\ No newline at end of file
+}
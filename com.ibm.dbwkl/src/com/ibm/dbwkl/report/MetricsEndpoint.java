@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2015 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.dbwkl.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.ibm.dbwkl.DB2WorkloadService;
+import com.ibm.dbwkl.logging.LogLevel;
+import com.ibm.dbwkl.logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>HTTP endpoint on the service JVM that exposes the reports of all running requests
+ * in the Prometheus text format under <code>/metrics</code>. The values are taken from
+ * the reports the requests push to the {@link Reporter}, so a scrape does not call the requests:</p>
+ * <ul>
+ * 		<li>gauges from the latest pushed report of each request</li>
+ * 		<li>counters and latency histograms from the pushed reports summed up since the reporter was turned on</li>
+ * </ul>
+ *
+ * <p>All values of a request carry the label <code>request</code>, the values of all
+ * requests are summed up with <code>sum without (request)</code>. The endpoint is started
+ * with REPORT METRICS {port} and stopped with REPORT METRICS OFF.</p>
+ */
+public class MetricsEndpoint {
+
+	/**
+	 * Path of the metrics
+	 */
+	public static final String PATH = "/metrics";
+
+	/**
+	 * Content type of the Prometheus text format
+	 */
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * Upper bounds (microseconds) of the latency histogram buckets
+	 */
+	private static final long[] LATENCY_BUCKETS = {
+		500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+		1000000, 2500000, 5000000, 10000000, 30000000, 60000000
+	};
+
+	/**
+	 * The exposed columns of the reports: column in {@link MetricsFile#COLUMNS}, metric name, type and help.
+	 * Columns that are counters in the metrics file are taken from the summed up reports, all
+	 * others from the latest report.
+	 */
+	private static final String[][] METRICS = {
+		{ "threads", "dbwkl_threads", "gauge", "Number of threads of the request" },
+		{ "db2_connections", "dbwkl_connections", "gauge", "Number of open DB2 connections" },
+		{ "statements", "dbwkl_open_statements", "gauge", "Number of open statements" },
+		{ "sockets", "dbwkl_sockets", "gauge", "Number of open sockets" },
+		{ "consumed_memory", "dbwkl_memory_bytes", "gauge", "Used heap of the request JVM" },
+		{ "target_rate", "dbwkl_target_rate", "gauge", "Target executions per second in the rate controlled mode" },
+		{ "achieved_rate", "dbwkl_achieved_rate", "gauge", "Achieved executions per second in the rate controlled mode" },
+		{ "backlog", "dbwkl_backlog", "gauge", "Executions that are due but not started in the rate controlled mode" },
+		{ "pooled_connections", "dbwkl_pooled_connections", "gauge", "Physical connections in the connection pools" },
+		{ "idle_connections", "dbwkl_idle_connections", "gauge", "Idle connections in the connection pools" },
+		{ "pool_wait_time", "dbwkl_pool_wait_milliseconds", "gauge", "Average wait time for a pooled connection" },
+		{ "pool_timeouts", "dbwkl_pool_timeouts_total", "counter", "Requests for a pooled connection that timed out" },
+		{ "log_queued", "dbwkl_log_queued", "gauge", "Log entries buffered in the request" },
+		{ "log_dropped", "dbwkl_log_dropped_total", "counter", "Log entries dropped because the log buffer was full" },
+		{ "stmt_cache_hits", "dbwkl_statement_cache_hits_total", "counter", "Statements found in the statement caches" },
+		{ "stmt_cache_misses", "dbwkl_statement_cache_misses_total", "counter", "Statements not found in the statement caches" },
+		{ "stmt_cache_evictions", "dbwkl_statement_cache_evictions_total", "counter", "Statements closed to make space in the statement caches" },
+		{ "executions", "dbwkl_executions_total", "counter", "Executions of the workloads" },
+		{ "failed_executions", "dbwkl_failed_executions_total", "counter", "Failed executions of the workloads" },
+		{ "commits", "dbwkl_commits_total", "counter", "Commits" },
+		{ "rollbacks", "dbwkl_rollbacks_total", "counter", "Rollbacks" },
+		{ "executed_statements", "dbwkl_statements_total", "counter", "Executed SQL statements" },
+		{ "rows_fetched", "dbwkl_rows_fetched_total", "counter", "Rows fetched from result sets" },
+		{ "rows_affected", "dbwkl_rows_affected_total", "counter", "Rows inserted, updated or deleted" }
+	};
+
+	/**
+	 * Singleton instance
+	 */
+	private static MetricsEndpoint endpoint;
+
+	/**
+	 * The HTTP server, null if the endpoint is stopped
+	 */
+	private HttpServer server;
+
+	/**
+	 * The thread that answers the scrapes
+	 */
+	private ExecutorService executor;
+
+	/**
+	 * The port of the endpoint
+	 */
+	private int port;
+
+	/**
+	 * Private constructor for the singleton
+	 */
+	private MetricsEndpoint() {
+		// singleton
+	}
+
+	/**
+	 * @return singleton instance of the endpoint
+	 */
+	public static synchronized MetricsEndpoint getInstance() {
+		if (endpoint == null) {
+			endpoint = new MetricsEndpoint();
+		}
+		return endpoint;
+	}
+
+	/**
+	 * Starts the endpoint on the given port. A running endpoint is stopped first.
+	 *
+	 * @param _port the port
+	 * @throws IOException the port can't be bound
+	 */
+	public synchronized void start(int _port) throws IOException {
+		stop();
+
+		this.server = HttpServer.create(new InetSocketAddress(_port), 0);
+		this.server.createContext(PATH, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				scrape(exchange);
+			}
+		});
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "MetricsEndpoint");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.server.setExecutor(this.executor);
+		this.server.start();
+		this.port = _port;
+
+		Logger.log("Metrics endpoint started on http://" + DB2WorkloadService.getLOCALHOST() + ":" + _port + PATH, LogLevel.Info);
+	}
+
+	/**
+	 * Stops the endpoint if it is running
+	 */
+	public synchronized void stop() {
+		if (this.server == null) {
+			return;
+		}
+
+		this.server.stop(0);
+		this.executor.shutdownNow();
+		this.server = null;
+		this.executor = null;
+
+		Logger.log("Metrics endpoint on port " + this.port + " stopped", LogLevel.Info);
+	}
+
+	/**
+	 * @return true if the endpoint is running
+	 */
+	public synchronized boolean isRunning() {
+		return this.server != null;
+	}
+
+	/**
+	 * @return the port of the endpoint
+	 */
+	public synchronized int getPort() {
+		return this.port;
+	}
+
+	/**
+	 * Answers a scrape with the metrics of all running requests
+	 *
+	 * @param exchange the HTTP exchange
+	 * @throws IOException the answer can't be sent
+	 */
+	void scrape(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			Map<Long, Report> latestReports = new TreeMap<Long, Report>();
+			Map<Long, Report> cumulativeReports = new TreeMap<Long, Report>();
+			Reporter.getInstance().getPushedReports(latestReports, cumulativeReports);
+
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, 0);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), "UTF-8"));
+			write(writer, latestReports, cumulativeReports);
+			writer.flush();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Writes the metrics in the Prometheus text format
+	 *
+	 * @param writer where to write to
+	 * @param latestReports the latest reports by request id
+	 * @param cumulativeReports the summed up reports by request id
+	 * @throws IOException the metrics can't be written
+	 */
+	private static void write(Writer writer, Map<Long, Report> latestReports, Map<Long, Report> cumulativeReports) throws IOException {
+		DecimalFormat numberFormat = new DecimalFormat("0.######", DecimalFormatSymbols.getInstance(Locale.ROOT));
+
+		// the service JVM
+		writeHeader(writer, "dbwkl_running_requests", "gauge", "Number of running requests");
+		writer.write("dbwkl_running_requests " + latestReports.size() + "\n");
+		writeHeader(writer, "dbwkl_service_memory_bytes", "gauge", "Used heap of the service JVM");
+		writer.write("dbwkl_service_memory_bytes " + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) + "\n");
+
+		// the values of the requests
+		Map<Long, double[]> latestValues = new TreeMap<Long, double[]>();
+		Map<Long, double[]> cumulativeValues = new TreeMap<Long, double[]>();
+		for (Long rid : latestReports.keySet()) {
+			latestValues.put(rid, MetricsFile.getValues(rid.longValue(), latestReports.get(rid)));
+			cumulativeValues.put(rid, MetricsFile.getValues(rid.longValue(), cumulativeReports.get(rid)));
+		}
+
+		for (String[] metric : METRICS) {
+			int column = indexOf(metric[0]);
+			Map<Long, double[]> values = MetricsFile.isCounter(metric[0]) ? cumulativeValues : latestValues;
+
+			writeHeader(writer, metric[1], metric[2], metric[3]);
+			for (Entry<Long, double[]> entry : values.entrySet()) {
+				writer.write(metric[1] + "{request=\"" + entry.getKey() + "\"} " + numberFormat.format(entry.getValue()[column]) + "\n");
+			}
+		}
+
+		// failed statements by SQLCODE
+		writeHeader(writer, "dbwkl_sql_errors_total", "counter", "Failed SQL statements by SQLCODE");
+		for (Entry<Long, Report> entry : cumulativeReports.entrySet()) {
+			for (Entry<Integer, Double> errors : entry.getValue().getSql_errors().entrySet()) {
+				writer.write("dbwkl_sql_errors_total{request=\"" + entry.getKey() + "\",sqlcode=\"" + errors.getKey() + "\"} "
+						+ numberFormat.format(errors.getValue()) + "\n");
+			}
+		}
+
+		// executions of the transaction mixes
+		writeHeader(writer, "dbwkl_transactions_total", "counter", "Executions by transaction of the transaction mixes");
+		for (Entry<Long, Report> entry : cumulativeReports.entrySet()) {
+			for (Entry<String, Double> executions : entry.getValue().getTransactions().entrySet()) {
+				writer.write("dbwkl_transactions_total{request=\"" + entry.getKey() + "\",transaction=\"" + escape(executions.getKey()) + "\"} "
+						+ numberFormat.format(executions.getValue()) + "\n");
+			}
+		}
+
+		// latency histograms in seconds
+		writeHeader(writer, "dbwkl_latency_seconds", "histogram", "Latencies of the operations");
+		for (Entry<Long, Report> entry : cumulativeReports.entrySet()) {
+			for (Entry<String, LatencyHistogram> latency : entry.getValue().getLatencies().entrySet()) {
+				String labels = "request=\"" + entry.getKey() + "\",operation=\"" + escape(latency.getKey()) + "\"";
+				LatencyHistogram histogram = latency.getValue();
+				for (long bucket : LATENCY_BUCKETS) {
+					writer.write("dbwkl_latency_seconds_bucket{" + labels + ",le=\"" + numberFormat.format(bucket / 1000000.0) + "\"} "
+							+ histogram.getCountAtOrBelow(bucket) + "\n");
+				}
+				writer.write("dbwkl_latency_seconds_bucket{" + labels + ",le=\"+Inf\"} " + histogram.getTotalCount() + "\n");
+				writer.write("dbwkl_latency_seconds_sum{" + labels + "} " + numberFormat.format(histogram.getTotalSum() / 1000000.0) + "\n");
+				writer.write("dbwkl_latency_seconds_count{" + labels + "} " + histogram.getTotalCount() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the HELP and TYPE lines of a metric
+	 *
+	 * @param writer where to write to
+	 * @param name the name of the metric
+	 * @param type the type of the metric
+	 * @param help the description of the metric
+	 * @throws IOException the lines can't be written
+	 */
+	private static void writeHeader(Writer writer, String name, String type, String help) throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	/**
+	 * @param column the name of the column
+	 * @return the index of the column in {@link MetricsFile#COLUMNS}
+	 */
+	private static int indexOf(String column) {
+		for (int i = 0; i < MetricsFile.COLUMNS.length; i++) {
+			if (MetricsFile.COLUMNS[i].equals(column)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unknown column " + column);
+	}
+
+	/**
+	 * @param value the value of a label
+	 * @return the value with backslashes, quotes and line breaks escaped
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -13,7 +13,7 @@ package com.ibm.dbwkl.report;
 import java.util.TimerTask;
 
 /**
- * This is a TimerTask that will be scheduled by the Reporter. It pulls the reports from all RequestReporters every interval.
+ * This is a TimerTask that will be scheduled by the Reporter. It logs the reports pushed by the RequestReporters every interval.
  * 
  *
  */
@@ -24,7 +24,7 @@ public class ReportCollectTask extends TimerTask {
 	 */
 	@Override
 	public void run() {
-		Reporter.getInstance().pullReports(); 
+		Reporter.getInstance().logReports(); 
 		
 	}
 
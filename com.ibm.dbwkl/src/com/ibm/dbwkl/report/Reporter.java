@@ -10,8 +10,11 @@
  *******************************************************************************/
 package com.ibm.dbwkl.report;
 
+import java.io.File;
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Timer;
 import java.util.Vector;
@@ -28,8 +31,8 @@ import com.ibm.dbwkl.rmi.RequestReporterRemoteInterface;
 
 
 /**
- * This implements the Reporter functionality. It schedules TimerTask to run at a specified interval to retrieve reports from all the running RequestReporter.
- * And it generates report message every interval. 
+ * This implements the Reporter functionality. The RequestReporters push their reports to the Reporter, which keeps 
+ * them until the TimerTask that runs at a specified interval generates the report message. 
  * 
  *
  */
@@ -70,6 +73,26 @@ public class Reporter implements ReporterRemoteInterface {
 	 */
 	private String outFile = null;
 	
+	/**
+	 * Writes all reports to the output file, null if there is no output file
+	 */
+	private MetricsFileWriter metricsWriter = null;
+	
+	/**
+	 * The pushed reports of the requests originated by this machine that are not logged yet
+	 */
+	private ConcurrentHashMap<Long, Vector<Report>> pushedReports = new ConcurrentHashMap<Long, Vector<Report>>();
+	
+	/**
+	 * The latest pushed report of each request originated by this machine
+	 */
+	private ConcurrentHashMap<Long, Report> latestReports = new ConcurrentHashMap<Long, Report>();
+	
+	/**
+	 * The pushed reports of each request originated by this machine, summed up since the reporter was turned on
+	 */
+	private ConcurrentHashMap<Long, Report> cumulativeReports = new ConcurrentHashMap<Long, Report>();
+	
 	/**
 	 * Constructor. The timer is initialized and running throughout the service's lifetime
 	 */
@@ -105,6 +128,9 @@ public class Reporter implements ReporterRemoteInterface {
 	 */
 	public void turnOn(int _interval, boolean _details, String _outFile) {
 		this.details = _details;
+		if (_outFile == null ? this.outFile != null : !_outFile.equals(this.outFile)) {
+			openMetricsFile(_outFile);
+		}
 		this.outFile = _outFile;
 		
 		if(!this.status){
@@ -162,6 +188,12 @@ public class Reporter implements ReporterRemoteInterface {
 		this.interval = 60;
 		this.details = false;
 		this.outFile = null;
+		openMetricsFile(null);
+		this.pushedReports.clear();
+		synchronized (this.cumulativeReports) {
+			this.latestReports.clear();
+			this.cumulativeReports.clear();
+		}
 		
 		//stop all the RequestReporters if exist
 		if(RequestManager.getInstance().getOriginatedRequests() != null) {
@@ -183,10 +215,46 @@ public class Reporter implements ReporterRemoteInterface {
 		Logger.log("Reporter is turned off.", LogLevel.Info);
 	}
 			
+	/* (non-Javadoc)
+	 * @see com.ibm.dbwkl.rmi.ReporterRemoteInterface#pushReports(java.lang.Long, java.lang.String, java.util.Vector)
+	 */
+	@Override
+	public void pushReports(Long id, String host, Vector<Report> reports) {
+		if(reports == null || reports.size() == 0){
+			return;
+		}
+		
+		RequestManager.getInstance().updateSystemStatus(host, id, reports.lastElement());
+		
+		//only the requests originated by this machine are reported here
+		if(host.equalsIgnoreCase(DB2WorkloadService.getLOCALHOST())){
+			writeMetrics(id, reports);
+			synchronized (this.cumulativeReports) {
+				Report cumulative = this.cumulativeReports.get(id);
+				if(cumulative == null){
+					cumulative = new Report();
+					this.cumulativeReports.put(id, cumulative);
+				}
+				for(Report report : reports){
+					cumulative.add(report);
+				}
+				this.latestReports.put(id, reports.lastElement());
+			}
+			synchronized (this.pushedReports) {
+				Vector<Report> pending = this.pushedReports.get(id);
+				if(pending == null){
+					this.pushedReports.put(id, new Vector<Report>(reports));
+				} else {
+					pending.addAll(reports);
+				}
+			}
+		}
+	}
+	
 	/**
-	 * Retrieves the reports from all the running RequestReporters and outputs a report message accordingly.
+	 * Outputs a report message of the reports that were pushed since the last message.
 	 */
-	public void pullReports() {
+	public void logReports() {
 		
 		//the sum of all reports from all requests
 		Report fullSum = new Report();
@@ -200,46 +268,42 @@ public class Reporter implements ReporterRemoteInterface {
 		//All running requests
 		ConcurrentHashMap<Long, RequestRemoteInterface> requests = RequestManager.getInstance().getOriginatedRequests();
 		
-		for(Iterator<Entry<Long, RequestRemoteInterface>> it = requests.entrySet().iterator(); it.hasNext(); ){		
-			Entry<Long, RequestRemoteInterface> request = it.next();
+		for(Iterator<Long> it = this.pushedReports.keySet().iterator(); it.hasNext(); ){		
+			Long id = it.next();
 			
-			RequestReporterRemoteInterface requestReporter = null;
 			Vector<Report> reports = null;
-			
-			try {
-				if((requestReporter = request.getValue().getRequestReporter()) != null &&
-				   (reports = requestReporter.getAndClearReport()) != null){
-					
-					numOfReports++;
-					
-					//get the average value of the reports
-					Report average = Report.average(reports);
-					
-					if(this.details){
-						//one report message per request
-						StringBuilder reportMessage = new StringBuilder();
-						reportMessage.append("reqid = " + request.getKey() + "; ");
-						reportMessage.append(average.toString());
-						Logger.log(reportMessage.toString(), LogLevel.Info);
-						
-					//	outFileMessage.append(this.dateFormat.format(new Date()) + "\t " );
-					//	outFileMessage.append(reportMessage.toString() + "\n");
-					//	if(this.outFile != null){
-					//		FileLoader.getDefaultFileLoader().appendToFile(outFileMessage.toString(), this.outFile);
-					//	}
-						
-					} else {
-						//add the average value to the full summation for summary report 
-						fullSum.add(average);
-					}
-				}
-			} catch (RemoteException e) {
-				Logger.logException(e);
-				RequestManager.getInstance().notifyRemoteException(request.getKey(), DB2WorkloadService.getLOCALHOST(), e);
+			synchronized (this.pushedReports) {
+				reports = this.pushedReports.remove(id);
+			}
+			if(reports == null || reports.size() == 0){
 				continue;
-			}		
+			}
+			
+			numOfReports++;
+			
+			//get the average value of the reports
+			Report average = Report.average(reports);
+			
+			if(this.details){
+				//one report message per request
+				StringBuilder reportMessage = new StringBuilder();
+				reportMessage.append("reqid = " + id + "; ");
+				reportMessage.append(average.toString());
+				Logger.log(reportMessage.toString(), LogLevel.Info);
+				
+			//	outFileMessage.append(this.dateFormat.format(new Date()) + "\t " );
+			//	outFileMessage.append(reportMessage.toString() + "\n");
+			//	if(this.outFile != null){
+			//		FileLoader.getDefaultFileLoader().appendToFile(outFileMessage.toString(), this.outFile);
+			//	}
+				
+			} else {
+				//add the average value to the full summation for summary report 
+				fullSum.addConcurrent(average);
+			}
 		}
 		if(numOfReports != 0){
+			flushMetrics();
 			if(!this.details){
 				// Summary report with an overall average of all reports
 				StringBuilder reportMessage = new StringBuilder();
@@ -257,17 +321,35 @@ public class Reporter implements ReporterRemoteInterface {
 	}
 
 	/**
-	 * The RequestReport reports back the last reports before it terminates
+	 * The RequestReport reports back the last reports before it terminates. The pushed reports 
+	 * that are not logged yet are included in the last report message.
 	 * @param id the request id
 	 * @param reports the last reports
 	 */
 	@Override
 	public void lastReport(Long id, Vector<Report> reports) {
+		Vector<Report> pending = null;
+		synchronized (this.pushedReports) {
+			pending = this.pushedReports.remove(id);
+		}
+		synchronized (this.cumulativeReports) {
+			this.latestReports.remove(id);
+			this.cumulativeReports.remove(id);
+		}
+		Vector<Report> allReports = new Vector<Report>();
+		if(pending != null){
+			allReports.addAll(pending);
+		}
 		if(reports != null && reports.size() > 0){
-
+			writeMetrics(id, reports);
+			flushMetrics();
+			allReports.addAll(reports);
+		}
+		
+		if(allReports.size() > 0){
 			StringBuilder reportMessage = new StringBuilder();
 			reportMessage.append("Last Report: reqid = " + id + "; ");
-			Report average = Report.average(reports);
+			Report average = Report.average(allReports);
 			reportMessage.append(average.toString());
 			//reportMessage.append("\n");
 			Logger.log(reportMessage.toString(), LogLevel.Info);
@@ -277,6 +359,86 @@ public class Reporter implements ReporterRemoteInterface {
 		}
 	}
 	
+	/**
+	 * Copies the latest and the summed up pushed reports of the running requests originated by
+	 * this machine. The requests are not called, so the reports are as old as the last push.
+	 * 
+	 * @param latest the map to put the latest reports by request id into
+	 * @param cumulative the map to put the summed up reports by request id into
+	 */
+	public void getPushedReports(Map<Long, Report> latest, Map<Long, Report> cumulative) {
+		ConcurrentHashMap<Long, RequestRemoteInterface> requests = RequestManager.getInstance().getOriginatedRequests();
+		synchronized (this.cumulativeReports) {
+			for(Iterator<Entry<Long, Report>> it = this.cumulativeReports.entrySet().iterator(); it.hasNext(); ){
+				Entry<Long, Report> entry = it.next();
+				if(!requests.containsKey(entry.getKey())){
+					//the request ended without a last report
+					it.remove();
+					this.latestReports.remove(entry.getKey());
+					continue;
+				}
+				Report copy = new Report();
+				copy.add(entry.getValue());
+				cumulative.put(entry.getKey(), copy);
+				latest.put(entry.getKey(), this.latestReports.get(entry.getKey()));
+			}
+		}
+	}
+	
+	/**
+	 * Closes the current metrics file and opens the new one
+	 * 
+	 * @param file path of the new metrics file or null to write no metrics file
+	 */
+	private synchronized void openMetricsFile(String file) {
+		if (this.metricsWriter != null) {
+			try {
+				this.metricsWriter.close();
+			} catch (IOException e) {
+				Logger.log("Could not close the report output file " + this.metricsWriter.getFile().getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+			}
+			this.metricsWriter = null;
+		}
+		
+		if (file != null) {
+			try {
+				this.metricsWriter = new MetricsFileWriter(new File(file));
+			} catch (IOException e) {
+				Logger.log("Could not open the report output file " + file + ": " + e.getMessage(), LogLevel.Error);
+			}
+		}
+	}
+	
+	/**
+	 * Writes each report of a request to the metrics file
+	 * 
+	 * @param id the request id
+	 * @param reports the reports of the request
+	 */
+	private synchronized void writeMetrics(Long id, Vector<Report> reports) {
+		if (this.metricsWriter == null) {
+			return;
+		}
+		
+		try {
+			for (Report report : reports) {
+				this.metricsWriter.write(report.getTimestamp().getTime(), MetricsFile.getValues(id.longValue(), report));
+			}
+		} catch (IOException e) {
+			Logger.log("Could not write to the report output file " + this.metricsWriter.getFile().getAbsolutePath() + ": " + e.getMessage(), LogLevel.Error);
+			openMetricsFile(null);
+		}
+	}
+	
+	/**
+	 * Forces the written reports to the disk
+	 */
+	private synchronized void flushMetrics() {
+		if (this.metricsWriter != null) {
+			this.metricsWriter.flush();
+		}
+	}
+	
 	/**
 	 * 
 	 * @return the status of the Reporter
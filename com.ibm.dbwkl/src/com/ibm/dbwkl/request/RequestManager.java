@@ -49,7 +49,6 @@ import com.ibm.dbwkl.request.internal.VersionHandler;
 import com.ibm.dbwkl.request.parser.Options;
 import com.ibm.dbwkl.rmi.RequestManagerRemoteInterface;
 import com.ibm.dbwkl.rmi.RequestRemoteInterface;
-import com.ibm.dbwkl.rmi.RequestReporterRemoteInterface;
 import com.ibm.dbwkl.workloadtypes.model.WorkloadClass;
 import com.ibm.dbwkl.workloadtypes.viewmodel.WorkloadClassViewModel;
 import com.ibm.staf.STAFResult;
@@ -81,6 +80,16 @@ public class RequestManager implements RequestManagerRemoteInterface {
 	 * processes of all running requests on this machine(local and incoming requests)
 	 */
 	private TwoKeysMap<String, Long, Process> requestProcesses;
+	
+	/**
+	 * The latest pushed report of each request with a process on this machine
+	 */
+	private TwoKeysMap<String, Long, Report> latestReports;
+	
+	/**
+	 * The sum of the latest reports, updated with each push
+	 */
+	private Report systemStatus;
 
 	/**
 	 * Linked Queue with requests that are put on hold 
@@ -125,6 +134,8 @@ public class RequestManager implements RequestManagerRemoteInterface {
 		this.requests = new TwoKeysMap<String, Long, ARequest>();
 		this.runningRequests = new TwoKeysMap<String, Long, RequestRemoteInterface>();
 		this.requestProcesses = new TwoKeysMap<String, Long, Process>();
+		this.latestReports = new TwoKeysMap<String, Long, Report>();
+		this.systemStatus = new Report();
 		this.availableInternalRequests = new HashMap<String, Class<? extends InternalRequest>>();
 		
 		registerAllInternalRequests();
@@ -542,11 +553,13 @@ public class RequestManager implements RequestManagerRemoteInterface {
 					this.runningRequests.remove(host, rid);
 					//only local request has process on this machine. removing for remote request simply does nothing.
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 					startQueuedRequests();
 				} else {
 					//the request is incoming request, simply remove it from the map
 					this.runningRequests.remove(host, rid);
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 				}
 				break;
 			case BROKEDOWN:
@@ -558,11 +571,13 @@ public class RequestManager implements RequestManagerRemoteInterface {
 					this.runningRequests.remove(host, rid);
 					//only local request has process on this machine. removing for remote request simply does nothing.
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 					startQueuedRequests();
 				} else {
 					//the request is incoming request, simply remove it from the map
 					this.runningRequests.remove(host, rid);
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 				}
 				break;
 			case STOPPED:
@@ -574,11 +589,13 @@ public class RequestManager implements RequestManagerRemoteInterface {
 					this.runningRequests.remove(host, rid);
 					//only local request has process on this machine. removing for remote request simply does nothing.
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 					startQueuedRequests();
 				} else {
 					//the request is incoming request, simply remove it from the map
 					this.runningRequests.remove(host, rid);
 					this.requestProcesses.remove(host, rid);
+					removeSystemStatus(host, rid);
 				}
 				break;
 			case CLEANING:
@@ -669,6 +686,46 @@ public class RequestManager implements RequestManagerRemoteInterface {
 	}
 	
 	/**
+	 * Replaces the latest report of a request in the system status. Only requests with a 
+	 * process on this machine are counted. 
+	 * @param host the originating host of the request
+	 * @param rid the request id
+	 * @param report the latest report of the request
+	 */
+	public void updateSystemStatus(String host, Long rid, Report report) {
+		synchronized (this.latestReports) {
+			if(this.requestProcesses.get(host, rid) == null){
+				//the request runs on another machine or is already finished
+				return;
+			}
+			Report last = this.latestReports.put(host, rid, report);
+			this.systemStatus.subtractConcurrent(last);
+			this.systemStatus.addConcurrent(report);
+			//the latency histograms can't be subtracted again
+			this.systemStatus.getLatencies().clear();
+		}
+	}
+	
+	/**
+	 * Removes a finished request from the system status
+	 * @param host the originating host of the request
+	 * @param rid the request id
+	 */
+	private void removeSystemStatus(String host, Long rid) {
+		synchronized (this.latestReports) {
+			Report last = this.latestReports.remove(host, rid);
+			if(this.latestReports.isEmpty()){
+				//start again from 0 to drop rounding errors
+				this.systemStatus = new Report();
+			} else {
+				this.systemStatus.subtractConcurrent(last);
+			}
+		}
+	}
+	
+	/**
+	 * The reports of the requests are pushed by the requests, so the status is available 
+	 * without calling the requests.
 	 * @return a report of current system status
 	 */
 	public Report getCurrentSystemStatus(){
@@ -676,26 +733,11 @@ public class RequestManager implements RequestManagerRemoteInterface {
 		//memory and threads of the staf service JVM. Other metrics are not monitored on this JVM
 		report.setConsumed_memory(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
 		report.setNumber_of_threads(Thread.currentThread().getThreadGroup().activeCount());
-		//looking for all local running requests and add up their reports
-		for(String host : this.requestProcesses.key1Set()){
-			for(Long rid : this.requestProcesses.get(host).keySet()){
-				try {
-					RequestRemoteInterface request = this.runningRequests.get(host, rid);
-					if(request != null){
-						RequestReporterRemoteInterface reporter = request.getRequestReporter();
-						Report latestReport = request.getRequestReporter().getLatestReport();
-						if(reporter != null && latestReport != null){
-							report.add(latestReport);
-						}
-					}
-				} catch (RemoteException e) {
-					Logger.logException(e);
-					notifyRemoteException(rid, host, e);
-					continue;
-				}
-			}
+		//add the sum of the latest reports of all requests running on this machine
+		synchronized (this.latestReports) {
+			report.add(this.systemStatus);
 		}
 		
 		return report;
 	}
-}
\ No newline at end of file
+}
@@ -10,10 +10,18 @@
  *******************************************************************************/
 package com.ibm.dbwkl.request.internal;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 import org.w3c.dom.Document;
 
+import com.ibm.dbwkl.report.MetricsEndpoint;
+import com.ibm.dbwkl.report.MetricsFileReader;
 import com.ibm.dbwkl.report.Report;
 import com.ibm.dbwkl.report.Reporter;
 import com.ibm.dbwkl.request.RequestManager;
@@ -29,13 +37,15 @@ public class ReportHandler extends InternalRequest {
 	public STAFResult execute() {
 		//Query the status of the Reporter
 		if(hasRequestOption(Options.REPORT_STATUS)){
+			String metrics = MetricsEndpoint.getInstance().isRunning() ? 
+					"\tMetrics = port " + MetricsEndpoint.getInstance().getPort() : "\tMetrics = OFF";
 			if(Reporter.getInstance().getStatus()){
 				return new STAFResult(STAFResult.Ok, "Current Report Status: ON.\t" +
 													 "Interval = " + Reporter.getInstance().getInterval() + "s; " + 
 													 "Details = " + Reporter.getInstance().isDetails() + "; " +
-													 "OutFile = " + Reporter.getInstance().getOutFile());
+													 "OutFile = " + Reporter.getInstance().getOutFile() + metrics);
 			} else {
-				return new STAFResult(STAFResult.Ok, "Current Report Status: OFF.");
+				return new STAFResult(STAFResult.Ok, "Current Report Status: OFF." + metrics);
 			}
 		} 
 		// query a report on the local system. 
@@ -46,6 +56,11 @@ public class ReportHandler extends InternalRequest {
 		
 		else if(hasRequestOption(Options.REPORT_OFF)){
 			Reporter.getInstance().turnOff();
+			//without reports, the metrics endpoint would only show empty metrics
+			if(MetricsEndpoint.getInstance().isRunning()){
+				MetricsEndpoint.getInstance().stop();
+				return new STAFResult(STAFResult.Ok, "Reporter and metrics endpoint are turned OFF.");
+			}
 			return new STAFResult(STAFResult.Ok, "Reporter is turned OFF.");
 		}
 		//Turn the Reporter ON with specified parameters
@@ -100,9 +115,82 @@ public class ReportHandler extends InternalRequest {
 												 "OutFile = " + outFile);
 		}
 		
+		//Export a report output file as CSV
+		else if(hasRequestOption(Options.REPORT_EXPORT)){
+			File metricsFile = new File(getRequestOption(Options.REPORT_EXPORT));
+			File csvFile = new File(hasRequestOption(Options.REPORT_CSVFILE) ? getRequestOption(Options.REPORT_CSVFILE) : metricsFile.getPath() + ".csv");
+			long step = 0;
+			if(hasRequestOption(Options.REPORT_STEP)){
+				try {
+					step = Long.parseLong(getRequestOption(Options.REPORT_STEP)) * 1000;
+				} catch(NumberFormatException e) {
+					return new STAFResult(STAFResult.InvalidValue, "Option " + Options.REPORT_STEP + " can only be an integer.");
+				}
+			}
+			return export(metricsFile, csvFile, step);
+		}
+		
+		//Start or stop the metrics endpoint
+		else if(hasRequestOption(Options.REPORT_METRICS)){
+			String optionValue = getRequestOption(Options.REPORT_METRICS);
+			if(optionValue.equalsIgnoreCase("off")){
+				MetricsEndpoint.getInstance().stop();
+				return new STAFResult(STAFResult.Ok, "Metrics endpoint is stopped.");
+			}
+			int port;
+			try {
+				port = Integer.parseInt(optionValue);
+			} catch(NumberFormatException e) {
+				return new STAFResult(STAFResult.InvalidValue, "Option " + Options.REPORT_METRICS + " can only be a port or OFF.");
+			}
+			if(port < 0 || port > 65535)
+				return new STAFResult(STAFResult.InvalidValue, "Option " + Options.REPORT_METRICS + " can only be a port or OFF.");
+			//the request reporters only run while the reporter is on
+			if(!Reporter.getInstance().getStatus())
+				return new STAFResult(STAFResult.InvalidRequestString, "The metrics endpoint needs the reports of the requests. Turn the reporter on with REPORT ON first.");
+			try {
+				MetricsEndpoint.getInstance().start(port);
+			} catch (IOException e) {
+				return new STAFResult(STAFResult.JavaError, "Can not start the metrics endpoint on port " + port + ". " + e.getMessage());
+			}
+			return new STAFResult(STAFResult.Ok, "Metrics endpoint is started on port " + port + ", path " + MetricsEndpoint.PATH + ".");
+		}
+		
 		return new STAFResult(STAFResult.InvalidRequestString, "The request is invalide. Check syntax for correct request format");
 	}
 
+	/**
+	 * Exports a report output file as CSV
+	 * 
+	 * @param metricsFile the report output file
+	 * @param csvFile the CSV file to write
+	 * @param step the time step in ms to downsample the reports to, 0 for every report
+	 * @return the result of the export
+	 */
+	private static STAFResult export(File metricsFile, File csvFile, long step) {
+		MetricsFileReader reader = null;
+		Writer writer = null;
+		try {
+			reader = new MetricsFileReader(metricsFile);
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8));
+			long rows = reader.exportCSV(writer, step);
+			return new STAFResult(STAFResult.Ok, "Exported " + rows + " rows to " + csvFile.getAbsolutePath());
+		} catch (IOException e) {
+			return new STAFResult(STAFResult.JavaError, "Can not export the report output file. " + e.getMessage());
+		} finally {
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+				if (reader != null) {
+					reader.close();
+				}
+			} catch (IOException e) {
+				// nothing left to do
+			}
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com.ibm.dbwkl.request.internal.InternalRequest#getXML()
 	 */
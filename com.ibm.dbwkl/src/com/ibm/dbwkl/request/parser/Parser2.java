@@ -209,10 +209,15 @@ public class Parser2 {
 		this.cpReport.addOption(Options.REPORT_OFF, 1, STAFCommandParser.VALUENOTALLOWED);
 		this.cpReport.addOption(Options.REPORT_STATUS, 1, STAFCommandParser.VALUENOTALLOWED);
 		this.cpReport.addOption(Options.REPORT_SYSTEM, 1, STAFCommandParser.VALUENOTALLOWED);
+		this.cpReport.addOption(Options.REPORT_EXPORT, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpReport.addOption(Options.REPORT_STEP, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpReport.addOption(Options.REPORT_CSVFILE, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpReport.addOption(Options.REPORT_METRICS, 1, STAFCommandParser.VALUEREQUIRED);
 		
 		addOptionNeed(this.cpReport, Options.REPORT_ON, Options.REPORT_INTERVAL, Options.REPORT_DETAILS,  Options.REPORT_OUTFILE);
+		addOptionNeed(this.cpReport, Options.REPORT_EXPORT, Options.REPORT_STEP, Options.REPORT_CSVFILE);
 		
-		this.cpReport.addOptionGroup(Options.REPORT_ON + " " + Options.REPORT_OFF + " " + Options.REPORT_STATUS + " " + Options.REPORT_SYSTEM, 1, 1);
+		this.cpReport.addOptionGroup(Options.REPORT_ON + " " + Options.REPORT_OFF + " " + Options.REPORT_STATUS + " " + Options.REPORT_SYSTEM + " " + Options.REPORT_EXPORT + " " + Options.REPORT_METRICS, 1, 1);
 		
 //		addLogOptions(this.cpReport, Options.REPORT_REPORT);
 		addOutOptions(this.cpReport, Options.REPORT_REPORT);
@@ -228,9 +233,14 @@ public class Parser2 {
 		this.cpSQL.addOption(Options.SQL_FILE, 1, STAFCommandParser.VALUEREQUIRED);
 		this.cpSQL.addOption(Options.SQL_DELIMITER, 1, STAFCommandParser.VALUEREQUIRED);
 		this.cpSQL.addOption(Options.SQL_SLEEP, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpSQL.addOption(Options.SQL_BATCHSIZE, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpSQL.addOption(Options.SQL_COMMITEVERY, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpSQL.addOption(Options.SQL_FETCHMODE, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpSQL.addOption(Options.SQL_SAMPLESIZE, 1, STAFCommandParser.VALUEREQUIRED);
 		
 		addOptionNeed(this.cpSQL, Options.SQL_SQL, Options.SQL_FILE);
-		addOptionNeed(this.cpSQL, Options.SQL_FILE, Options.SQL_DELIMITER, Options.SQL_SLEEP);
+		addOptionNeed(this.cpSQL, Options.SQL_FILE, Options.SQL_DELIMITER, Options.SQL_SLEEP, Options.SQL_BATCHSIZE, Options.SQL_COMMITEVERY);
+		addOptionNeed(this.cpSQL, Options.SQL_FETCHMODE, Options.SQL_SAMPLESIZE);
 
 		addComplexDatabaseURLAndAuthorizationOptions(this.cpSQL, Options.SQL_SQL, true);
 		addOutOptions(this.cpSQL, Options.SQL_SQL);
@@ -321,8 +331,10 @@ public class Parser2 {
 		
 		this.cpSP.addOption(Options.SP_REPORT, 1, STAFCommandParser.VALUEALLOWED);
 		this.cpSP.addOption(Options.SP_REPLAY, 1, STAFCommandParser.VALUEALLOWED);
+		this.cpSP.addOption(Options.SP_REPLAYFORMAT, 1, STAFCommandParser.VALUEREQUIRED);
 		
 		this.cpSP.addOption(Options.SP_PARAMS, 1, STAFCommandParser.VALUEREQUIRED);
+		this.cpSP.addOption(Options.SP_CALLS, 1, STAFCommandParser.VALUEREQUIRED);
 
 		addOptionNeed(this.cpSP, Options.SP_SP, Options.SP_FILES);
 		this.cpSP.addOptionGroup(Options.SP_FILES, 1, 1);
@@ -440,8 +452,11 @@ public class Parser2 {
 		// add log settings
 		commandParser.addOption(Options.GEN_LOG_LOGLEVEL, 1, STAFCommandParser.VALUEREQUIRED);
 		commandParser.addOption(Options.GEN_LOG_LOGDETAILS, 1, STAFCommandParser.VALUENOTALLOWED);
+		commandParser.addOption(Options.GEN_LOG_LOGBUFFER, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.GEN_LOG_LOGPOLICY, 1, STAFCommandParser.VALUEREQUIRED);
 
-		commandParser.addOptionNeed(Options.GEN_LOG_LOGDETAILS + " " + Options.GEN_LOG_LOGLEVEL, action);
+		commandParser.addOptionNeed(Options.GEN_LOG_LOGDETAILS + " " + Options.GEN_LOG_LOGLEVEL + " " + 
+				Options.GEN_LOG_LOGBUFFER + " " + Options.GEN_LOG_LOGPOLICY, action);
 	}
 
 	/**
@@ -551,6 +566,9 @@ public class Parser2 {
 		commandParser.addOptionGroup(Options.DB_TYPE_4 + " " + Options.DB_ALIAS, 0, 1);
 		
 		commandParser.addOption(Options.DB_POOLING, 1, STAFCommandParser.VALUENOTALLOWED);
+		commandParser.addOption(Options.DB_POOL, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.DB_LEAKDETECTION, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.DB_STMTCACHE, 1, STAFCommandParser.VALUEREQUIRED);
 
 		commandParser.addOption(Options.DB_DB2OPTIONS, 1, STAFCommandParser.VALUEREQUIRED);
 
@@ -623,7 +641,8 @@ public class Parser2 {
 				+ Options.DB_ALIAS + " " 
 				+ Options.DB_CFG + " "	+ Options.DB_CFG_ID + " " + Options.DB_CFG_SSID + " "
 				+ Options.DB_CFG_SHOST + " " 
-				+ Options.DB_DBNAME + " " + Options.DB_TSNAME + " " + Options.DB_TSSQL + " ", action);
+				+ Options.DB_DBNAME + " " + Options.DB_TSNAME + " " + Options.DB_TSSQL + " "
+				+ Options.DB_POOL + " " + Options.DB_LEAKDETECTION + " " + Options.DB_STMTCACHE + " ", action);
 	}
 	
 	/**
@@ -640,9 +659,17 @@ public class Parser2 {
 		commandParser.addOption(Options.THREADED_DURATION, 1, STAFCommandParser.VALUEREQUIRED);
 		commandParser.addOption(Options.THREADED_REPEAT, 1, STAFCommandParser.VALUEREQUIRED);
 		commandParser.addOption(Options.THREADED_INSTANCES, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_RATE, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_RATE_PROFILE, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_RAMPUP, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_CARRIERS, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_SEED, 1, STAFCommandParser.VALUEREQUIRED);
+		commandParser.addOption(Options.THREADED_TRACE, 1, STAFCommandParser.VALUENOTALLOWED);
 		commandParser.addOption(Options.JVM_OPTIONS, 1, STAFCommandParser.VALUEREQUIRED);
 		
 		commandParser.addOptionGroup(Options.THREADED_DURATION + " " + Options.THREADED_REPEAT, 0, 1);
+		commandParser.addOptionNeed(Options.THREADED_RATE_PROFILE + " " + Options.THREADED_RAMPUP, Options.THREADED_RATE);
+		commandParser.addOptionNeed(Options.THREADED_CARRIERS, Options.THREADED_INSTANCES);
 	}
 
 	/**